@@ -0,0 +1,74 @@
+package com.example.benchmarks;
+
+import com.example.asincrono.AccesoAsincrono;
+import com.example.metricas.RegistroMetricas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link AccesoAsincrono} con un hilo virtual por trabajo frente a un pool
+ * fijo de hilos de plataforma (como el de un servidor web clásico). Cada
+ * operación lanza {@code peticiones} fichas de estudiante a la vez (tres
+ * consultas en paralelo cada una) y espera a todas; en los dos casos el
+ * semáforo deja usar la base de datos a tantos trabajos como conexiones
+ * tiene el pool.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class AccesoAsincronoBenchmark {
+
+    private static final int HILOS_PLATAFORMA = 200;
+    private static final int PERMISOS = 50;
+
+    @Param({"virtuales", "plataforma"})
+    public String hilos;
+
+    @Param({"100"})
+    public int peticiones;
+
+    private final SplittableRandom aleatorio = new SplittableRandom(7);
+    private AccesoAsincrono acceso;
+
+    @Setup(Level.Trial)
+    public void abrir(BaseDeDatos db) {
+        acceso = new AccesoAsincrono(db.sessionFactory, hilos.equals("virtuales")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(HILOS_PLATAFORMA), PERMISOS, new RegistroMetricas());
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        acceso.close();
+    }
+
+    @Benchmark
+    public Object fichas(BaseDeDatos db) {
+        CompletableFuture<?>[] fichas = new CompletableFuture<?>[peticiones];
+        synchronized (aleatorio) {
+            for (int i = 0; i < peticiones; i++) {
+                fichas[i] = acceso.fichaEstudiante(db.estudianteAlAzar(aleatorio));
+            }
+        }
+        return AccesoAsincrono.todos(fichas).join();
+    }
+}
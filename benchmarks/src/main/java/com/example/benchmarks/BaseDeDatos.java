@@ -0,0 +1,146 @@
+package com.example.benchmarks;
+
+import com.example.HibernateUtil;
+import com.example.consultas.Pagina;
+import com.example.consultas.Paginacion;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Base de datos H2 en fichero con {@code estudiantes} estudiantes, uno
+ * por cada 20 cursos y un profesor por cada 500 estudiantes; cada
+ * estudiante está matriculado en 3 cursos al azar (semilla fija).
+ *
+ * <p>Hay un fichero por tamaño en {@code target/bench-db} y se rellena
+ * sólo la primera vez, así que las ejecuciones siguientes con el mismo
+ * tamaño arrancan enseguida. La SessionFactory es la de
+ * {@link HibernateUtil}, con la configuración de conexión sustituida por
+ * propiedades de sistema.
+ */
+@State(Scope.Benchmark)
+public class BaseDeDatos {
+
+    private static final int ESTUDIANTES_POR_CURSO = 20;
+    private static final int ESTUDIANTES_POR_PROFESOR = 500;
+    private static final int CURSOS_POR_ESTUDIANTE = 3;
+    private static final int TAMANO_LOTE = 50;
+    private static final int TAMANO_PAGINA_SALTO = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int estudiantes;
+
+    SessionFactory sessionFactory;
+    long[] estudianteIds;
+    long[] cursoIds;
+    /** Token de la página que empieza a mitad del listado por nombre. */
+    String tokenMitad;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Path fichero = Path.of("target", "bench-db", "escuela-" + estudiantes).toAbsolutePath();
+        System.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        System.setProperty("hibernate.connection.url", "jdbc:h2:file:" + fichero + ";MODE=MariaDB");
+        System.setProperty("hibernate.connection.username", "sa");
+        System.setProperty("hibernate.connection.password", "");
+        HibernateUtil.shutdown();
+        sessionFactory = HibernateUtil.getSessionFactory();
+        HibernateUtil.calentar();
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Long existentes = session.createSelectionQuery("SELECT COUNT(e) FROM Estudiante e", Long.class)
+                    .getSingleResult();
+            if (existentes < estudiantes) {
+                rellenar(estudiantes - existentes.intValue());
+            }
+            estudianteIds = session.createSelectionQuery("SELECT e.id FROM Estudiante e ORDER BY e.id", Long.class)
+                    .getResultStream().mapToLong(Long::longValue).toArray();
+            cursoIds = session.createSelectionQuery("SELECT c.id FROM Curso c ORDER BY c.id", Long.class)
+                    .getResultStream().mapToLong(Long::longValue).toArray();
+        }
+        tokenMitad = saltarHastaLaMitad();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        HibernateUtil.shutdown();
+    }
+
+    private void rellenar(int cuantos) {
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        int numCursos = Math.max(1, estudiantes / ESTUDIANTES_POR_CURSO);
+        int numProfesores = Math.max(1, estudiantes / ESTUDIANTES_POR_PROFESOR);
+
+        Session session = sessionFactory.openSession();
+        session.setJdbcBatchSize(TAMANO_LOTE);
+        session.beginTransaction();
+        long[] cursos = session.createSelectionQuery("SELECT c.id FROM Curso c", Long.class)
+                .getResultStream().mapToLong(Long::longValue).toArray();
+        if (cursos.length == 0) {
+            Profesor[] profesores = new Profesor[numProfesores];
+            for (int i = 0; i < numProfesores; i++) {
+                profesores[i] = new Profesor("Profesor " + i, "bench.p" + i + "@escuela.com");
+                session.persist(profesores[i]);
+            }
+            cursos = new long[numCursos];
+            for (int i = 0; i < numCursos; i++) {
+                Curso curso = new Curso("Curso " + i, 1 + aleatorio.nextInt(12), profesores[i % numProfesores]);
+                session.persist(curso);
+                cursos[i] = curso.getId();
+            }
+            session.flush();
+            session.clear();
+        }
+        for (int i = 0; i < cuantos; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante " + aleatorio.nextInt(estudiantes),
+                    "bench." + System.nanoTime() + "." + i + "@escuela.com");
+            for (int j = 0; j < CURSOS_POR_ESTUDIANTE; j++) {
+                estudiante.getCursos().add(session.getReference(Curso.class, cursos[aleatorio.nextInt(cursos.length)]));
+            }
+            session.persist(estudiante);
+            if (i > 0 && i % TAMANO_LOTE == 0) {
+                session.flush();
+                session.clear();
+            }
+            if (i > 0 && i % 100_000 == 0) {
+                session.getTransaction().commit();
+                session.beginTransaction();
+            }
+        }
+        session.getTransaction().commit();
+        session.close();
+    }
+
+    private String saltarHastaLaMitad() {
+        String token = null;
+        try (Session session = sessionFactory.openSession()) {
+            for (int leidos = 0; leidos < estudianteIds.length / 2; leidos += TAMANO_PAGINA_SALTO) {
+                int tamano = Math.min(TAMANO_PAGINA_SALTO, estudianteIds.length / 2 - leidos);
+                Pagina<Estudiante> pagina = Paginacion.estudiantesPorNombre(session, token, tamano);
+                token = pagina.siguiente();
+                session.clear();
+            }
+        }
+        return token;
+    }
+
+    long estudianteAlAzar(SplittableRandom aleatorio) {
+        return estudianteIds[aleatorio.nextInt(estudianteIds.length)];
+    }
+
+    long cursoAlAzar(SplittableRandom aleatorio) {
+        return cursoIds[aleatorio.nextInt(cursoIds.length)];
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.benchmarks;
+
+import com.example.consultas.ConsultasMatricula;
+import com.example.consultas.Paginacion;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminos calientes de la capa de persistencia. Throughput da
+ * operaciones/ms y SampleTime los percentiles de latencia (p50, p99...);
+ * con {@code -prof gc} JMH añade la tasa de asignación por operación.
+ *
+ * <p>Las escrituras hacen flush y deshacen la transacción, para medir los
+ * INSERT/UPDATE sin que la base de datos crezca entre iteraciones.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Thread)
+public class PersistenciaBenchmark {
+
+    private static final int TAMANO_PAGINA = 20;
+    private static final int ESTUDIANTES_POR_GRAFO = 20;
+
+    private final SplittableRandom aleatorio = new SplittableRandom();
+    private Estudiante desacoplado;
+
+    @Setup(Level.Iteration)
+    public void prepararDesacoplado(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            desacoplado = session.find(Estudiante.class, db.estudianteAlAzar(aleatorio));
+        }
+    }
+
+    @Benchmark
+    public Estudiante findPorId(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return session.find(Estudiante.class, db.estudianteAlAzar(aleatorio));
+        }
+    }
+
+    // La consulta de EscuelaTest/ConsultasMatricula sin la caché de consultas
+    @Benchmark
+    public List<Estudiante> estudiantesEnCurso(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return session.createQuery(
+                            "SELECT e FROM Estudiante e JOIN e.cursos c WHERE c.id = :cursoId", Estudiante.class)
+                    .setParameter("cursoId", db.cursoAlAzar(aleatorio))
+                    .getResultList();
+        }
+    }
+
+    @Benchmark
+    public List<Estudiante> estudiantesEnCursoCacheado(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return ConsultasMatricula.estudiantesEnCurso(session, db.cursoAlAzar(aleatorio));
+        }
+    }
+
+    @Benchmark
+    public List<Estudiante> estudiantesEnDosCursos(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return session.createQuery(
+                            "SELECT DISTINCT e FROM Estudiante e JOIN e.cursos c WHERE c.id IN (:cursoIds)",
+                            Estudiante.class)
+                    .setParameterList("cursoIds", List.of(db.cursoAlAzar(aleatorio), db.cursoAlAzar(aleatorio)))
+                    .getResultList();
+        }
+    }
+
+    // Página a mitad del listado por nombre: OFFSET frente a keyset
+    @Benchmark
+    public List<Estudiante> paginaOffset(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return session.createQuery("FROM Estudiante e ORDER BY e.nombre, e.id", Estudiante.class)
+                    .setFirstResult(db.estudianteIds.length / 2)
+                    .setMaxResults(TAMANO_PAGINA)
+                    .getResultList();
+        }
+    }
+
+    @Benchmark
+    public List<Estudiante> paginaKeyset(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            return Paginacion.estudiantesPorNombre(session, db.tokenMitad, TAMANO_PAGINA).elementos();
+        }
+    }
+
+    // Un curso con sus estudiantes matriculados
+    @Benchmark
+    public Curso insertarGrafo(BaseDeDatos db) {
+        try (Session session = db.sessionFactory.openSession()) {
+            session.beginTransaction();
+            Curso curso = new Curso("Curso Benchmark", 6.0, null);
+            session.persist(curso);
+            for (int i = 0; i < ESTUDIANTES_POR_GRAFO; i++) {
+                Estudiante estudiante = new Estudiante("Estudiante Benchmark " + i,
+                        "grafo." + aleatorio.nextLong() + "@escuela.com");
+                estudiante.getCursos().add(curso);
+                session.persist(estudiante);
+            }
+            session.flush();
+            session.getTransaction().rollback();
+            return curso;
+        }
+    }
+
+    @Benchmark
+    public Estudiante mergeDesacoplado(BaseDeDatos db) {
+        desacoplado.setNombre("Estudiante " + aleatorio.nextInt());
+        try (Session session = db.sessionFactory.openSession()) {
+            session.beginTransaction();
+            Estudiante gestionado = session.merge(desacoplado);
+            session.flush();
+            session.getTransaction().rollback();
+            return gestionado;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.example.benchmarks;
+
+import com.example.HibernateUtil;
+import com.example.carga.Distribucion;
+import com.example.carga.GeneradorDatos;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Prueba de carga: rellena (la primera vez) una base de datos H2 en fichero
+ * con {@link GeneradorDatos} y repite desde muchos hilos a la vez una mezcla
+ * de las consultas de {@code EscuelaTest} e {@code InterfazQueryTest}.
+ * Los cursos se eligen con la misma popularidad sesgada con la que se
+ * generaron las matrículas. Al acabar escribe, por operación y en total,
+ * operaciones por segundo, latencias p50 y p99 y errores.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.example.benchmarks.PruebaCarga \
+ *     estudiantes=100000 sesgo=1.0 hilos=32 segundos=30 calentamiento=5
+ * </pre>
+ */
+public class PruebaCarga {
+
+    private static final int TAMANO_PAGINA = 20;
+
+    private record Operacion(String nombre, int peso, BiConsumer<Session, SplittableRandom> cuerpo) {
+    }
+
+    // Latencias de un hilo para una operación (sin sincronizar: cada hilo tiene las suyas)
+    private static final class Muestras {
+        long[] nanos = new long[1024];
+        int cuenta;
+        long errores;
+
+        void anadir(long valor) {
+            if (cuenta == nanos.length) {
+                nanos = Arrays.copyOf(nanos, cuenta * 2);
+            }
+            nanos[cuenta++] = valor;
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+    private final long[] estudianteIds;
+    private final long[] cursoIds;
+    private final long[] profesorIds;
+    // Nombres en el mismo orden que los ids: los generados llevan el prefijo de la generación
+    private final String[] nombresCursos;
+    private final String[] nombresProfesores;
+    private final Distribucion popularidad;
+    private final AtomicLong cambiosEmail = new AtomicLong();
+    private final List<Operacion> operaciones = new ArrayList<>();
+
+    PruebaCarga(SessionFactory sessionFactory, long[] estudianteIds, long[] cursoIds, long[] profesorIds, double sesgo) {
+        this.sessionFactory = sessionFactory;
+        this.estudianteIds = estudianteIds;
+        this.cursoIds = cursoIds;
+        this.profesorIds = profesorIds;
+        try (Session session = sessionFactory.openSession()) {
+            this.nombresCursos = nombres(session, "Curso", cursoIds);
+            this.nombresProfesores = nombres(session, "Profesor", profesorIds);
+        }
+        this.popularidad = new Distribucion(cursoIds.length, sesgo);
+
+        operaciones.add(new Operacion("buscarEstudiante", 30,
+                (session, aleatorio) -> session.find(Estudiante.class, estudianteAlAzar(aleatorio))));
+        operaciones.add(new Operacion("estudiantesEnCursoConHQL", 15, (session, aleatorio) -> session.createQuery(
+                        "SELECT e FROM Estudiante e JOIN e.cursos c WHERE c.id = :cursoId", Estudiante.class)
+                .setParameter("cursoId", cursoPopular(aleatorio))
+                .getResultList()));
+        operaciones.add(new Operacion("estudiantesEnCursoSinHQL", 10,
+                (session, aleatorio) -> session.find(Curso.class, cursoPopular(aleatorio)).getEstudiantes().size()));
+        operaciones.add(new Operacion("estudiantesEnDosCursosPorId", 10, (session, aleatorio) -> session.createQuery(
+                        "SELECT DISTINCT e FROM Estudiante e JOIN e.cursos c WHERE c.id IN (:cursoIds)", Estudiante.class)
+                .setParameter("cursoIds", List.of(cursoPopular(aleatorio), cursoPopular(aleatorio)))
+                .getResultList()));
+        operaciones.add(new Operacion("estudiantesEnCursosPorNombre", 5, (session, aleatorio) -> session.createQuery(
+                        "SELECT DISTINCT e FROM Estudiante e JOIN e.cursos c WHERE c.nombre IN (:nombresCursos)",
+                        Estudiante.class)
+                .setParameter("nombresCursos", List.of(nombresCursos[popularidad.muestra(aleatorio)],
+                        nombresCursos[popularidad.muestra(aleatorio)]))
+                .getResultList()));
+        operaciones.add(new Operacion("profesorPorNombre", 10, (session, aleatorio) -> session.createQuery(
+                        "FROM Profesor p WHERE p.nombre = :nombre", Profesor.class)
+                .setParameter("nombre", nombresProfesores[aleatorio.nextInt(nombresProfesores.length)])
+                .getResultList()));
+        operaciones.add(new Operacion("estudiantesPorListaDeIds", 10, (session, aleatorio) -> session.createQuery(
+                        "FROM Estudiante e WHERE e.id IN (:ids)", Estudiante.class)
+                .setParameterList("ids", List.of(estudianteAlAzar(aleatorio), estudianteAlAzar(aleatorio),
+                        estudianteAlAzar(aleatorio)))
+                .getResultList()));
+        operaciones.add(new Operacion("estudiantesConPaginacion", 7, (session, aleatorio) -> session.createQuery(
+                        "FROM Estudiante", Estudiante.class)
+                .setFirstResult(aleatorio.nextInt(Math.max(1, estudianteIds.length - TAMANO_PAGINA)))
+                .setMaxResults(TAMANO_PAGINA)
+                .getResultList()));
+        operaciones.add(new Operacion("cursosSoloLectura", 1, (session, aleatorio) -> session.createQuery(
+                        "FROM Curso", Curso.class)
+                .setReadOnly(true)
+                .getResultList()));
+        operaciones.add(new Operacion("actualizarEmailProfesor", 2, (session, aleatorio) -> {
+            session.beginTransaction();
+            Profesor profesor = session.find(Profesor.class, profesorIds[aleatorio.nextInt(profesorIds.length)]);
+            profesor.setEmail("carga." + cambiosEmail.incrementAndGet() + "." + System.nanoTime() + "@escuela.com");
+            session.getTransaction().commit();
+        }));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opciones = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (igual < 0) {
+                throw new IllegalArgumentException("Argumento sin valor (clave=valor): " + arg);
+            }
+            opciones.put(arg.substring(0, igual), arg.substring(igual + 1));
+        }
+        int estudiantes = Integer.parseInt(opciones.getOrDefault("estudiantes", "100000"));
+        double sesgo = Double.parseDouble(opciones.getOrDefault("sesgo", "1.0"));
+        int hilos = Integer.parseInt(opciones.getOrDefault("hilos", "32"));
+        int segundos = Integer.parseInt(opciones.getOrDefault("segundos", "30"));
+        int calentamiento = Integer.parseInt(opciones.getOrDefault("calentamiento", "5"));
+
+        Path fichero = Path.of("target", "carga-db", "escuela-" + estudiantes + "-" + sesgo).toAbsolutePath();
+        System.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        System.setProperty("hibernate.connection.url", "jdbc:h2:file:" + fichero + ";MODE=MariaDB");
+        System.setProperty("hibernate.connection.username", "sa");
+        System.setProperty("hibernate.connection.password", "");
+        System.setProperty("hibernate.hikari.maximumPoolSize", String.valueOf(hilos));
+        try {
+            SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+            HibernateUtil.calentar();
+            PruebaCarga prueba = preparar(sessionFactory, estudiantes, sesgo);
+            prueba.ejecutar(hilos, calentamiento, segundos);
+        } finally {
+            HibernateUtil.shutdown();
+        }
+    }
+
+    // Genera los datos si la base de datos está vacía; si no, lee los ids (los de curso, en orden de popularidad)
+    private static PruebaCarga preparar(SessionFactory sessionFactory, int estudiantes, double sesgo) {
+        try (Session session = sessionFactory.openSession()) {
+            long[] estudianteIds = ids(session, "SELECT e.id FROM Estudiante e ORDER BY e.id");
+            if (estudianteIds.length > 0) {
+                return new PruebaCarga(sessionFactory, estudianteIds,
+                        ids(session, "SELECT c.id FROM Curso c ORDER BY c.id"),
+                        ids(session, "SELECT p.id FROM Profesor p ORDER BY p.id"), sesgo);
+            }
+        }
+        GeneradorDatos.Configuracion proporcional = GeneradorDatos.Configuracion.proporcional(estudiantes);
+        GeneradorDatos.Configuracion configuracion = new GeneradorDatos.Configuracion(estudiantes,
+                proporcional.cursos(), proporcional.profesores(), proporcional.minCursos(), proporcional.maxCursos(),
+                sesgo, proporcional.semilla(), proporcional.prefijo(), proporcional.tamanoLote());
+        GeneradorDatos.DatosGenerados datos = new GeneradorDatos(sessionFactory).generar(configuracion);
+        System.out.printf("Generados %d estudiantes, %d cursos, %d profesores y %d matrículas en %d s (%.0f filas/s)%n",
+                datos.estudianteIds().length, datos.cursoIds().length, datos.profesorIds().length,
+                datos.matriculas(), datos.duracion().toSeconds(), datos.filasPorSegundo());
+        return new PruebaCarga(sessionFactory, datos.estudianteIds(), datos.cursoIds(), datos.profesorIds(), sesgo);
+    }
+
+    private static String[] nombres(Session session, String entidad, long[] ids) {
+        Map<Long, String> porId = new HashMap<>();
+        session.createSelectionQuery("SELECT x.id, x.nombre FROM " + entidad + " x", Object[].class)
+                .getResultStream()
+                .forEach(fila -> porId.put((Long) fila[0], (String) fila[1]));
+        return Arrays.stream(ids).mapToObj(porId::get).toArray(String[]::new);
+    }
+
+    private static long[] ids(Session session, String hql) {
+        return session.createSelectionQuery(hql, Long.class).getResultStream().mapToLong(Long::longValue).toArray();
+    }
+
+    void ejecutar(int hilos, int segundosCalentamiento, int segundos) throws Exception {
+        int[] pesos = new int[operaciones.size()];
+        int total = 0;
+        for (int i = 0; i < pesos.length; i++) {
+            total += operaciones.get(i).peso();
+            pesos[i] = total;
+        }
+        int pesoTotal = total;
+        long inicioMedida = System.nanoTime() + segundosCalentamiento * 1_000_000_000L;
+        long fin = inicioMedida + segundos * 1_000_000_000L;
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        List<Future<Muestras[]>> resultados = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            long semilla = 1_000 + h;
+            resultados.add(ejecutor.submit(() -> trabajar(new SplittableRandom(semilla), pesos, pesoTotal,
+                    inicioMedida, fin)));
+        }
+        Muestras[] juntas = new Muestras[operaciones.size()];
+        for (int i = 0; i < juntas.length; i++) {
+            juntas[i] = new Muestras();
+        }
+        for (Future<Muestras[]> resultado : resultados) {
+            Muestras[] delHilo = resultado.get();
+            for (int i = 0; i < juntas.length; i++) {
+                for (int j = 0; j < delHilo[i].cuenta; j++) {
+                    juntas[i].anadir(delHilo[i].nanos[j]);
+                }
+                juntas[i].errores += delHilo[i].errores;
+            }
+        }
+        ejecutor.shutdown();
+        informar(juntas, hilos, segundos);
+    }
+
+    private Muestras[] trabajar(SplittableRandom aleatorio, int[] pesos, int pesoTotal, long inicioMedida, long fin) {
+        Muestras[] muestras = new Muestras[operaciones.size()];
+        for (int i = 0; i < muestras.length; i++) {
+            muestras[i] = new Muestras();
+        }
+        long ahora;
+        while ((ahora = System.nanoTime()) < fin) {
+            int elegida = Arrays.binarySearch(pesos, aleatorio.nextInt(pesoTotal) + 1);
+            int i = elegida >= 0 ? elegida : -elegida - 1;
+            boolean error = false;
+            try (Session session = sessionFactory.openSession()) {
+                operaciones.get(i).cuerpo().accept(session, aleatorio);
+            } catch (RuntimeException e) {
+                error = true;
+            }
+            long duracion = System.nanoTime() - ahora;
+            if (ahora >= inicioMedida) {
+                muestras[i].anadir(duracion);
+                if (error) {
+                    muestras[i].errores++;
+                }
+            }
+        }
+        return muestras;
+    }
+
+    private void informar(Muestras[] muestras, int hilos, int segundos) {
+        System.out.println("==================================================================================");
+        System.out.printf("Prueba de carga: %d hilos durante %d s, %d estudiantes, %d cursos%n",
+                hilos, segundos, estudianteIds.length, cursoIds.length);
+        System.out.println("----------------------------------------------------------------------------------");
+        System.out.printf("%-30s %10s %10s %10s %10s %8s%n", "Operación", "total", "op/s", "p50 ms", "p99 ms", "errores");
+        Muestras todas = new Muestras();
+        for (int i = 0; i < muestras.length; i++) {
+            fila(operaciones.get(i).nombre(), muestras[i], segundos);
+            for (int j = 0; j < muestras[i].cuenta; j++) {
+                todas.anadir(muestras[i].nanos[j]);
+            }
+            todas.errores += muestras[i].errores;
+        }
+        System.out.println("----------------------------------------------------------------------------------");
+        fila("Total", todas, segundos);
+        System.out.println("==================================================================================");
+    }
+
+    private static void fila(String nombre, Muestras muestras, int segundos) {
+        long[] ordenadas = Arrays.copyOf(muestras.nanos, muestras.cuenta);
+        Arrays.sort(ordenadas);
+        System.out.printf("%-30s %10d %10.0f %10.2f %10.2f %8d%n", nombre, muestras.cuenta,
+                muestras.cuenta / (double) segundos, percentil(ordenadas, 50) / 1e6, percentil(ordenadas, 99) / 1e6,
+                muestras.errores);
+    }
+
+    private static long percentil(long[] ordenadas, double percentil) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int posicion = (int) Math.ceil(ordenadas.length * percentil / 100.0) - 1;
+        return ordenadas[Math.max(0, posicion)];
+    }
+
+    long estudianteAlAzar(SplittableRandom aleatorio) {
+        return estudianteIds[aleatorio.nextInt(estudianteIds.length)];
+    }
+
+    long cursoPopular(SplittableRandom aleatorio) {
+        return cursoIds[popularidad.muestra(aleatorio)];
+    }
+}
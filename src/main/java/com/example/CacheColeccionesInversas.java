@@ -0,0 +1,180 @@
+package com.example;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Matricula;
+import com.example.model.Profesor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreCollectionRecreateEvent;
+import org.hibernate.event.spi.PreCollectionRecreateEventListener;
+import org.hibernate.event.spi.PreCollectionRemoveEvent;
+import org.hibernate.event.spi.PreCollectionRemoveEventListener;
+import org.hibernate.event.spi.PreCollectionUpdateEvent;
+import org.hibernate.event.spi.PreCollectionUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Mantiene al día en la caché de segundo nivel los lados inversos de las
+ * relaciones, {@code Curso.estudiantes} y {@code Profesor.cursos}.
+ *
+ * <p>Hibernate sólo actualiza en la caché la colección del lado dueño:
+ * tras {@code estudiante.getCursos().add(curso)} o
+ * {@code new Curso(..., profesor)} el curso y el profesor seguirían
+ * mostrando la lista antigua hasta que caducara la región. Este listener
+ * quita de la caché las colecciones inversas afectadas cuando cambian
+ * {@code Estudiante.cursos}, una {@link Matricula} o el profesor de un
+ * curso, al terminar la transacción (así no vuelve a entrar el estado
+ * anterior leído por otra sesión antes del commit).
+ *
+ * <p>Las escrituras que no pasan por una {@code Session} (HQL masivo,
+ * JDBC, {@code StatelessSession}) tienen que invalidar por su cuenta, como
+ * hace {@link com.example.importacion.ImportadorMatriculas}.
+ */
+public class CacheColeccionesInversas implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener, PreCollectionRecreateEventListener, PreCollectionUpdateEventListener,
+        PreCollectionRemoveEventListener {
+
+    private static final String ROL_ESTUDIANTES = Curso.class.getName() + ".estudiantes";
+    private static final String ROL_CURSOS_ESTUDIANTE = Estudiante.class.getName() + ".cursos";
+    private static final String ROL_CURSOS_PROFESOR = Profesor.class.getName() + ".cursos";
+
+    private final Cache cache;
+
+    private CacheColeccionesInversas(Cache cache) {
+        this.cache = cache;
+    }
+
+    public static void registrar(SessionFactory sessionFactory) {
+        CacheColeccionesInversas listener = new CacheColeccionesInversas(sessionFactory.getCache());
+        EventListenerRegistry registro = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        registro.appendListeners(EventType.POST_INSERT, listener);
+        registro.appendListeners(EventType.POST_UPDATE, listener);
+        registro.appendListeners(EventType.POST_DELETE, listener);
+        registro.appendListeners(EventType.PRE_COLLECTION_RECREATE, listener);
+        registro.appendListeners(EventType.PRE_COLLECTION_UPDATE, listener);
+        registro.appendListeners(EventType.PRE_COLLECTION_REMOVE, listener);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Matricula matricula) {
+            olvidarMatricula(event.getSession(), matricula);
+        } else if (event.getEntity() instanceof Curso) {
+            olvidar(event.getSession(), ROL_CURSOS_PROFESOR, profesorId(event.getPersister(), event.getState()));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Curso && event.getOldState() != null) {
+            Long anterior = profesorId(event.getPersister(), event.getOldState());
+            Long actual = profesorId(event.getPersister(), event.getState());
+            if (anterior == null ? actual != null : !anterior.equals(actual)) {
+                olvidar(event.getSession(), ROL_CURSOS_PROFESOR, anterior, actual);
+            }
+        } else if (event.getEntity() instanceof Curso) {
+            // Sin estado anterior (merge de una entidad separada) no se sabe de qué profesor era
+            olvidarTodas(event.getSession(), ROL_CURSOS_PROFESOR);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Matricula matricula) {
+            olvidarMatricula(event.getSession(), matricula);
+        } else if (event.getEntity() instanceof Curso) {
+            olvidar(event.getSession(), ROL_CURSOS_PROFESOR,
+                    profesorId(event.getPersister(), event.getDeletedState()));
+        }
+    }
+
+    // Los eventos PRE: después de escribir la colección Hibernate sustituye la instantánea por el contenido nuevo
+
+    @Override
+    public void onPreRecreateCollection(PreCollectionRecreateEvent event) {
+        if (ListenersCompartidos.esDeEstudiante(event)) {
+            olvidarCursos(event, (Collection<?>) event.getCollection());
+        }
+    }
+
+    @Override
+    public void onPreUpdateCollection(PreCollectionUpdateEvent event) {
+        if (ListenersCompartidos.esDeEstudiante(event)) {
+            Set<Object> cursos = new HashSet<>((Collection<?>) event.getCollection());
+            cursos.addAll(anteriores(event.getCollection()));
+            olvidarCursos(event, cursos);
+        }
+    }
+
+    @Override
+    public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+        if (!ListenersCompartidos.esDeEstudiante(event)) {
+            return;
+        }
+        PersistentCollection<?> coleccion = event.getCollection();
+        if (coleccion.wasInitialized() && coleccion.getStoredSnapshot() != null) {
+            olvidarCursos(event, anteriores(coleccion));
+        } else {
+            // Sin cargar no se sabe en qué cursos estaba
+            olvidarTodas(event.getSession(), ROL_ESTUDIANTES);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    private static Collection<?> anteriores(PersistentCollection<?> coleccion) {
+        return coleccion.getStoredSnapshot() instanceof Map<?, ?> instantanea ? instantanea.values() : Set.of();
+    }
+
+    private static Long profesorId(EntityPersister persister, Object[] estado) {
+        int indice = Arrays.asList(persister.getPropertyNames()).indexOf("profesor");
+        return estado != null && estado[indice] instanceof Profesor profesor ? profesor.getId() : null;
+    }
+
+    private void olvidarCursos(AbstractCollectionEvent event, Collection<?> cursos) {
+        Long[] ids = cursos.stream().map(curso -> ((Curso) curso).getId()).toArray(Long[]::new);
+        olvidar(event.getSession(), ROL_ESTUDIANTES, ids);
+    }
+
+    private void olvidarMatricula(EventSource session, Matricula matricula) {
+        olvidar(session, ROL_ESTUDIANTES, matricula.getCurso().getId());
+        olvidar(session, ROL_CURSOS_ESTUDIANTE, matricula.getEstudiante().getId());
+    }
+
+    private void olvidar(EventSource session, String rol, Long... ids) {
+        session.getActionQueue().registerProcess((exito, s) -> {
+            for (Long id : ids) {
+                if (id != null) {
+                    cache.evictCollectionData(rol, id);
+                }
+            }
+        });
+    }
+
+    private void olvidarTodas(EventSource session, String rol) {
+        session.getActionQueue().registerProcess((exito, s) -> cache.evictCollectionData(rol));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example;
+
+import com.example.model.Curso;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Listener registrado una vez por SessionFactory con
+ * {@link ListenersCompartidos} que reparte los eventos entre las
+ * instancias abiertas sobre ella (índices, totales, outbox).
+ *
+ * @param <T> la clase cuyas instancias reciben los cambios
+ */
+public abstract class EscuchaCompartida<T> {
+
+    private final List<T> abiertas = new CopyOnWriteArrayList<>();
+
+    public void anadir(T abierta) {
+        abiertas.add(abierta);
+    }
+
+    public void quitar(T abierta) {
+        abiertas.remove(abierta);
+    }
+
+    public boolean hayAbiertas() {
+        return !abiertas.isEmpty();
+    }
+
+    /** Recalcula cada instancia abierta (ver {@link ListenersCompartidos#recalcular}). */
+    public void recalcularAbiertas() {
+        abiertas.forEach(this::recalcular);
+    }
+
+    /**
+     * Vuelve a leer de la base de datos lo que mantenga la instancia; por
+     * defecto nada, para las que no guardan estado derivado.
+     */
+    protected void recalcular(T abierta) {
+    }
+
+    /** Aplica el cambio a cada instancia abierta sólo si la transacción se confirma. */
+    protected void programar(EventSource session, Consumer<? super T> cambio) {
+        if (abiertas.isEmpty()) {
+            return;
+        }
+        session.getActionQueue().registerProcess((exito, s) -> {
+            if (exito) {
+                abiertas.forEach(cambio);
+            }
+        });
+    }
+
+    /** Ids de los cursos de {@code Estudiante.cursos} tras el evento (ninguno si se ha eliminado). */
+    protected static Roaring64NavigableMap cursos(AbstractCollectionEvent event, boolean eliminada) {
+        Roaring64NavigableMap cursos = new Roaring64NavigableMap();
+        if (!eliminada) {
+            for (Object curso : (Collection<?>) event.getCollection()) {
+                cursos.addLong(((Curso) curso).getId());
+            }
+        }
+        return cursos;
+    }
+}
@@ -1,45 +1,297 @@
 package com.example;
 
+import com.example.metricas.DetectorNMasUno;
+import com.example.metricas.EstadisticasConsultas;
+import com.example.metricas.MetricasCache;
+import com.example.metricas.RegistroMetricas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.Metadata;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.Query;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 public class HibernateUtil {
+    /** Consultas HQL que tarden al menos estos milisegundos se escriben en el log. */
+    public static final String UMBRAL_LENTA_MS = "escuela.consultas.umbral_lenta_ms";
+    /** Cargas perezosas repetidas de una entidad o colección en una sesión a partir de las que se avisa de N+1. */
+    public static final String UMBRAL_N_MAS_1 = "escuela.consultas.umbral_n_mas_1";
+
+    private static final Object lock = new Object();
+    private static final RegistroMetricas metricas = new RegistroMetricas();
+
+    private static volatile SessionFactory sessionFactory;
+    private static volatile RuntimeException errorInicio;
+    private static volatile boolean calentado;
+    // registry, dataSource e instantanea sólo se leen y escriben con lock
     private static StandardServiceRegistry registry;
-    private static SessionFactory sessionFactory;
+    private static HikariDataSource dataSource;
+    private static volatile Replicas replicas;
+    private static Path instantanea;
 
+    static {
+        metricas.registrarIndicador("hibernate_listo", "1 si la SessionFactory está construida y calentada",
+                () -> estaListo() ? 1 : 0);
+    }
+
+    /**
+     * Devuelve la SessionFactory, construyéndola la primera vez. Si varios
+     * hilos llegan a la vez sólo uno la construye y el resto espera. Si la
+     * construcción falla, las siguientes llamadas lanzan el mismo error en
+     * vez de reintentar; {@link #shutdown()} permite volver a intentarlo.
+     */
     public static SessionFactory getSessionFactory() {
-        if (sessionFactory == null) {
-            try {
-                // Create registry
-                registry = new StandardServiceRegistryBuilder().configure().build();
+        SessionFactory sf = sessionFactory;
+        if (sf == null) {
+            synchronized (lock) {
+                sf = sessionFactory;
+                if (sf == null) {
+                    if (errorInicio != null) {
+                        throw new IllegalStateException("Hibernate no se pudo inicializar", errorInicio);
+                    }
+                    sf = construir();
+                }
+            }
+        }
+        return sf;
+    }
+
+    private static SessionFactory construir() {
+        long inicio = System.nanoTime();
+        try {
+            // Create registry, with a HikariCP pool instead of Hibernate's built-in one
+            StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+            // -Dhibernate.xxx=... y -Descuela.xxx=... tienen prioridad sobre hibernate.cfg.xml (p.ej. otra base de datos en los benchmarks)
+            builder.applySettings(propiedadesDeSistema());
+            Map<String, Object> ajustes = builder.getSettings();
+            dataSource = PoolConexiones.crear(ajustes, metricas);
+            // -Descuela.arranque.instantanea=... tiene prioridad sobre hibernate.cfg.xml
+            Object fichero = System.getProperty(InstantaneaArranque.FICHERO, (String) ajustes.get(InstantaneaArranque.FICHERO));
+            instantanea = fichero == null || fichero.toString().isBlank() ? null : Path.of(fichero.toString().trim());
+            if (instantanea != null) {
+                // La misma URL con la que la guarda calentar()
+                Properties previa = InstantaneaArranque.cargar(instantanea, dataSource.getJdbcUrl());
+                if (previa != null) {
+                    builder.applySettings(previa);
+                }
+            }
+            Object limpiar = ajustes.get(MigracionesEsquema.LIMPIAR);
+            MigracionesEsquema.migrar(dataSource, limpiar != null && Boolean.parseBoolean(limpiar.toString().trim()));
+            replicas = Replicas.crear(ajustes, metricas);
+            builder.applySetting(AvailableSettings.CONNECTION_PROVIDER, new ProveedorConexiones(dataSource));
+            builder.applySetting(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, EstadisticasConsultas.class.getName());
+            builder.applySetting(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql ->
+                    EstadisticasConsultas.INSPECTOR.inspect(DetectorNMasUno.INSPECTOR.inspect(sql)));
+            registry = builder.build();
+
+            // Create MetadataSources
+            MetadataSources sources = new MetadataSources(registry);
+//            sources.addAnnotatedClass(Employee.class);
+
+            // Create Metadata
+            Metadata metadata = sources.getMetadataBuilder().build();
+
+            // Create SessionFactory
+            sessionFactory = metadata.getSessionFactoryBuilder().build();
+            MetricasCache.registrar(sessionFactory, metricas);
+            CacheColeccionesInversas.registrar(sessionFactory);
+            EstadisticasConsultas.registrar(sessionFactory, metricas, entero(ajustes, UMBRAL_LENTA_MS, 500));
+            DetectorNMasUno.registrar(sessionFactory, metricas, entero(ajustes, UMBRAL_N_MAS_1, 10));
+
+            double segundos = (System.nanoTime() - inicio) / 1_000_000_000.0;
+            metricas.registrarIndicador("hibernate_arranque_segundos", "Duración de la construcción de la SessionFactory",
+                    () -> segundos);
+            return sessionFactory;
+        } catch (RuntimeException e) {
+            errorInicio = e;
+            liberar();
+            throw new IllegalStateException("Hibernate no se pudo inicializar", e);
+        }
+    }
+
+    private static int entero(Map<String, Object> ajustes, String nombre, int porDefecto) {
+        Object valor = ajustes.get(nombre);
+        return valor == null ? porDefecto : Integer.parseInt(valor.toString().trim());
+    }
 
-                // Create MetadataSources
-                MetadataSources sources = new MetadataSources(registry);
-//                sources.addAnnotatedClass(Employee.class);
+    private static Properties propiedadesDeSistema() {
+        Properties propiedades = new Properties();
+        System.getProperties().stringPropertyNames().stream()
+                .filter(nombre -> nombre.startsWith("hibernate.") || nombre.startsWith("escuela."))
+                .forEach(nombre -> propiedades.put(nombre, System.getProperty(nombre)));
+        return propiedades;
+    }
 
-                // Create Metadata
-                Metadata metadata = sources.getMetadataBuilder().build();
+    /**
+     * Construye la SessionFactory si aún no existe. Pensado para llamarlo
+     * al arrancar la aplicación, antes de aceptar peticiones.
+     */
+    public static SessionFactory iniciar() {
+        return getSessionFactory();
+    }
 
-                // Create SessionFactory
-                sessionFactory = metadata.getSessionFactoryBuilder().build();
+    /** Igual que {@link #abrirSesionLectura(boolean)} admitiendo datos de una réplica con retraso. */
+    public static Session abrirSesionLectura() {
+        return abrirSesionLectura(true);
+    }
 
+    /**
+     * Abre una sesión para trabajo de sólo lectura (listados, búsquedas,
+     * {@code find}): todas sus entidades y consultas son de sólo lectura.
+     *
+     * <p>Si {@code toleraRetraso} es {@code true} y hay réplicas
+     * configuradas (ver {@link Replicas}), la sesión usa una conexión de
+     * una réplica, que puede ir algo por detrás de la primaria; si no, una
+     * conexión de la primaria (p.ej. para leer justo después de escribir).
+     * Las sesiones en réplica leen de la caché de segundo nivel pero no la
+     * rellenan, para no guardar en ella datos atrasados.
+     */
+    public static Session abrirSesionLectura(boolean toleraRetraso) {
+        SessionFactory sf = getSessionFactory();
+        Replicas r = replicas;
+        Session session;
+        if (!toleraRetraso || r == null || r.isEmpty()) {
+            session = sf.openSession();
+        } else {
+            Connection conexion;
+            try {
+                conexion = r.conexion();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Ninguna réplica de lectura disponible", e);
+            }
+            // La conexión la aporta la aplicación: se devuelve al pool al cerrar la sesión
+            session = sf.withOptions()
+                    .connection(conexion)
+                    .eventListeners(new BaseSessionEventListener() {
+                        @Override
+                        public void end() {
+                            try {
+                                conexion.close();
+                            } catch (SQLException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    })
+                    .openSession();
+            session.setCacheMode(CacheMode.GET);
+        }
+        session.setDefaultReadOnly(true);
+        return session;
+    }
 
-            } catch (Exception e) {
-                e.printStackTrace();
-                if (registry != null) {
-                    StandardServiceRegistryBuilder.destroy(registry);
+    /**
+     * Inicia Hibernate (si hace falta) y ejecuta una consulta trivial por
+     * entidad para abrir conexiones del pool y traducir las primeras
+     * consultas. Si hay fichero de instantánea configurado, la guarda para
+     * el siguiente arranque.
+     *
+     * <p>Las consultas frecuentes se declaran como {@link NamedQuery} en
+     * las entidades: Hibernate las valida y traduce al construir la
+     * SessionFactory ({@code hibernate.query.startup_check}). Además se
+     * ejecuta aquí una vez cada una, con todos los parámetros a
+     * {@code null} (no devuelven filas), para que la primera petición real
+     * ya encuentre generado su SQL y el código compilado por el JIT. El
+     * plan se guarda por HQL y tipo de resultado, así que se pide el tipo
+     * que usan los sitios de llamada, declarado junto a las consultas en
+     * el {@code TIPOS_CONSULTAS} de cada entidad.
+     */
+    public static void calentar() {
+        SessionFactory sf = getSessionFactory();
+        Map<String, Class<?>> tipos = new HashMap<>();
+        tipos.putAll(Curso.TIPOS_CONSULTAS);
+        tipos.putAll(Estudiante.TIPOS_CONSULTAS);
+        tipos.putAll(Profesor.TIPOS_CONSULTAS);
+        try (Session session = sf.openSession()) {
+            for (EntityType<?> entidad : sf.getMetamodel().getEntities()) {
+                session.createQuery("SELECT COUNT(x) FROM " + entidad.getName() + " x", Long.class).getSingleResult();
+            }
+            for (EntityType<?> entidad : sf.getMetamodel().getEntities()) {
+                for (NamedQuery consulta : entidad.getJavaType().getAnnotationsByType(NamedQuery.class)) {
+                    Class<?> tipo = tipos.get(consulta.name());
+                    if (tipo == null) {
+                        throw new IllegalStateException("Falta el tipo de resultado de la consulta " + consulta.name()
+                                + " en " + entidad.getName() + ".TIPOS_CONSULTAS");
+                    }
+                    Query<?> query = session.createNamedQuery(consulta.name(), tipo);
+                    for (Parameter<?> parametro : query.getParameters()) {
+                        query.setParameter(parametro.getName(), null);
+                    }
+                    query.setMaxResults(1).getResultList();
                 }
             }
         }
-        return sessionFactory;
+        // Bajo el cerrojo: un shutdown() a la vez cierra el pool y borra la instantánea configurada
+        synchronized (lock) {
+            if (sessionFactory != sf) {
+                return;
+            }
+            if (instantanea != null) {
+                InstantaneaArranque.guardar(instantanea, dataSource.getJdbcUrl(), dataSource,
+                        sf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect());
+            }
+            calentado = true;
+        }
+    }
+
+    /** {@code true} cuando la SessionFactory está construida y se ha calentado. */
+    public static boolean estaListo() {
+        SessionFactory sf = sessionFactory;
+        return sf != null && sf.isOpen() && calentado;
+    }
+
+    /**
+     * Métricas de la aplicación (pool de conexiones, etc.). Se pueden
+     * publicar con {@link com.example.metricas.ServidorMetricas}.
+     */
+    public static RegistroMetricas getMetricas() {
+        return metricas;
     }
 
     public static void shutdown() {
+        synchronized (lock) {
+            if (sessionFactory != null) {
+                sessionFactory.close();
+            }
+            liberar();
+            errorInicio = null;
+        }
+    }
+
+    private static void liberar() {
+        EstadisticasConsultas.eliminar();
         if (registry != null) {
             StandardServiceRegistryBuilder.destroy(registry);
         }
+        if (dataSource != null) {
+            PoolConexiones.cerrar(dataSource, metricas);
+        }
+        if (replicas != null) {
+            replicas.close();
+        }
+        replicas = null;
+        registry = null;
+        dataSource = null;
+        sessionFactory = null;
+        calentado = false;
     }
 }
@@ -0,0 +1,91 @@
+package com.example;
+
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.dialect.Dialect;
+import org.jboss.logging.Logger;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * Instantánea del entorno JDBC (dialecto y versión de la base de datos)
+ * que se reutiliza en los siguientes arranques.
+ *
+ * <p>Hibernate 6 no permite serializar el {@code Metadata} construido
+ * (depende del {@code BootstrapContext}, que no es serializable), así que
+ * lo que se guarda es lo que Hibernate tendría que averiguar abriendo una
+ * conexión durante el arranque. Con la instantánea aplicada se desactiva
+ * {@code hibernate.temp.use_jdbc_metadata_defaults} y el metamodelo se
+ * construye sin esperar a la base de datos.
+ */
+public class InstantaneaArranque {
+
+    /** Ruta del fichero de instantánea; si no se configura no se usa. */
+    public static final String FICHERO = "escuela.arranque.instantanea";
+
+    private static final Logger LOG = Logger.getLogger(InstantaneaArranque.class);
+
+    static final String USAR_METADATOS_JDBC = "hibernate.temp.use_jdbc_metadata_defaults";
+    private static final String URL = "url";
+
+    /**
+     * Ajustes a aplicar si la instantánea existe y se tomó contra la misma
+     * URL; {@code null} en otro caso.
+     */
+    public static Properties cargar(Path fichero, String url) {
+        if (!Files.isReadable(fichero)) {
+            return null;
+        }
+        Properties propiedades = new Properties();
+        try (Reader reader = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            propiedades.load(reader);
+        } catch (IOException e) {
+            LOG.warnf(e, "Instantánea de arranque %s ilegible, se ignora", fichero);
+            return null;
+        }
+        if (url == null || !url.trim().equals(propiedades.getProperty(URL))) {
+            return null;
+        }
+        propiedades.remove(URL);
+        propiedades.setProperty(USAR_METADATOS_JDBC, "false");
+        return propiedades;
+    }
+
+    public static void guardar(Path fichero, String url, DataSource dataSource, Dialect dialect) {
+        Properties propiedades = new Properties();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            propiedades.setProperty(URL, url);
+            propiedades.setProperty(JdbcSettings.DIALECT, dialect.getClass().getName());
+            propiedades.setProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_NAME, metaData.getDatabaseProductName());
+            propiedades.setProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_VERSION, metaData.getDatabaseProductVersion());
+            propiedades.setProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_MAJOR_VERSION,
+                    String.valueOf(metaData.getDatabaseMajorVersion()));
+            propiedades.setProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_MINOR_VERSION,
+                    String.valueOf(metaData.getDatabaseMinorVersion()));
+        } catch (SQLException e) {
+            LOG.warn("No se pudo leer el entorno JDBC para la instantánea", e);
+            return;
+        }
+        try {
+            if (fichero.getParent() != null) {
+                Files.createDirectories(fichero.getParent());
+            }
+            try (Writer writer = Files.newBufferedWriter(fichero, StandardCharsets.UTF_8)) {
+                propiedades.store(writer, "Instantánea de arranque de HibernateUtil");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir la instantánea " + fichero, e);
+        }
+    }
+}
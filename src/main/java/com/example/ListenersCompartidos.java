@@ -0,0 +1,81 @@
+package com.example;
+
+import com.example.model.Estudiante;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Listener único por SessionFactory para las clases que se pueden abrir
+ * varias veces sobre la misma ({@code IndiceMatriculas},
+ * {@code TotalesMatricula}, {@code IndiceTexto}, {@code Outbox}): Hibernate
+ * rechaza registrar dos veces la misma clase de listener, así que cada una
+ * registra una {@link EscuchaCompartida} que reparte los eventos entre sus
+ * instancias abiertas.
+ */
+public final class ListenersCompartidos {
+
+    private static final Map<SessionFactory, Map<Class<?>, EscuchaCompartida<?>>> REGISTRADOS = new WeakHashMap<>();
+
+    private ListenersCompartidos() {
+    }
+
+    /**
+     * El listener de clase {@code tipo} de la SessionFactory. La primera vez
+     * lo crea con {@code crear} y lo añade con {@code registrar} a los
+     * eventos que escuche.
+     */
+    public static synchronized <T extends EscuchaCompartida<?>> T obtener(
+            SessionFactory sessionFactory, Class<T> tipo, Supplier<T> crear,
+            BiConsumer<EventListenerRegistry, T> registrar) {
+        Map<Class<?>, EscuchaCompartida<?>> suyos = REGISTRADOS.computeIfAbsent(sessionFactory, k -> new HashMap<>());
+        EscuchaCompartida<?> existente = suyos.get(tipo);
+        if (existente != null) {
+            return tipo.cast(existente);
+        }
+        T listener = crear.get();
+        registrar.accept(sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class), listener);
+        suyos.put(tipo, listener);
+        return listener;
+    }
+
+    /** El listener de clase {@code tipo} si ya se ha registrado en la SessionFactory; si no, null. */
+    public static synchronized <T extends EscuchaCompartida<?>> T buscar(SessionFactory sessionFactory, Class<T> tipo) {
+        Map<Class<?>, EscuchaCompartida<?>> suyos = REGISTRADOS.get(sessionFactory);
+        return suyos == null ? null : tipo.cast(suyos.get(tipo));
+    }
+
+    /**
+     * Tras escrituras que no pasan por una {@code Session} (JDBC,
+     * {@code StatelessSession}) y que por tanto no llegan a los listeners,
+     * vuelve a leer de la base de datos los índices y totales abiertos sobre
+     * la SessionFactory. Puede tardar: cada uno se reconstruye entero.
+     */
+    public static void recalcular(SessionFactory sessionFactory) {
+        List<EscuchaCompartida<?>> escuchas;
+        synchronized (ListenersCompartidos.class) {
+            Map<Class<?>, EscuchaCompartida<?>> suyos = REGISTRADOS.get(sessionFactory);
+            escuchas = suyos == null ? List.of() : new ArrayList<>(suyos.values());
+        }
+        escuchas.forEach(EscuchaCompartida::recalcularAbiertas);
+    }
+
+    /**
+     * Si el evento es de {@code Estudiante.cursos}. Se mira la entidad dueña
+     * porque al recrear la colección aún no tiene rol asignado; basta
+     * porque Estudiante no tiene otra colección.
+     */
+    public static boolean esDeEstudiante(AbstractCollectionEvent event) {
+        return Estudiante.class.getName().equals(event.getAffectedOwnerEntityName());
+    }
+}
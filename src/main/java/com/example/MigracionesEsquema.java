@@ -0,0 +1,38 @@
+package com.example;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+
+import javax.sql.DataSource;
+
+/**
+ * Migraciones versionadas del esquema con Flyway, en
+ * {@code src/main/resources/db/migration} ({@code V<n>__descripcion.sql}).
+ * Se aplican al arrancar, antes de construir la SessionFactory, y
+ * Hibernate sólo valida el resultado ({@code hibernate.hbm2ddl.auto=validate}).
+ *
+ * <p>Un cambio de esquema es siempre un fichero nuevo: las migraciones ya
+ * aplicadas no se editan. Las bases de datos creadas antes con
+ * {@code hbm2ddl.auto=create} no tienen historial y se dan por versión 1.
+ */
+public class MigracionesEsquema {
+
+    /** Si es {@code true} se borra todo el esquema antes de migrar (sólo para tests). */
+    public static final String LIMPIAR = "escuela.esquema.limpiar";
+
+    static final String UBICACION = "classpath:db/migration";
+
+    public static MigrateResult migrar(DataSource dataSource, boolean limpiar) {
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations(UBICACION)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .cleanDisabled(!limpiar)
+                .load();
+        if (limpiar) {
+            flyway.clean();
+        }
+        return flyway.migrate();
+    }
+}
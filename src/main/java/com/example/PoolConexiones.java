@@ -0,0 +1,120 @@
+package com.example;
+
+import com.example.metricas.Histograma;
+import com.example.metricas.RegistroMetricas;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Crea el pool de conexiones HikariCP a partir de la configuración de
+ * Hibernate y publica sus métricas en un {@link RegistroMetricas}.
+ *
+ * <p>La URL, usuario, contraseña y driver se toman de
+ * {@code hibernate.connection.*}; cualquier propiedad
+ * {@code hibernate.hikari.<propiedad>} se pasa tal cual a
+ * {@link HikariConfig} (p.ej. {@code hibernate.hikari.maximumPoolSize}).
+ */
+public class PoolConexiones {
+
+    static final String PREFIJO_HIKARI = "hibernate.hikari.";
+
+    private static final List<String> INDICADORES = List.of("pool_conexiones_activas", "pool_conexiones_ociosas",
+            "pool_conexiones_pendientes", "pool_conexiones_total", "pool_conexiones_max");
+
+    public static HikariDataSource crear(Map<String, Object> ajustes, RegistroMetricas metricas) {
+        Properties propiedades = new Properties();
+        ajustes.forEach((clave, valor) -> {
+            if (clave.startsWith(PREFIJO_HIKARI) && valor != null) {
+                propiedades.setProperty(clave.substring(PREFIJO_HIKARI.length()), valor.toString().trim());
+            }
+        });
+
+        HikariConfig config = new HikariConfig(propiedades);
+        config.setJdbcUrl(ajuste(ajustes, "hibernate.connection.url"));
+        config.setUsername(ajuste(ajustes, "hibernate.connection.username"));
+        config.setPassword(ajuste(ajustes, "hibernate.connection.password"));
+        String driver = ajuste(ajustes, "hibernate.connection.driver_class");
+        if (driver != null) {
+            config.setDriverClassName(driver);
+        }
+        config.setMetricsTrackerFactory(new Metricas(metricas));
+        return new HikariDataSource(config);
+    }
+
+    /**
+     * Cierra el pool y quita sus indicadores {@code pool_conexiones_*}, que
+     * si no seguirían leyendo las estadísticas del pool cerrado. Los
+     * contadores e histogramas se quedan: un pool nuevo con el mismo nombre
+     * sigue acumulando en ellos.
+     */
+    public static void cerrar(HikariDataSource pool, RegistroMetricas metricas) {
+        pool.close();
+        for (String indicador : INDICADORES) {
+            metricas.eliminar(indicador, "pool", pool.getPoolName());
+        }
+    }
+
+    private static String ajuste(Map<String, Object> ajustes, String clave) {
+        Object valor = ajustes.get(clave);
+        return valor == null ? null : valor.toString().trim();
+    }
+
+    /**
+     * Indicadores de conexiones activas/ociosas/en espera y el histograma
+     * del tiempo que tarda un hilo en obtener una conexión.
+     */
+    static class Metricas implements MetricsTrackerFactory {
+        private final RegistroMetricas metricas;
+
+        Metricas(RegistroMetricas metricas) {
+            this.metricas = metricas;
+        }
+
+        @Override
+        public IMetricsTracker create(String pool, PoolStats stats) {
+            metricas.registrarIndicador("pool_conexiones_activas", "Conexiones en uso",
+                    stats::getActiveConnections, "pool", pool);
+            metricas.registrarIndicador("pool_conexiones_ociosas", "Conexiones libres en el pool",
+                    stats::getIdleConnections, "pool", pool);
+            metricas.registrarIndicador("pool_conexiones_pendientes", "Hilos esperando una conexión",
+                    stats::getPendingThreads, "pool", pool);
+            metricas.registrarIndicador("pool_conexiones_total", "Conexiones abiertas",
+                    stats::getTotalConnections, "pool", pool);
+            metricas.registrarIndicador("pool_conexiones_max", "Tamaño máximo del pool",
+                    stats::getMaxConnections, "pool", pool);
+
+            Histograma adquisicion = metricas.histograma("pool_adquisicion_segundos",
+                    "Tiempo de espera para obtener una conexión", "pool", pool);
+            Histograma uso = metricas.histograma("pool_uso_segundos",
+                    "Tiempo que una conexión permanece prestada", "pool", pool);
+            LongAdder timeouts = metricas.contador("pool_timeouts_total",
+                    "Peticiones de conexión que agotaron connectionTimeout", "pool", pool);
+
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long nanos) {
+                    adquisicion.registrarNanos(nanos);
+                }
+
+                @Override
+                public void recordConnectionUsageMillis(long millis) {
+                    uso.registrarNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeouts.increment();
+                }
+            };
+        }
+    }
+}
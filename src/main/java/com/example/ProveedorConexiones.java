@@ -0,0 +1,54 @@
+package com.example;
+
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+
+import javax.sql.DataSource;
+import java.io.Serial;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * {@link ConnectionProvider} que entrega a Hibernate las conexiones de un
+ * {@link DataSource} ya configurado (el pool de {@link PoolConexiones}).
+ */
+public class ProveedorConexiones implements ConnectionProvider {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final transient DataSource dataSource;
+
+    public ProveedorConexiones(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isInstance(this) || unwrapType.isInstance(dataSource);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return unwrapType.cast(this);
+        }
+        if (unwrapType.isInstance(dataSource)) {
+            return unwrapType.cast(dataSource);
+        }
+        throw new IllegalArgumentException("No se puede convertir a " + unwrapType.getName());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example;
+
+import com.example.metricas.RegistroMetricas;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pools de conexiones a las réplicas de lectura, configuradas con
+ * {@code escuela.replicas.urls} (URLs JDBC separadas por comas; mismo
+ * driver, usuario, contraseña y ajustes {@code hibernate.hikari.*} que la
+ * primaria). Sin réplicas configuradas todo va a la primaria.
+ *
+ * <p>Cada conexión se pide a una réplica elegida por turno
+ * ({@code round_robin}) o a la que tenga menos conexiones prestadas
+ * ({@code menos_conexiones}), según {@code escuela.replicas.balanceo}. Si
+ * la réplica elegida no da conexión se prueba con las demás.
+ */
+public class Replicas implements AutoCloseable {
+
+    /** URLs JDBC de las réplicas, separadas por comas. */
+    public static final String URLS = "escuela.replicas.urls";
+    /** {@code round_robin} (por defecto) o {@code menos_conexiones}. */
+    public static final String BALANCEO = "escuela.replicas.balanceo";
+
+    public enum Balanceo {ROUND_ROBIN, MENOS_CONEXIONES}
+
+    private final List<HikariDataSource> pools;
+    private final Balanceo balanceo;
+    private final RegistroMetricas metricas;
+    private final AtomicInteger turno = new AtomicInteger();
+
+    private Replicas(List<HikariDataSource> pools, Balanceo balanceo, RegistroMetricas metricas) {
+        this.pools = pools;
+        this.balanceo = balanceo;
+        this.metricas = metricas;
+    }
+
+    public static Replicas crear(Map<String, Object> ajustes, RegistroMetricas metricas) {
+        Object urls = ajustes.get(URLS);
+        Object tipo = ajustes.get(BALANCEO);
+        Balanceo balanceo = tipo == null || tipo.toString().isBlank() ? Balanceo.ROUND_ROBIN
+                : Balanceo.valueOf(tipo.toString().trim().toUpperCase(Locale.ROOT));
+        List<HikariDataSource> pools = new ArrayList<>();
+        if (urls != null && !urls.toString().isBlank()) {
+            Object nombre = ajustes.getOrDefault(PoolConexiones.PREFIJO_HIKARI + "poolName", "escuela");
+            List<String> lista = Arrays.stream(urls.toString().split(",")).map(String::trim)
+                    .filter(url -> !url.isEmpty()).toList();
+            try {
+                for (int i = 0; i < lista.size(); i++) {
+                    Map<String, Object> replica = new HashMap<>(ajustes);
+                    replica.put("hibernate.connection.url", lista.get(i));
+                    replica.put(PoolConexiones.PREFIJO_HIKARI + "poolName", nombre.toString().trim() + "-replica-" + (i + 1));
+                    pools.add(PoolConexiones.crear(replica, metricas));
+                }
+            } catch (RuntimeException e) {
+                pools.forEach(pool -> PoolConexiones.cerrar(pool, metricas));
+                throw e;
+            }
+        }
+        return new Replicas(pools, balanceo, metricas);
+    }
+
+    public boolean isEmpty() {
+        return pools.isEmpty();
+    }
+
+    /** Conexión de sólo lectura de una réplica. */
+    public Connection conexion() throws SQLException {
+        int primera = elegir();
+        SQLException error = null;
+        for (int i = 0; i < pools.size(); i++) {
+            try {
+                Connection conexion = pools.get((primera + i) % pools.size()).getConnection();
+                conexion.setReadOnly(true);
+                return conexion;
+            } catch (SQLException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        throw error != null ? error : new SQLException("No hay réplicas configuradas");
+    }
+
+    private int elegir() {
+        if (pools.size() <= 1) {
+            return 0;
+        }
+        if (balanceo == Balanceo.ROUND_ROBIN) {
+            return Math.floorMod(turno.getAndIncrement(), pools.size());
+        }
+        int mejor = 0;
+        int menos = Integer.MAX_VALUE;
+        for (int i = 0; i < pools.size(); i++) {
+            int activas = pools.get(i).getHikariPoolMXBean().getActiveConnections();
+            if (activas < menos) {
+                mejor = i;
+                menos = activas;
+            }
+        }
+        return mejor;
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(pool -> PoolConexiones.cerrar(pool, metricas));
+    }
+}
@@ -0,0 +1,93 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Vista en memoria de datos de la base de datos que se mantiene con los
+ * cambios de cada transacción confirmada ({@link #aplicar}) y se puede
+ * reconstruir entera sin parar las consultas ({@link #reconstruir}).
+ *
+ * <p>Mientras se reconstruye, las consultas y los cambios siguen usando
+ * el estado anterior; los cambios confirmados entretanto se guardan y se
+ * vuelven a aplicar sobre el nuevo antes de sustituir con él el anterior.
+ * Por eso cada cambio tiene que dejar el mismo resultado aunque se aplique
+ * dos veces: la lectura puede haberlo visto ya.
+ *
+ * @param <E> el estado; sólo se accede a él bajo el bloqueo de la vista
+ */
+public abstract class VistaIncremental<E> implements AutoCloseable {
+
+    private final Supplier<E> vacio;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private E estado;
+    // Cambios confirmados mientras reconstruir() lee la base de datos; null si no está reconstruyendo
+    private List<Consumer<E>> pendientes;
+
+    protected VistaIncremental(Supplier<E> vacio) {
+        this.vacio = vacio;
+        this.estado = vacio.get();
+    }
+
+    /** Rellena un estado vacío con {@code leer} y lo pone en lugar del actual. */
+    protected synchronized void reconstruir(Consumer<E> leer) {
+        lock.writeLock().lock();
+        pendientes = new ArrayList<>();
+        lock.writeLock().unlock();
+        E nuevo = vacio.get();
+        boolean leido = false;
+        try {
+            leer.accept(nuevo);
+            leido = true;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (leido) {
+                    pendientes.forEach(cambio -> cambio.accept(nuevo));
+                    estado = nuevo;
+                }
+                pendientes = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    protected <R> R consultar(Function<E, R> consulta) {
+        lock.readLock().lock();
+        try {
+            return consulta.apply(estado);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Aplica un cambio confirmado (y lo guarda si hay una reconstrucción en curso). */
+    protected void aplicar(Consumer<E> cambio) {
+        lock.writeLock().lock();
+        try {
+            cambio.accept(estado);
+            if (pendientes != null) {
+                pendientes.add(cambio);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Libera el estado; las subclases dejan antes de recibir cambios. */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            estado = vacio.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
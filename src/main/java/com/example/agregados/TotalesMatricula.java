@@ -0,0 +1,356 @@
+package com.example.agregados;
+
+import com.example.EscuchaCompartida;
+import com.example.ListenersCompartidos;
+import com.example.VistaIncremental;
+import com.example.model.Curso;
+import com.example.model.Matricula;
+import com.example.model.Profesor;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Totales de matrícula mantenidos en memoria: créditos de cada estudiante
+ * (suma de los créditos de sus cursos) y carga de cada profesor (cursos,
+ * créditos impartidos, estudiantes distintos y matrículas). Leer un total
+ * es una búsqueda en un mapa, sin recorrer {@code getCursos()}.
+ *
+ * <p>Se construye completo con {@link #cargar(SessionFactory)} y se
+ * mantiene con listeners de Hibernate: altas, cambios y bajas de cursos,
+ * profesores y {@link Matricula}s y cambios de {@code Estudiante.cursos}. Igual que en
+ * {@link com.example.indice.IndiceMatriculas}, cada cambio se aplica al
+ * confirmarse su transacción, y las escrituras que no pasan por una
+ * {@code Session} requieren {@link #reconstruir()}.
+ */
+public class TotalesMatricula extends VistaIncremental<TotalesMatricula.Estado> {
+
+    private static final int TAMANO_FETCH = 1_000;
+
+    /**
+     * Carga de un profesor: {@code estudiantes} cuenta cada estudiante una
+     * vez aunque esté en varios de sus cursos; {@code matriculas}, una vez
+     * por curso.
+     */
+    public record CargaProfesor(long cursos, double creditos, long estudiantes, long matriculas) {
+    }
+
+    private static class DatosCurso {
+        double creditos;
+        Long profesorId;
+        final Roaring64NavigableMap estudiantes = new Roaring64NavigableMap();
+    }
+
+    private static class DatosProfesor {
+        long cursos;
+        double creditos;
+        long matriculas;
+        // En cuántos cursos del profesor está cada estudiante
+        final Map<Long, Integer> estudiantes = new HashMap<>();
+
+        void anadirEstudiante(long estudianteId) {
+            estudiantes.merge(estudianteId, 1, Integer::sum);
+            matriculas++;
+        }
+
+        void quitarEstudiante(long estudianteId) {
+            estudiantes.computeIfPresent(estudianteId, (id, veces) -> veces == 1 ? null : veces - 1);
+            matriculas--;
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+    private Escucha escucha;
+
+    private TotalesMatricula(SessionFactory sessionFactory) {
+        super(Estado::new);
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Crea los totales, los calcula desde la base de datos y registra sus
+     * listeners en la SessionFactory.
+     */
+    public static TotalesMatricula cargar(SessionFactory sessionFactory) {
+        TotalesMatricula totales = new TotalesMatricula(sessionFactory);
+        totales.registrarListeners();
+        totales.reconstruir();
+        return totales;
+    }
+
+    /**
+     * Recalcula todos los totales desde la base de datos (para reparar
+     * desviaciones) sin parar las consultas ni perder los cambios
+     * confirmados mientras tanto (ver {@link VistaIncremental}).
+     */
+    public void reconstruir() {
+        reconstruir(() -> {
+        });
+    }
+
+    // trasLeerCursos se ejecuta entre la lectura de los cursos y la de las matrículas (para los tests)
+    void reconstruir(Runnable trasLeerCursos) {
+        reconstruir(nuevo -> leer(nuevo, trasLeerCursos));
+    }
+
+    private void leer(Estado nuevo, Runnable trasLeerCursos) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.createSelectionQuery("SELECT p.id FROM Profesor p", Long.class).getResultList()
+                    .forEach(profesorId -> nuevo.profesores.put(profesorId, new DatosProfesor()));
+            session.createSelectionQuery("SELECT c.id, c.creditos, c.profesor.id FROM Curso c", Object[].class)
+                    .getResultList()
+                    .forEach(fila -> nuevo.guardarCurso((Long) fila[0], (Double) fila[1], (Long) fila[2]));
+            trasLeerCursos.run();
+            try (ScrollableResults<Object[]> matriculas = session.createSelectionQuery(
+                            "SELECT e.id, c.id FROM Estudiante e JOIN e.cursos c", Object[].class)
+                    .setFetchSize(TAMANO_FETCH)
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                while (matriculas.next()) {
+                    Object[] fila = matriculas.get();
+                    nuevo.matricular((Long) fila[0], (Long) fila[1]);
+                }
+            }
+        }
+    }
+
+    /** Suma de los créditos de los cursos del estudiante (0 si no tiene ninguno). */
+    public double creditosDeEstudiante(long estudianteId) {
+        return consultar(estado -> estado.creditosPorEstudiante.getOrDefault(estudianteId, 0.0));
+    }
+
+    public CargaProfesor cargaDeProfesor(long profesorId) {
+        return consultar(estado -> {
+            DatosProfesor datos = estado.profesores.get(profesorId);
+            return datos == null ? new CargaProfesor(0, 0, 0, 0)
+                    : new CargaProfesor(datos.cursos, datos.creditos, datos.estudiantes.size(), datos.matriculas);
+        });
+    }
+
+    /** Deja de aplicar cambios y libera la memoria. */
+    @Override
+    public void close() {
+        escucha.quitar(this);
+        super.close();
+    }
+
+    // Los totales en sí; cada cambio deja el mismo resultado aunque se aplique dos veces
+    static class Estado {
+
+        final Map<Long, DatosCurso> cursos = new HashMap<>();
+        final Map<Long, DatosProfesor> profesores = new HashMap<>();
+        final Map<Long, Roaring64NavigableMap> cursosPorEstudiante = new HashMap<>();
+        final Map<Long, Double> creditosPorEstudiante = new HashMap<>();
+
+        void guardarCurso(long cursoId, double creditos, Long profesorId) {
+            DatosCurso datos = cursos.computeIfAbsent(cursoId, k -> new DatosCurso());
+            DatosProfesor anterior = datos.profesorId == null ? null : profesores.get(datos.profesorId);
+            if (anterior != null) {
+                anterior.cursos--;
+                anterior.creditos -= datos.creditos;
+            }
+            double diferencia = creditos - datos.creditos;
+            if (diferencia != 0) {
+                datos.estudiantes.forEach(
+                        estudianteId -> creditosPorEstudiante.merge(estudianteId, diferencia, Double::sum));
+            }
+            DatosProfesor nuevo = profesorId == null ? null
+                    : profesores.computeIfAbsent(profesorId, k -> new DatosProfesor());
+            if (anterior != nuevo) {
+                datos.estudiantes.forEach(estudianteId -> {
+                    if (anterior != null) {
+                        anterior.quitarEstudiante(estudianteId);
+                    }
+                    if (nuevo != null) {
+                        nuevo.anadirEstudiante(estudianteId);
+                    }
+                });
+            }
+            datos.creditos = creditos;
+            datos.profesorId = profesorId;
+            if (nuevo != null) {
+                nuevo.cursos++;
+                nuevo.creditos += creditos;
+            }
+        }
+
+        void borrarCurso(long cursoId) {
+            DatosCurso datos = cursos.get(cursoId);
+            if (datos == null) {
+                return;
+            }
+            for (long estudianteId : datos.estudiantes.toArray()) {
+                desmatricular(estudianteId, cursoId);
+            }
+            guardarCurso(cursoId, 0, null);
+            cursos.remove(cursoId);
+        }
+
+        void actualizarCursos(long estudianteId, Roaring64NavigableMap nuevos) {
+            Roaring64NavigableMap anteriores =
+                    cursosPorEstudiante.getOrDefault(estudianteId, new Roaring64NavigableMap());
+            Roaring64NavigableMap altas = new Roaring64NavigableMap();
+            altas.or(nuevos);
+            altas.andNot(anteriores);
+            Roaring64NavigableMap bajas = new Roaring64NavigableMap();
+            bajas.or(anteriores);
+            bajas.andNot(nuevos);
+            bajas.forEach(cursoId -> desmatricular(estudianteId, cursoId));
+            altas.forEach(cursoId -> matricular(estudianteId, cursoId));
+        }
+
+        // Un curso desconocido (creado sin pasar por una Session) cuenta con 0 créditos hasta reconstruir()
+        void matricular(long estudianteId, long cursoId) {
+            DatosCurso curso = cursos.computeIfAbsent(cursoId, k -> new DatosCurso());
+            if (curso.estudiantes.contains(estudianteId)) {
+                return;
+            }
+            curso.estudiantes.addLong(estudianteId);
+            cursosPorEstudiante.computeIfAbsent(estudianteId, k -> new Roaring64NavigableMap()).addLong(cursoId);
+            creditosPorEstudiante.merge(estudianteId, curso.creditos, Double::sum);
+            if (curso.profesorId != null) {
+                profesores.computeIfAbsent(curso.profesorId, k -> new DatosProfesor()).anadirEstudiante(estudianteId);
+            }
+        }
+
+        void desmatricular(long estudianteId, long cursoId) {
+            DatosCurso curso = cursos.get(cursoId);
+            Roaring64NavigableMap suyos = cursosPorEstudiante.get(estudianteId);
+            if (curso == null || suyos == null || !curso.estudiantes.contains(estudianteId)) {
+                return;
+            }
+            curso.estudiantes.removeLong(estudianteId);
+            suyos.removeLong(cursoId);
+            if (suyos.isEmpty()) {
+                cursosPorEstudiante.remove(estudianteId);
+                creditosPorEstudiante.remove(estudianteId);
+            } else {
+                creditosPorEstudiante.merge(estudianteId, -curso.creditos, Double::sum);
+            }
+            DatosProfesor profesor = curso.profesorId == null ? null : profesores.get(curso.profesorId);
+            if (profesor != null) {
+                profesor.quitarEstudiante(estudianteId);
+            }
+        }
+    }
+
+    // Un solo listener por SessionFactory que reparte a los totales abiertos
+    private void registrarListeners() {
+        escucha = ListenersCompartidos.obtener(sessionFactory, Escucha.class, Escucha::new, (registro, nueva) -> {
+            registro.appendListeners(EventType.POST_INSERT, nueva);
+            registro.appendListeners(EventType.POST_UPDATE, nueva);
+            registro.appendListeners(EventType.POST_DELETE, nueva);
+            registro.appendListeners(EventType.POST_COLLECTION_RECREATE, nueva);
+            registro.appendListeners(EventType.POST_COLLECTION_UPDATE, nueva);
+            registro.appendListeners(EventType.POST_COLLECTION_REMOVE, nueva);
+        });
+        escucha.anadir(this);
+    }
+
+    private static class Escucha extends EscuchaCompartida<TotalesMatricula>
+            implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+            PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            guardar(event.getEntity(), event.getSession());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            guardar(event.getEntity(), event.getSession());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Curso) {
+                long cursoId = (Long) event.getId();
+                aplicar(event.getSession(), e -> e.borrarCurso(cursoId));
+            } else if (event.getEntity() instanceof Profesor) {
+                long profesorId = (Long) event.getId();
+                aplicar(event.getSession(), e -> e.profesores.remove(profesorId));
+            } else if (event.getEntity() instanceof Matricula matricula) {
+                long estudianteId = matricula.getEstudiante().getId();
+                long cursoId = matricula.getCurso().getId();
+                aplicar(event.getSession(), e -> e.desmatricular(estudianteId, cursoId));
+            }
+        }
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            cambiarCursos(event, false);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            cambiarCursos(event, false);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            cambiarCursos(event, true);
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        @Override
+        protected void recalcular(TotalesMatricula totales) {
+            totales.reconstruir();
+        }
+
+        private void guardar(Object entidad, EventSource session) {
+            if (entidad instanceof Curso curso) {
+                long cursoId = curso.getId();
+                double creditos = curso.getCreditos();
+                Long profesorId = curso.getProfesor() == null ? null : curso.getProfesor().getId();
+                aplicar(session, e -> e.guardarCurso(cursoId, creditos, profesorId));
+            } else if (entidad instanceof Profesor profesor) {
+                long profesorId = profesor.getId();
+                aplicar(session, e -> e.profesores.computeIfAbsent(profesorId, k -> new DatosProfesor()));
+            } else if (entidad instanceof Matricula matricula) {
+                long estudianteId = matricula.getEstudiante().getId();
+                long cursoId = matricula.getCurso().getId();
+                aplicar(session, e -> e.matricular(estudianteId, cursoId));
+            }
+        }
+
+        private void cambiarCursos(AbstractCollectionEvent event, boolean eliminada) {
+            if (!hayAbiertas() || !ListenersCompartidos.esDeEstudiante(event)) {
+                return;
+            }
+            long estudianteId = (Long) event.getAffectedOwnerIdOrNull();
+            Roaring64NavigableMap cursos = cursos(event, eliminada);
+            aplicar(event.getSession(), e -> e.actualizarCursos(estudianteId, cursos));
+        }
+
+        // Se aplica sólo si la transacción se confirma
+        private void aplicar(EventSource session, Consumer<Estado> cambio) {
+            programar(session, totales -> totales.aplicar(cambio));
+        }
+    }
+}
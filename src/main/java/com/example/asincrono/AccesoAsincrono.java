@@ -0,0 +1,207 @@
+package com.example.asincrono;
+
+import com.example.consultas.CursoResumen;
+import com.example.consultas.EstudianteResumen;
+import com.example.consultas.ProfesorResumen;
+import com.example.consultas.Resumenes;
+import com.example.matriculas.Matriculas;
+import com.example.metricas.RegistroMetricas;
+import com.example.transacciones.EjecutorTransaccional;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Acceso a datos que devuelve {@link CompletableFuture}s: cada trabajo se
+ * ejecuta en su propio hilo (virtual, con {@link #crear}) con su propia
+ * {@code Session}, así que el llamante no se bloquea y puede lanzar muchos
+ * a la vez.
+ *
+ * <p>Como mucho {@code permisos} trabajos usan la base de datos a la vez
+ * (por defecto, el tamaño del pool de conexiones); el resto espera su
+ * turno en un {@link Semaphore} sin ocupar conexión ni hilo de plataforma.
+ * Un trabajo no debe esperar el resultado de otro de este mismo acceso:
+ * con todos los permisos ocupados se bloquearían entre sí.
+ *
+ * <p>Las escrituras van por un {@link EjecutorTransaccional}, con sus
+ * reintentos ante conflictos de versión.
+ */
+public class AccesoAsincrono implements AutoCloseable {
+
+    /** Trabajos simultáneos; si no se indica, {@code hibernate.hikari.maximumPoolSize}. */
+    public static final String PERMISOS = "escuela.asincrono.permisos";
+
+    private static final int TAMANO_POOL_HIKARI = 10;
+
+    /** Estudiante con sus cursos y los profesores de esos cursos. */
+    public record FichaEstudiante(EstudianteResumen estudiante, List<CursoResumen> cursos,
+                                  List<ProfesorResumen> profesores) {
+    }
+
+    private final SessionFactory sessionFactory;
+    private final ExecutorService hilos;
+    private final Semaphore permisos;
+    private final int totalPermisos;
+    private final EjecutorTransaccional escrituras;
+    private final RegistroMetricas metricas;
+
+    /**
+     * @param hilos ejecutor de los trabajos; pasa a ser de este acceso, que
+     *              lo cierra en {@link #close()}
+     */
+    public AccesoAsincrono(SessionFactory sessionFactory, ExecutorService hilos, int permisos,
+                           RegistroMetricas metricas) {
+        if (permisos < 1) {
+            throw new IllegalArgumentException("Hace falta al menos un permiso: " + permisos);
+        }
+        this.sessionFactory = sessionFactory;
+        this.hilos = hilos;
+        this.permisos = new Semaphore(permisos, true);
+        this.totalPermisos = permisos;
+        this.escrituras = new EjecutorTransaccional(sessionFactory, metricas);
+        this.metricas = metricas;
+        metricas.registrarIndicador("asincrono_trabajos_activos", "Trabajos usando la base de datos",
+                () -> totalPermisos - this.permisos.availablePermits());
+        metricas.registrarIndicador("asincrono_trabajos_en_espera", "Trabajos esperando un permiso",
+                this.permisos::getQueueLength);
+    }
+
+    /** Un hilo virtual por trabajo y tantos permisos como conexiones tiene el pool. */
+    public static AccesoAsincrono crear(SessionFactory sessionFactory, RegistroMetricas metricas) {
+        Object permisos = sessionFactory.getProperties().get(PERMISOS);
+        if (permisos == null) {
+            permisos = sessionFactory.getProperties().getOrDefault("hibernate.hikari.maximumPoolSize",
+                    TAMANO_POOL_HIKARI);
+        }
+        return new AccesoAsincrono(sessionFactory, Executors.newVirtualThreadPerTaskExecutor(),
+                Integer.parseInt(permisos.toString().trim()), metricas);
+    }
+
+    /** Ejecuta el trabajo en una sesión de sólo lectura. */
+    public <T> CompletableFuture<T> leer(Function<Session, T> trabajo) {
+        return enviar(() -> {
+            try (Session session = sessionFactory.openSession()) {
+                session.setDefaultReadOnly(true);
+                return trabajo.apply(session);
+            }
+        });
+    }
+
+    /** Ejecuta el trabajo en una transacción, repitiéndolo si choca con otra (ver {@link EjecutorTransaccional}). */
+    public <T> CompletableFuture<T> escribir(Function<Session, T> trabajo) {
+        return enviar(() -> escrituras.ejecutar(trabajo));
+    }
+
+    public CompletableFuture<Optional<EstudianteResumen>> estudiante(long estudianteId) {
+        return leer(session -> Resumenes.estudiante(session, estudianteId));
+    }
+
+    public CompletableFuture<List<CursoResumen>> cursos() {
+        return leer(Resumenes::cursos);
+    }
+
+    public CompletableFuture<List<EstudianteResumen>> estudiantesEnCurso(long cursoId) {
+        return leer(session -> Resumenes.estudiantesEnCurso(session, cursoId));
+    }
+
+    public CompletableFuture<Void> matricular(long estudianteId, long cursoId) {
+        return escribir(session -> {
+            Matriculas.matricular(session, estudianteId, cursoId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Boolean> desmatricular(long estudianteId, long cursoId) {
+        return escribir(session -> Matriculas.desmatricular(session, estudianteId, cursoId));
+    }
+
+    /**
+     * Carga a la vez, en tres sesiones, el estudiante, sus cursos y sus
+     * profesores. Si una de las tres falla, las otras se cancelan y la
+     * ficha falla con ese error; vacía si el estudiante no existe.
+     */
+    public CompletableFuture<Optional<FichaEstudiante>> fichaEstudiante(long estudianteId) {
+        CompletableFuture<Optional<EstudianteResumen>> estudiante = estudiante(estudianteId);
+        CompletableFuture<List<CursoResumen>> cursos = leer(
+                session -> Resumenes.cursosDeEstudiante(session, estudianteId));
+        CompletableFuture<List<ProfesorResumen>> profesores = leer(
+                session -> Resumenes.profesoresDeEstudiante(session, estudianteId));
+        return todos(estudiante, cursos, profesores).thenApply(nada -> estudiante.join()
+                .map(e -> new FichaEstudiante(e, cursos.join(), profesores.join())));
+    }
+
+    /**
+     * Termina cuando terminan todos o en cuanto uno falla; en ese caso
+     * cancela (interrumpiendo su hilo) los que sigan en marcha.
+     */
+    public static CompletableFuture<Void> todos(CompletableFuture<?>... tareas) {
+        CompletableFuture<Void> resultado = CompletableFuture.allOf(tareas);
+        AtomicBoolean fallado = new AtomicBoolean();
+        for (CompletableFuture<?> tarea : tareas) {
+            tarea.whenComplete((valor, error) -> {
+                // Se cancela antes de completar, para que quien espera el resultado ya no vea ninguna en marcha
+                if (error != null && fallado.compareAndSet(false, true)) {
+                    for (CompletableFuture<?> otra : tareas) {
+                        otra.cancel(true);
+                    }
+                    resultado.completeExceptionally(error);
+                }
+            });
+        }
+        return resultado;
+    }
+
+    // El permiso se pide ya en el hilo del trabajo: esperar no bloquea al llamante
+    private <T> CompletableFuture<T> enviar(Callable<T> trabajo) {
+        CompletableFuture<T> resultado = new CompletableFuture<>();
+        Future<?> tarea = hilos.submit(() -> {
+            try {
+                permisos.acquire();
+            } catch (InterruptedException e) {
+                resultado.completeExceptionally(e);
+                return;
+            }
+            try {
+                resultado.complete(trabajo.call());
+            } catch (Throwable e) {
+                resultado.completeExceptionally(e);
+            } finally {
+                permisos.release();
+            }
+        });
+        // CompletableFuture.cancel no interrumpe: se interrumpe el hilo del trabajo
+        resultado.whenComplete((valor, error) -> {
+            if (resultado.isCancelled()) {
+                tarea.cancel(true);
+            }
+        });
+        return resultado;
+    }
+
+    /** Deja de aceptar trabajos y espera a que terminen los que están en marcha (salvo los cancelados). */
+    @Override
+    public void close() {
+        hilos.shutdown();
+        try {
+            if (!hilos.awaitTermination(30, TimeUnit.SECONDS)) {
+                hilos.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            hilos.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        metricas.eliminar("asincrono_trabajos_activos");
+        metricas.eliminar("asincrono_trabajos_en_espera");
+    }
+}
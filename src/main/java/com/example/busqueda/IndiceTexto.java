@@ -0,0 +1,471 @@
+package com.example.busqueda;
+
+import com.example.EscuchaCompartida;
+import com.example.ListenersCompartidos;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.util.CharTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Índice de texto completo (Lucene, en memoria) sobre el nombre y el email
+ * de estudiantes y profesores, para el buscador de administración en lugar
+ * de {@code LIKE '%texto%'}, que recorre la tabla entera.
+ *
+ * <p>Nombres y emails se parten en palabras (letras y dígitos), en
+ * minúsculas y sin acentos. Cada palabra buscada tiene que aparecer en el
+ * nombre o en el email, completa, como prefijo o con alguna errata; los
+ * resultados se ordenan por relevancia (una palabra exacta puntúa más que
+ * un prefijo y este más que una errata) y devuelven tipo e id.
+ *
+ * <p>Se carga con {@link #abrir(SessionFactory)} y se mantiene con
+ * listeners de Hibernate sobre las altas, cambios y bajas de
+ * {@link Estudiante} y {@link Profesor}, aplicados al confirmarse la
+ * transacción. Igual que en {@link com.example.indice.IndiceMatriculas},
+ * las escrituras que no pasan por una {@code Session} requieren
+ * {@link #reindexar(int)}.
+ *
+ * <p>Cada documento guarda la {@code @Version} de la entidad y no se
+ * sustituye por otro más antiguo: un lote del reindexado leído antes de un
+ * cambio ya aplicado por los listeners no lo deshace. Las bajas dejan una
+ * marca (la entidad no puede volver) que se descarta al terminar el
+ * reindexado en curso, cuando ya ningún lote puede traer la fila borrada.
+ *
+ * <p>Aplicar un cambio no reabre el buscador: lo hace un
+ * {@link ControlledRealTimeReopenThread} como mucho cada
+ * {@value #REAPERTURA_MAXIMA_SEG} s, o antes si una búsqueda lo espera.
+ * Cada búsqueda espera al número de secuencia del último cambio aplicado,
+ * así que ve todo lo confirmado antes de empezar.
+ */
+public class IndiceTexto implements AutoCloseable {
+
+    /** Una entidad encontrada; {@code tipo} es {@code Estudiante.class} o {@code Profesor.class}. */
+    public record Resultado(Class<?> tipo, long id, float puntuacion) {
+    }
+
+    private static final String CLAVE = "clave";
+    private static final String TIPO = "tipo";
+    private static final String ID = "id";
+    private static final String NOMBRE = "nombre";
+    private static final String EMAIL = "email";
+    private static final String GENERACION = "generacion";
+    private static final String VERSION = "version";
+    private static final long BORRADA = Long.MAX_VALUE;
+    private static final List<Class<?>> TIPOS = List.of(Estudiante.class, Profesor.class);
+    private static final int TAMANO_LOTE = 1_000;
+    private static final double REAPERTURA_MAXIMA_SEG = 1.0;
+    private static final double REAPERTURA_MINIMA_SEG = 0.025;
+
+    private static final Analyzer ANALIZADOR = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String campo) {
+            Tokenizer palabras = CharTokenizer.fromTokenCharPredicate(Character::isLetterOrDigit);
+            return new TokenStreamComponents(palabras, new ASCIIFoldingFilter(new LowerCaseFilter(palabras)));
+        }
+    };
+
+    private final SessionFactory sessionFactory;
+    private final Directory directorio;
+    private final IndexWriter escritor;
+    private final SearcherManager buscadores;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reapertura;
+    // Número de secuencia de Lucene del último documento escrito o borrado
+    private final AtomicLong ultimaSecuencia = new AtomicLong();
+    private final LongAdder reaperturas = new LongAdder();
+    // Los documentos de generaciones anteriores a un reindexado se borran al terminar
+    private final AtomicLong generacion = new AtomicLong();
+    // Versión indexada de cada clave ({@value #BORRADA} para las bajas); se comprueba y escribe con compute
+    private final Map<String, Long> versiones = new ConcurrentHashMap<>();
+    private final AtomicInteger reindexados = new AtomicInteger();
+    private Escucha escucha;
+
+    private IndiceTexto(SessionFactory sessionFactory) throws IOException {
+        this.sessionFactory = sessionFactory;
+        this.directorio = new ByteBuffersDirectory();
+        this.escritor = new IndexWriter(directorio, new IndexWriterConfig(ANALIZADOR));
+        this.buscadores = new SearcherManager(escritor, null);
+        this.buscadores.addListener(new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+            }
+
+            @Override
+            public void afterRefresh(boolean reabierto) {
+                if (reabierto) {
+                    reaperturas.increment();
+                }
+            }
+        });
+        this.reapertura = new ControlledRealTimeReopenThread<>(escritor, buscadores,
+                REAPERTURA_MAXIMA_SEG, REAPERTURA_MINIMA_SEG);
+        reapertura.setName("indice-texto-reapertura");
+        reapertura.setDaemon(true);
+        reapertura.start();
+    }
+
+    /**
+     * Crea el índice, registra sus listeners en la SessionFactory y lo
+     * rellena con {@link #reindexar(int)} usando un hilo por procesador.
+     */
+    public static IndiceTexto abrir(SessionFactory sessionFactory) {
+        IndiceTexto indice;
+        try {
+            indice = new IndiceTexto(sessionFactory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        indice.registrarListeners();
+        indice.reindexar(Runtime.getRuntime().availableProcessors());
+        return indice;
+    }
+
+    /** Busca en estudiantes y profesores. */
+    public List<Resultado> buscar(String texto, int maximo) {
+        return buscar(null, texto, maximo);
+    }
+
+    /** Busca sólo entre las entidades de {@code tipo} ({@code null} para todas). */
+    public List<Resultado> buscar(Class<?> tipo, String texto, int maximo) {
+        List<String> palabras = palabras(texto);
+        List<Resultado> resultados = new ArrayList<>();
+        if (palabras.isEmpty()) {
+            return resultados;
+        }
+        try {
+            reapertura.waitForGeneration(ultimaSecuencia.get());
+            IndexSearcher buscador = buscadores.acquire();
+            try {
+                StoredFields campos = buscador.storedFields();
+                for (ScoreDoc encontrado : buscador.search(consulta(tipo, palabras), maximo).scoreDocs) {
+                    Document documento = campos.document(encontrado.doc);
+                    resultados.add(new Resultado(tipo(documento.get(TIPO)),
+                            documento.getField(ID).numericValue().longValue(), encontrado.score));
+                }
+            } finally {
+                buscadores.release(buscador);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Búsqueda interrumpida", e);
+        }
+        return resultados;
+    }
+
+    /**
+     * Vuelve a indexar todos los estudiantes y profesores leyéndolos en
+     * lotes de {@value #TAMANO_LOTE} ids con {@code hilos} hilos, cada uno
+     * con su propia StatelessSession. Mientras dura, las búsquedas siguen
+     * viendo el índice anterior; al terminar se borran los documentos de
+     * entidades que ya no existen. Devuelve el número de entidades indexadas.
+     */
+    public long reindexar(int hilos) {
+        reindexados.incrementAndGet();
+        long actual = generacion.incrementAndGet();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Future<Integer>> lotes = new ArrayList<>();
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                for (Class<?> tipo : TIPOS) {
+                    Object[] rango = session.createSelectionQuery(
+                            "SELECT MIN(x.id), MAX(x.id) FROM " + tipo.getSimpleName() + " x", Object[].class)
+                            .getSingleResult();
+                    if (rango[0] == null) {
+                        continue;
+                    }
+                    for (long desde = (Long) rango[0]; desde <= (Long) rango[1]; desde += TAMANO_LOTE) {
+                        long inicio = desde;
+                        lotes.add(ejecutor.submit(() -> indexarLote(tipo, inicio, inicio + TAMANO_LOTE - 1, actual)));
+                    }
+                }
+            }
+            long indexadas = 0;
+            for (Future<Integer> lote : lotes) {
+                indexadas += lote.get();
+            }
+            anotar(escritor.deleteDocuments(LongPoint.newRangeQuery(GENERACION, Long.MIN_VALUE, actual - 1)));
+            escritor.commit();
+            reapertura.waitForGeneration(ultimaSecuencia.get());
+            return indexadas;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Reindexado interrumpido", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al reindexar", e.getCause());
+        } finally {
+            ejecutor.shutdownNow();
+            if (reindexados.decrementAndGet() == 0) {
+                versiones.values().removeIf(version -> version == BORRADA);
+            }
+        }
+    }
+
+    private int indexarLote(Class<?> tipo, long desde, long hasta, long generacionLote) {
+        List<Object[]> filas;
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            filas = session.createSelectionQuery("SELECT x.id, x.nombre, x.email, x.version FROM "
+                            + tipo.getSimpleName() + " x WHERE x.id BETWEEN :desde AND :hasta", Object[].class)
+                    .setParameter("desde", desde)
+                    .setParameter("hasta", hasta)
+                    .getResultList();
+        }
+        for (Object[] fila : filas) {
+            escribir(tipo, (Long) fila[0], (String) fila[1], (String) fila[2], (Long) fila[3], () -> generacionLote);
+        }
+        return filas.size();
+    }
+
+    /** Deja de aplicar cambios y libera el índice. */
+    @Override
+    public void close() {
+        escucha.quitar(this);
+        try {
+            reapertura.close();
+            buscadores.close();
+            escritor.close();
+            directorio.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Escribe el documento salvo que ya haya uno de una versión posterior o
+     * la entidad se haya borrado. Una versión igual se reescribe para que
+     * pase a la generación del reindexado en curso; la generación se lee
+     * dentro del bloqueo de la clave para que un lote no la adelante.
+     */
+    private void escribir(Class<?> tipo, long id, String nombre, String email, long version,
+                  LongSupplier generacionDocumento) {
+        versiones.compute(clave(tipo, id), (clave, indexada) -> {
+            if (indexada != null && indexada > version) {
+                return indexada;
+            }
+            try {
+                guardar(tipo, id, nombre, email, version, generacionDocumento.getAsLong());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return version;
+        });
+    }
+
+    private void borrar(Class<?> tipo, long id) {
+        versiones.compute(clave(tipo, id), (clave, indexada) -> {
+            try {
+                anotar(escritor.deleteDocuments(new Term(CLAVE, clave)));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return BORRADA;
+        });
+    }
+
+    private void guardar(Class<?> tipo, long id, String nombre, String email, long version,
+                         long generacionDocumento) throws IOException {
+        Document documento = new Document();
+        documento.add(new StringField(CLAVE, clave(tipo, id), Field.Store.NO));
+        documento.add(new StringField(TIPO, tipo.getSimpleName(), Field.Store.YES));
+        documento.add(new StoredField(ID, id));
+        documento.add(new StoredField(VERSION, version));
+        documento.add(new LongPoint(GENERACION, generacionDocumento));
+        if (nombre != null) {
+            documento.add(new TextField(NOMBRE, nombre, Field.Store.NO));
+        }
+        if (email != null) {
+            documento.add(new TextField(EMAIL, email, Field.Store.NO));
+        }
+        anotar(escritor.updateDocument(new Term(CLAVE, clave(tipo, id)), documento));
+    }
+
+    private void anotar(long secuencia) {
+        ultimaSecuencia.accumulateAndGet(secuencia, Math::max);
+    }
+
+    void aplicar(Class<?> tipo, long id, String nombre, String email, long version, boolean borrada) {
+        if (borrada) {
+            borrar(tipo, id);
+        } else {
+            escribir(tipo, id, nombre, email, version, generacion::get);
+        }
+    }
+
+    // Veces que se ha reabierto el buscador (para los tests)
+    long reaperturas() {
+        return reaperturas.sum();
+    }
+
+    // Cada palabra debe aparecer (exacta, como prefijo o con erratas) en el nombre o en el email
+    private static Query consulta(Class<?> tipo, List<String> palabras) {
+        BooleanQuery.Builder todas = new BooleanQuery.Builder();
+        if (tipo != null) {
+            todas.add(new TermQuery(new Term(TIPO, tipo.getSimpleName())), BooleanClause.Occur.FILTER);
+        }
+        for (String palabra : palabras) {
+            BooleanQuery.Builder alguna = new BooleanQuery.Builder();
+            for (String campo : List.of(NOMBRE, EMAIL)) {
+                Term termino = new Term(campo, palabra);
+                alguna.add(new BoostQuery(new TermQuery(termino), 4), BooleanClause.Occur.SHOULD);
+                alguna.add(new BoostQuery(new PrefixQuery(termino), 2), BooleanClause.Occur.SHOULD);
+                if (palabra.length() >= 3) {
+                    int ediciones = palabra.length() >= 6 ? 2 : 1;
+                    alguna.add(new FuzzyQuery(termino, ediciones, 1), BooleanClause.Occur.SHOULD);
+                }
+            }
+            todas.add(alguna.build(), BooleanClause.Occur.MUST);
+        }
+        return todas.build();
+    }
+
+    private static List<String> palabras(String texto) {
+        List<String> palabras = new ArrayList<>();
+        try (TokenStream tokens = ANALIZADOR.tokenStream(NOMBRE, texto)) {
+            CharTermAttribute termino = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                palabras.add(termino.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return palabras;
+    }
+
+    private static String clave(Class<?> tipo, long id) {
+        return tipo.getSimpleName() + ":" + id;
+    }
+
+    private static Class<?> tipo(String nombre) {
+        return TIPOS.stream().filter(t -> t.getSimpleName().equals(nombre)).findFirst().orElseThrow();
+    }
+
+    // Un solo listener por SessionFactory que reparte a los índices abiertos
+    private void registrarListeners() {
+        escucha = ListenersCompartidos.obtener(sessionFactory, Escucha.class, Escucha::new, (registro, nueva) -> {
+            registro.appendListeners(EventType.POST_INSERT, nueva);
+            registro.appendListeners(EventType.POST_UPDATE, nueva);
+            registro.appendListeners(EventType.POST_DELETE, nueva);
+        });
+        escucha.anadir(this);
+    }
+
+    private static class Escucha extends EscuchaCompartida<IndiceTexto>
+            implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            guardar(event.getEntity(), event.getSession());
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            // Cambiar las matrículas sube la versión del estudiante pero no cambia el texto
+            int[] sucias = event.getDirtyProperties();
+            if (sucias != null) {
+                String[] propiedades = event.getPersister().getPropertyNames();
+                boolean texto = false;
+                for (int i : sucias) {
+                    texto |= NOMBRE.equals(propiedades[i]) || EMAIL.equals(propiedades[i]);
+                }
+                if (!texto) {
+                    return;
+                }
+            }
+            guardar(event.getEntity(), event.getSession());
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Estudiante || event.getEntity() instanceof Profesor) {
+                Class<?> tipo = event.getEntity() instanceof Estudiante ? Estudiante.class : Profesor.class;
+                long id = (Long) event.getId();
+                programar(event.getSession(), indice -> indice.aplicar(tipo, id, null, null, 0, true));
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        @Override
+        protected void recalcular(IndiceTexto indice) {
+            indice.reindexar(Runtime.getRuntime().availableProcessors());
+        }
+
+        private void guardar(Object entidad, EventSource session) {
+            if (entidad instanceof Estudiante estudiante) {
+                long id = estudiante.getId();
+                String nombre = estudiante.getNombre();
+                String email = estudiante.getEmail();
+                long version = estudiante.getVersion();
+                programar(session, indice -> indice.aplicar(Estudiante.class, id, nombre, email, version, false));
+            } else if (entidad instanceof Profesor profesor) {
+                long id = profesor.getId();
+                String nombre = profesor.getNombre();
+                String email = profesor.getEmail();
+                long version = profesor.getVersion();
+                programar(session, indice -> indice.aplicar(Profesor.class, id, nombre, email, version, false));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.carga;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Distribución de Zipf sobre las posiciones {@code 0..n-1}: la posición
+ * {@code k} sale con probabilidad proporcional a {@code 1 / (k + 1)^sesgo}.
+ * Con sesgo 0 es uniforme; con sesgo 1 la posición 0 sale el doble que la 1
+ * y diez veces más que la 9 (unos pocos cursos muy populares y una cola
+ * larga de cursos con pocos matriculados).
+ */
+public class Distribucion {
+
+    private final double[] acumulada;
+
+    public Distribucion(int n, double sesgo) {
+        if (n < 1) {
+            throw new IllegalArgumentException("La distribución necesita al menos una posición: " + n);
+        }
+        if (sesgo < 0) {
+            throw new IllegalArgumentException("El sesgo no puede ser negativo: " + sesgo);
+        }
+        acumulada = new double[n];
+        double suma = 0;
+        for (int k = 0; k < n; k++) {
+            suma += 1 / Math.pow(k + 1, sesgo);
+            acumulada[k] = suma;
+        }
+        for (int k = 0; k < n; k++) {
+            acumulada[k] /= suma;
+        }
+    }
+
+    public int tamano() {
+        return acumulada.length;
+    }
+
+    /** Probabilidad de la posición {@code k}. */
+    public double probabilidad(int k) {
+        return k == 0 ? acumulada[0] : acumulada[k] - acumulada[k - 1];
+    }
+
+    public int muestra(SplittableRandom aleatorio) {
+        int i = Arrays.binarySearch(acumulada, aleatorio.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, acumulada.length - 1);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.carga;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Matricula;
+import com.example.model.Profesor;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.SplittableRandom;
+
+/**
+ * Rellena la base de datos con un conjunto sintético del tamaño que se
+ * pida: profesores, cursos repartidos entre ellos por turno y estudiantes
+ * matriculados en entre {@code minCursos} y {@code maxCursos} cursos.
+ * Los cursos de cada estudiante se eligen con una {@link Distribucion} de
+ * Zipf, así que con sesgo mayor que 0 los primeros cursos acumulan la
+ * mayoría de las matrículas, como los cursos populares de verdad.
+ *
+ * <p>Todo se inserta con lotes JDBC de {@code tamanoLote} filas,
+ * vaciando la sesión tras cada lote y confirmando cada
+ * {@link #ESTUDIANTES_POR_TRANSACCION} estudiantes; las matrículas se
+ * insertan como {@link Matricula}, sin cargar {@code Estudiante.cursos}.
+ * Con la misma configuración (y semilla) se generan siempre los mismos
+ * datos.
+ */
+public class GeneradorDatos {
+
+    static final int ESTUDIANTES_POR_TRANSACCION = 10_000;
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "María", "Carlos", "Lucía", "Javier", "Elena",
+            "Pablo", "Sara", "Diego", "Marta", "Jorge", "Paula", "Sergio", "Laura", "Álvaro"};
+    private static final String[] APELLIDOS = {"García", "Fernández", "González", "Rodríguez", "López",
+            "Martínez", "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz",
+            "Moreno", "Muñoz", "Álvarez", "Romero", "Alonso", "Gutiérrez"};
+
+    /**
+     * Qué generar.
+     *
+     * @param sesgo   exponente de Zipf de la popularidad de los cursos (0 = uniforme)
+     * @param prefijo se antepone a los emails, que deben ser únicos, y a los
+     *                nombres de profesores y cursos, para poder generar varias
+     *                veces sobre la misma base de datos sin que las consultas
+     *                por nombre (las de {@code InterfazQueryTest}, por ejemplo)
+     *                encuentren también los datos generados
+     */
+    public record Configuracion(int estudiantes, int cursos, int profesores, int minCursos, int maxCursos,
+                                double sesgo, long semilla, String prefijo, int tamanoLote) {
+
+        public Configuracion {
+            if (estudiantes < 0 || cursos < 1 || profesores < 1) {
+                throw new IllegalArgumentException("Hace falta al menos un curso y un profesor");
+            }
+            if (minCursos < 0 || maxCursos < minCursos || maxCursos > cursos) {
+                throw new IllegalArgumentException(
+                        "Cursos por estudiante fuera de rango: " + minCursos + "-" + maxCursos + " de " + cursos);
+            }
+            if (tamanoLote < 1) {
+                throw new IllegalArgumentException("El lote debe tener al menos una fila: " + tamanoLote);
+            }
+        }
+
+        /**
+         * Proporciones de {@code benchmarks/BaseDeDatos}: un curso por cada
+         * 20 estudiantes, un profesor por cada 500, de 1 a 5 cursos por
+         * estudiante y sesgo 1.
+         */
+        public static Configuracion proporcional(int estudiantes) {
+            int cursos = Math.max(5, estudiantes / 20);
+            return new Configuracion(estudiantes, cursos, Math.max(1, estudiantes / 500), 1, 5, 1.0, 42,
+                    "gen" + Long.toString(System.nanoTime(), 36), 50);
+        }
+    }
+
+    /**
+     * Ids generados; {@code cursoIds} está en orden de popularidad (el
+     * primero es el más demandado).
+     */
+    public record DatosGenerados(long[] profesorIds, long[] cursoIds, long[] estudianteIds, long matriculas,
+                                 Duration duracion) {
+
+        public double filasPorSegundo() {
+            long filas = profesorIds.length + cursoIds.length + estudianteIds.length + matriculas;
+            return filas / Math.max(duracion.toNanos() / 1e9, 1e-9);
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+
+    public GeneradorDatos(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public DatosGenerados generar(Configuracion configuracion) {
+        long inicio = System.nanoTime();
+        SplittableRandom aleatorio = new SplittableRandom(configuracion.semilla());
+        Distribucion popularidad = new Distribucion(configuracion.cursos(), configuracion.sesgo());
+        long[] profesorIds = new long[configuracion.profesores()];
+        long[] cursoIds = new long[configuracion.cursos()];
+        long[] estudianteIds = new long[configuracion.estudiantes()];
+        long matriculas = 0;
+
+        Session session = sessionFactory.openSession();
+        try {
+            session.setJdbcBatchSize(configuracion.tamanoLote());
+            session.setCacheMode(CacheMode.IGNORE);
+            session.beginTransaction();
+            for (int i = 0; i < profesorIds.length; i++) {
+                Profesor profesor = new Profesor(nombre(configuracion, "Profesor", i), correo(configuracion, "p", i));
+                session.persist(profesor);
+                profesorIds[i] = profesor.getId();
+                vaciarCadaLote(session, i, configuracion);
+            }
+            for (int i = 0; i < cursoIds.length; i++) {
+                Curso curso = new Curso(nombre(configuracion, "Curso", i), 1 + aleatorio.nextInt(12),
+                        session.getReference(Profesor.class, profesorIds[i % profesorIds.length]));
+                session.persist(curso);
+                cursoIds[i] = curso.getId();
+                vaciarCadaLote(session, i, configuracion);
+            }
+            session.flush();
+            session.clear();
+
+            BitSet elegidos = new BitSet(cursoIds.length);
+            for (int i = 0; i < estudianteIds.length; i++) {
+                String nombre = NOMBRES[aleatorio.nextInt(NOMBRES.length)] + " "
+                        + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " "
+                        + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+                Estudiante estudiante = new Estudiante(nombre, correo(configuracion, "e", i));
+                session.persist(estudiante);
+                estudianteIds[i] = estudiante.getId();
+
+                elegir(elegidos, configuracion.minCursos() + aleatorio.nextInt(
+                        configuracion.maxCursos() - configuracion.minCursos() + 1), popularidad, aleatorio);
+                for (int c = elegidos.nextSetBit(0); c >= 0; c = elegidos.nextSetBit(c + 1)) {
+                    session.persist(new Matricula(estudiante, session.getReference(Curso.class, cursoIds[c])));
+                    matriculas++;
+                }
+                vaciarCadaLote(session, i, configuracion);
+                if ((i + 1) % ESTUDIANTES_POR_TRANSACCION == 0) {
+                    session.getTransaction().commit();
+                    session.beginTransaction();
+                }
+            }
+            session.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (session.getTransaction().isActive()) {
+                session.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+        return new DatosGenerados(profesorIds, cursoIds, estudianteIds, matriculas,
+                Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    private static String nombre(Configuracion configuracion, String tipo, int i) {
+        return configuracion.prefijo() + " " + tipo + " " + i;
+    }
+
+    private static String correo(Configuracion configuracion, String tipo, int i) {
+        return configuracion.prefijo() + "." + tipo + i + "@escuela.com";
+    }
+
+    // order_inserts agrupa por tabla, así que cada flush manda lotes completos
+    private static void vaciarCadaLote(Session session, int i, Configuracion configuracion) {
+        if ((i + 1) % configuracion.tamanoLote() == 0) {
+            session.flush();
+            session.clear();
+        }
+    }
+
+    // Cursos distintos según la popularidad; si el sesgo concentra tanto que
+    // se repiten demasiado, el resto se completa al azar entre los que faltan
+    private static void elegir(BitSet elegidos, int cuantos, Distribucion popularidad, SplittableRandom aleatorio) {
+        elegidos.clear();
+        for (int intentos = 0; elegidos.cardinality() < cuantos && intentos < cuantos * 20; intentos++) {
+            elegidos.set(popularidad.muestra(aleatorio));
+        }
+        while (elegidos.cardinality() < cuantos) {
+            elegidos.set(aleatorio.nextInt(popularidad.tamano()));
+        }
+    }
+}
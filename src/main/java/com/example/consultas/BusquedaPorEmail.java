@@ -0,0 +1,73 @@
+package com.example.consultas;
+
+import com.example.model.Emails;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Búsqueda de profesores y estudiantes por email, que es su
+ * {@code @NaturalId}. Los emails se buscan normalizados (ver
+ * {@link Emails}), así que no importan las mayúsculas.
+ *
+ * <p>La primera vez Hibernate resuelve email -&gt; id con una consulta por
+ * el índice único y guarda la correspondencia en la caché de claves
+ * naturales (regiones profesor_email y estudiante_email); después la
+ * entidad sale de la caché de segundo nivel, de modo que una búsqueda
+ * repetida no va a la base de datos.
+ */
+public class BusquedaPorEmail {
+
+    private static final int TAMANO_LOTE = 50;
+
+    public static Optional<Profesor> profesor(Session session, String email) {
+        return session.bySimpleNaturalId(Profesor.class).loadOptional(Emails.normalizar(email));
+    }
+
+    public static Optional<Estudiante> estudiante(Session session, String email) {
+        return session.bySimpleNaturalId(Estudiante.class).loadOptional(Emails.normalizar(email));
+    }
+
+    /**
+     * Carga varios estudiantes en lotes de {@value #TAMANO_LOTE} emails por
+     * consulta (los que ya están en caché no se consultan). La lista tiene
+     * el mismo orden que {@code emails}, con {@code null} para los que no
+     * existen.
+     */
+    public static List<Estudiante> estudiantes(Session session, List<String> emails) {
+        return cargarEnOrden(session, Estudiante.class, Estudiante::getEmail, emails);
+    }
+
+    /** Como {@link #estudiantes(Session, List)} para profesores. */
+    public static List<Profesor> profesores(Session session, List<String> emails) {
+        return cargarEnOrden(session, Profesor.class, Profesor::getEmail, emails);
+    }
+
+    // Hibernate 6.4 no admite multiLoad ordenado por clave natural: se carga
+    // sin orden y se recoloca según la lista de entrada
+    private static <T> List<T> cargarEnOrden(Session session, Class<T> entidad, Function<T, String> email,
+                                             List<String> emails) {
+        List<String> normalizados = emails.stream().map(Emails::normalizar).toList();
+        Map<String, T> porEmail = new HashMap<>();
+        for (T encontrada : session.byMultipleNaturalId(entidad)
+                .withBatchSize(TAMANO_LOTE)
+                .enableOrderedReturn(false)
+                .multiLoad(normalizados)) {
+            if (encontrada != null) {
+                porEmail.put(email.apply(encontrada), encontrada);
+            }
+        }
+        List<T> resultado = new ArrayList<>(emails.size());
+        for (String e : normalizados) {
+            resultado.add(porEmail.get(e));
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.consultas;
+
+import com.example.asincrono.AccesoAsincrono;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Carga por listas de ids de cualquier tamaño (las integraciones envían
+ * decenas de miles).
+ *
+ * <p>Los ids repetidos se quitan y el resto se reparte en trozos de como
+ * mucho {@code tamanoMaximo}; cada trozo se rellena repitiendo su último id
+ * hasta la siguiente potencia de dos, así que el {@code IN (...)} sólo
+ * tiene unas pocas longitudes distintas (1, 2, 4, ... {@code tamanoMaximo}),
+ * la base de datos reutiliza sus planes y nunca se pasa del límite de
+ * parámetros del driver. Los trozos se consultan en paralelo, cada uno en
+ * su sesión de sólo lectura de {@link AccesoAsincrono}, y el resultado
+ * sigue el orden de los ids pedidos; los que no existen se omiten.
+ *
+ * <p>Las entidades devueltas vienen de sesiones ya cerradas: sus
+ * asociaciones perezosas no se pueden recorrer. No se debe llamar desde
+ * un trabajo del mismo {@link AccesoAsincrono}.
+ */
+public class CargaPorIds {
+
+    public static final int TAMANO_MAXIMO = 512;
+
+    private final AccesoAsincrono acceso;
+    private final int tamanoMaximo;
+
+    public CargaPorIds(AccesoAsincrono acceso) {
+        this(acceso, TAMANO_MAXIMO);
+    }
+
+    /** @param tamanoMaximo parámetros por consulta; tiene que ser potencia de dos */
+    public CargaPorIds(AccesoAsincrono acceso, int tamanoMaximo) {
+        if (tamanoMaximo < 1 || Integer.bitCount(tamanoMaximo) != 1) {
+            throw new IllegalArgumentException("El tamaño de trozo debe ser potencia de dos: " + tamanoMaximo);
+        }
+        this.acceso = acceso;
+        this.tamanoMaximo = tamanoMaximo;
+    }
+
+    public List<Estudiante> estudiantes(Collection<Long> ids) {
+        return enOrden(ids, cargar(ids, (session, trozo) -> session
+                .createNamedSelectionQuery(Estudiante.POR_IDS, Estudiante.class)
+                .setParameterList("ids", trozo)
+                .getResultList(), (encontrados, estudiante) -> encontrados.put(estudiante.getId(), estudiante)));
+    }
+
+    public List<Curso> cursos(Collection<Long> ids) {
+        return enOrden(ids, cargar(ids, (session, trozo) -> session
+                .createNamedSelectionQuery(Curso.POR_IDS, Curso.class)
+                .setParameterList("ids", trozo)
+                .getResultList(), (encontrados, curso) -> encontrados.put(curso.getId(), curso)));
+    }
+
+    /**
+     * Estudiantes de cada curso, en el orden de los cursos pedidos y por id
+     * dentro de cada curso; un curso sin estudiantes (o que no existe)
+     * aparece con la lista vacía.
+     */
+    public Map<Long, List<EstudianteResumen>> estudiantesPorCurso(Collection<Long> cursoIds) {
+        Map<Long, List<EstudianteResumen>> porCurso = cargar(cursoIds, (session, trozo) -> session
+                .createNamedSelectionQuery(Estudiante.POR_CURSOS, Object[].class)
+                .setParameterList("cursoIds", trozo)
+                .getResultList(), (encontrados, fila) -> encontrados
+                .computeIfAbsent((Long) fila[0], id -> new ArrayList<>())
+                .add(new EstudianteResumen((Long) fila[1], (String) fila[2], (String) fila[3])));
+        Map<Long, List<EstudianteResumen>> resultado = new LinkedHashMap<>();
+        for (Long cursoId : cursoIds) {
+            resultado.putIfAbsent(cursoId, porCurso.getOrDefault(cursoId, List.of()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Estudiantes de cualquiera de los cursos, cada uno una sola vez: en el
+     * orden de los cursos pedidos y, dentro de cada curso, por id.
+     */
+    public List<EstudianteResumen> estudiantesEnCursos(Collection<Long> cursoIds) {
+        Map<Long, EstudianteResumen> unicos = new LinkedHashMap<>();
+        for (List<EstudianteResumen> estudiantes : estudiantesPorCurso(cursoIds).values()) {
+            for (EstudianteResumen estudiante : estudiantes) {
+                unicos.putIfAbsent(estudiante.id(), estudiante);
+            }
+        }
+        return List.copyOf(unicos.values());
+    }
+
+    /** Ids sin repetir, en trozos de como mucho {@code tamanoMaximo} rellenados hasta una potencia de dos. */
+    static List<List<Long>> trozos(Collection<Long> ids, int tamanoMaximo) {
+        List<Long> unicos = List.copyOf(new LinkedHashSet<>(ids));
+        List<List<Long>> trozos = new ArrayList<>();
+        for (int desde = 0; desde < unicos.size(); desde += tamanoMaximo) {
+            List<Long> trozo = new ArrayList<>(unicos.subList(desde, Math.min(desde + tamanoMaximo, unicos.size())));
+            int relleno = Integer.highestOneBit(trozo.size() - 1) << 1;
+            trozo.addAll(Collections.nCopies(Math.max(relleno, 1) - trozo.size(), trozo.get(trozo.size() - 1)));
+            trozos.add(trozo);
+        }
+        return trozos;
+    }
+
+    private <F, V> Map<Long, V> cargar(Collection<Long> ids, Consulta<F> consulta,
+                                       BiConsumer<Map<Long, V>, F> juntar) {
+        List<List<Long>> trozos = trozos(ids, tamanoMaximo);
+        List<CompletableFuture<List<F>>> tareas = new ArrayList<>(trozos.size());
+        for (List<Long> trozo : trozos) {
+            tareas.add(acceso.leer(session -> consulta.ejecutar(session, trozo)));
+        }
+        try {
+            AccesoAsincrono.todos(tareas.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+        Map<Long, V> encontrados = new HashMap<>();
+        for (CompletableFuture<List<F>> tarea : tareas) {
+            tarea.join().forEach(fila -> juntar.accept(encontrados, fila));
+        }
+        return encontrados;
+    }
+
+    private static <T> List<T> enOrden(Collection<Long> ids, Map<Long, T> encontrados) {
+        List<T> resultado = new ArrayList<>(encontrados.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            T valor = encontrados.get(id);
+            if (valor != null) {
+                resultado.add(valor);
+            }
+        }
+        return resultado;
+    }
+
+    @FunctionalInterface
+    private interface Consulta<F> {
+        List<F> ejecutar(Session session, List<Long> trozo);
+    }
+}
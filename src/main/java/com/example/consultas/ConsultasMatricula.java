@@ -0,0 +1,67 @@
+package com.example.consultas;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Consultas de matrícula (qué estudiantes hay en uno o varios cursos)
+ * servidas desde la caché de segundo nivel.
+ *
+ * <p>Los estudiantes de cada curso salen de la colección
+ * {@code Curso.estudiantes}, cuya región ({@code curso_estudiantes}) guarda
+ * los ids por curso; los estudiantes se recuperan después de la caché de
+ * entidades. Al matricular o desmatricular, {@link
+ * com.example.CacheColeccionesInversas} quita de la región sólo los cursos
+ * afectados al confirmarse la transacción, así que las escrituras en un
+ * curso no vacían las entradas de los demás (la caché de consultas de
+ * Hibernate invalidaría todas las consultas sobre estudiante_curso con
+ * cada matrícula). Quien escriba estudiante_curso por SQL nativo o JDBC
+ * debe quitar la colección de la caché, como hace el importador.
+ *
+ * <p>Los ids de los cursos por nombre sí usan la caché de consultas, en la
+ * región {@value #REGION}: sólo se invalida cuando cambia la tabla curso.
+ */
+public class ConsultasMatricula {
+
+    public static final String REGION = "consultas_matricula";
+
+    public static List<Estudiante> estudiantesEnCurso(Session session, Long cursoId) {
+        return estudiantesEnCursos(session, List.of(cursoId));
+    }
+
+    /** Estudiantes de alguno de los cursos, sin repetir, en orden de curso. */
+    public static List<Estudiante> estudiantesEnCursos(Session session, Collection<Long> cursoIds) {
+        Set<Estudiante> estudiantes = new LinkedHashSet<>();
+        // multiLoad sólo mira la caché de segundo nivel si se le indica el CacheMode
+        List<Curso> cursos = session.byMultipleIds(Curso.class).with(CacheMode.NORMAL).multiLoad(ordenados(cursoIds));
+        for (Curso curso : cursos) {
+            if (curso != null) {
+                estudiantes.addAll(curso.getEstudiantes());
+            }
+        }
+        return new ArrayList<>(estudiantes);
+    }
+
+    public static List<Estudiante> estudiantesEnCursosPorNombre(Session session, Collection<String> nombresCursos) {
+        List<Long> cursoIds = session.createNamedQuery(Curso.IDS_POR_NOMBRES, Long.class)
+                .setParameterList("nombres", ordenados(nombresCursos))
+                .setCacheable(true)
+                .setCacheRegion(REGION)
+                .getResultList();
+        return estudiantesEnCursos(session, cursoIds);
+    }
+
+    // La clave de la caché incluye el orden de los parámetros: {2,3} y {3,2} deben coincidir
+    private static <T extends Comparable<T>> List<T> ordenados(Collection<T> valores) {
+        return List.copyOf(new TreeSet<>(valores));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.consultas;
+
+/**
+ * Datos de un curso para listados de sólo lectura. {@code profesorNombre}
+ * es {@code null} si el curso no tiene profesor.
+ */
+public record CursoResumen(Long id, String nombre, double creditos, String profesorNombre) {
+}
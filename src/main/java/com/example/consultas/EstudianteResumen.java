@@ -0,0 +1,7 @@
+package com.example.consultas;
+
+/**
+ * Datos de un estudiante para listados de sólo lectura.
+ */
+public record EstudianteResumen(Long id, String nombre, String email) {
+}
@@ -0,0 +1,14 @@
+package com.example.consultas;
+
+import java.util.List;
+
+/**
+ * Una página de resultados de {@link Paginacion}. {@code siguiente} es el
+ * token para pedir la página siguiente, o {@code null} si ésta es la última.
+ */
+public record Pagina<T>(List<T> elementos, String siguiente) {
+
+    public boolean hayMas() {
+        return siguiente != null;
+    }
+}
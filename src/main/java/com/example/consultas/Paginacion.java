@@ -0,0 +1,115 @@
+package com.example.consultas;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import org.hibernate.Session;
+import org.hibernate.query.SelectionQuery;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Paginación por clave (keyset) en lugar de {@code setFirstResult}. Cada
+ * página se pide con el token devuelto por la anterior ({@code null} para
+ * la primera), que guarda la clave de la última fila: la consulta continúa
+ * con {@code WHERE clave > última ORDER BY clave} y lee sólo las filas de
+ * la página, sea cual sea su profundidad, en vez de recorrer y descartar
+ * las anteriores como hace OFFSET.
+ *
+ * <ul>
+ *     <li>Estudiantes por {@code (nombre, id)}, sobre el índice
+ *     {@code idx_estudiante_nombre_id}. El nombre es obligatorio (NOT NULL
+ *     desde la migración V6), así que el token siempre lo guarda.</li>
+ *     <li>Cursos por {@code id}.</li>
+ *     <li>Estudiantes de un curso por id de estudiante, que recorre la
+ *     tabla estudiante_curso en el orden de su índice por curso.</li>
+ * </ul>
+ *
+ * <p>El token es opaco para el cliente. Un token mal formado o de otro
+ * listado lanza {@link IllegalArgumentException}.
+ */
+public class Paginacion {
+
+    private static final char SEPARADOR = '\u001F';
+    private static final Base64.Encoder CODIFICADOR = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODIFICADOR = Base64.getUrlDecoder();
+
+    public static Pagina<Estudiante> estudiantesPorNombre(Session session, String token, int tamano) {
+        String[] clave = leer(token, "estudiantes", 2);
+        SelectionQuery<Estudiante> query;
+        if (clave == null) {
+            query = session.createSelectionQuery(
+                    "FROM Estudiante e ORDER BY e.nombre, e.id", Estudiante.class);
+        } else {
+            query = session.createSelectionQuery(
+                            "FROM Estudiante e WHERE e.nombre > :nombre OR (e.nombre = :nombre AND e.id > :id) "
+                                    + "ORDER BY e.nombre, e.id", Estudiante.class)
+                    .setParameter("nombre", clave[0])
+                    .setParameter("id", Long.valueOf(clave[1]));
+        }
+        return pagina(query, tamano, e -> escribir("estudiantes", e.getNombre(), e.getId().toString()));
+    }
+
+    public static Pagina<Curso> cursos(Session session, String token, int tamano) {
+        String[] clave = leer(token, "cursos", 1);
+        SelectionQuery<Curso> query = session.createSelectionQuery(
+                        "FROM Curso c WHERE c.id > :id ORDER BY c.id", Curso.class)
+                .setParameter("id", clave == null ? Long.MIN_VALUE : Long.parseLong(clave[0]));
+        return pagina(query, tamano, c -> escribir("cursos", c.getId().toString()));
+    }
+
+    public static Pagina<Estudiante> estudiantesEnCurso(Session session, Long cursoId, String token, int tamano) {
+        String listado = "curso:" + cursoId;
+        String[] clave = leer(token, listado, 1);
+        SelectionQuery<Estudiante> query = session.createSelectionQuery(
+                        "SELECT e FROM Estudiante e JOIN e.cursos c WHERE c.id = :cursoId AND e.id > :id "
+                                + "ORDER BY e.id", Estudiante.class)
+                .setParameter("cursoId", cursoId)
+                .setParameter("id", clave == null ? Long.MIN_VALUE : Long.parseLong(clave[0]));
+        return pagina(query, tamano, e -> escribir(listado, e.getId().toString()));
+    }
+
+    // Pide una fila de más para saber si hay página siguiente sin otra consulta
+    private static <T> Pagina<T> pagina(SelectionQuery<T> query, int tamano, Function<T, String> token) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser positivo: " + tamano);
+        }
+        List<T> filas = query.setMaxResults(tamano + 1).getResultList();
+        if (filas.size() <= tamano) {
+            return new Pagina<>(filas, null);
+        }
+        List<T> elementos = filas.subList(0, tamano);
+        return new Pagina<>(List.copyOf(elementos), token.apply(elementos.get(tamano - 1)));
+    }
+
+    private static String escribir(String listado, String... clave) {
+        return CODIFICADOR.encodeToString((listado + SEPARADOR + String.join(String.valueOf(SEPARADOR), clave))
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] leer(String token, String listado, int columnas) {
+        if (token == null) {
+            return null;
+        }
+        String[] partes;
+        try {
+            partes = new String(DECODIFICADOR.decode(token), StandardCharsets.UTF_8)
+                    .split(String.valueOf(SEPARADOR), -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Token de paginación no válido: " + token, e);
+        }
+        if (partes.length != columnas + 1 || !partes[0].equals(listado)) {
+            throw new IllegalArgumentException("Token de paginación no válido para " + listado + ": " + token);
+        }
+        String[] clave = new String[columnas];
+        System.arraycopy(partes, 1, clave, 0, columnas);
+        try {
+            Long.parseLong(clave[columnas - 1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Token de paginación no válido: " + token, e);
+        }
+        return clave;
+    }
+}
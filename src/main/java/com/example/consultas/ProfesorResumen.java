@@ -0,0 +1,8 @@
+package com.example.consultas;
+
+/**
+ * Datos de un profesor para listados de sólo lectura, con el número de
+ * cursos que imparte.
+ */
+public record ProfesorResumen(Long id, String nombre, String email, long cursos) {
+}
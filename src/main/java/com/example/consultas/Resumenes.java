@@ -0,0 +1,63 @@
+package com.example.consultas;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Listados de sólo lectura que devuelven records en lugar de entidades.
+ *
+ * <p>Las consultas seleccionan sólo las columnas del record con una
+ * expresión {@code SELECT new ...}: Hibernate no crea entidades, no las
+ * añade al contexto de persistencia ni guarda la copia de su estado para
+ * la comprobación de cambios, y el profesor de un curso llega con un JOIN
+ * en la misma consulta. Para modificar datos hay que usar las entidades.
+ */
+public class Resumenes {
+
+    public static List<CursoResumen> cursos(Session session) {
+        return session.createSelectionQuery(
+                        "SELECT new com.example.consultas.CursoResumen(c.id, c.nombre, c.creditos, p.nombre) "
+                                + "FROM Curso c LEFT JOIN c.profesor p ORDER BY c.id", CursoResumen.class)
+                .getResultList();
+    }
+
+    public static List<EstudianteResumen> estudiantes(Session session) {
+        return session.createSelectionQuery(
+                        "SELECT new com.example.consultas.EstudianteResumen(e.id, e.nombre, e.email) "
+                                + "FROM Estudiante e ORDER BY e.id", EstudianteResumen.class)
+                .getResultList();
+    }
+
+    public static List<EstudianteResumen> estudiantesEnCurso(Session session, Long cursoId) {
+        return session.createSelectionQuery(
+                        "SELECT new com.example.consultas.EstudianteResumen(e.id, e.nombre, e.email) "
+                                + "FROM Estudiante e JOIN e.cursos c WHERE c.id = :cursoId ORDER BY e.id",
+                        EstudianteResumen.class)
+                .setParameter("cursoId", cursoId)
+                .getResultList();
+    }
+
+    public static Optional<EstudianteResumen> estudiante(Session session, Long estudianteId) {
+        return session.createNamedSelectionQuery(Estudiante.RESUMEN, EstudianteResumen.class)
+                .setParameter("estudianteId", estudianteId)
+                .uniqueResultOptional();
+    }
+
+    public static List<CursoResumen> cursosDeEstudiante(Session session, Long estudianteId) {
+        return session.createNamedSelectionQuery(Curso.RESUMENES_DE_ESTUDIANTE, CursoResumen.class)
+                .setParameter("estudianteId", estudianteId)
+                .getResultList();
+    }
+
+    /** Profesores de los cursos del estudiante, con cuántos cursos imparte cada uno en total. */
+    public static List<ProfesorResumen> profesoresDeEstudiante(Session session, Long estudianteId) {
+        return session.createNamedSelectionQuery(Profesor.RESUMENES_DE_ESTUDIANTE, ProfesorResumen.class)
+                .setParameter("estudianteId", estudianteId)
+                .getResultList();
+    }
+}
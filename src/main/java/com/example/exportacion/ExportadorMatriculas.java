@@ -0,0 +1,191 @@
+package com.example.exportacion;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Exporta todos los estudiantes con los cursos en que están matriculados
+ * (nombre y créditos) en CSV o NDJSON.
+ *
+ * <p>Las filas se leen con un cursor de sólo avance ({@link ScrollMode#FORWARD_ONLY})
+ * y {@code fetchSize} filas por viaje a la base de datos, a través de una
+ * {@link StatelessSession} y proyectando columnas en lugar de entidades:
+ * no hay contexto de persistencia que limpiar y cada fila se escribe y se
+ * descarta en cuanto se lee. Sólo se guardan en memoria los cursos del
+ * estudiante que se está escribiendo, así que la memoria usada no depende
+ * del número de estudiantes.
+ *
+ * <p>CSV: una línea por matrícula (y una con curso vacío para quien no
+ * tiene ninguna), con cabecera:
+ * <pre>
+ * estudiante_id,nombre,email,curso,creditos
+ * 1,Estudiante 1,e1@escuela.com,Curso 1,6.0
+ * </pre>
+ * NDJSON: un objeto por estudiante, p.ej.
+ * {@code {"id":1,"nombre":"Estudiante 1","email":"e1@escuela.com","cursos":[{"nombre":"Curso 1","creditos":6.0}]}}.
+ */
+public class ExportadorMatriculas {
+
+    public enum Formato {CSV, NDJSON}
+
+    private static final int TAMANO_FETCH_POR_DEFECTO = 1_000;
+    private static final int TAMANO_BUFFER = 64 * 1024;
+    private static final Comparator<Object[]> POR_NOMBRE = Comparator.comparing(curso -> (String) curso[0]);
+
+    private final SessionFactory sessionFactory;
+    private final int tamanoFetch;
+
+    public ExportadorMatriculas(SessionFactory sessionFactory) {
+        this(sessionFactory, TAMANO_FETCH_POR_DEFECTO);
+    }
+
+    public ExportadorMatriculas(SessionFactory sessionFactory, int tamanoFetch) {
+        if (tamanoFetch <= 0) {
+            throw new IllegalArgumentException("El tamaño de fetch debe ser positivo: " + tamanoFetch);
+        }
+        this.sessionFactory = sessionFactory;
+        this.tamanoFetch = tamanoFetch;
+    }
+
+    /**
+     * Exporta a un fichero (que se sobrescribe) deduciendo el formato por su
+     * extensión ({@code .ndjson}/{@code .jsonl} o CSV en otro caso).
+     *
+     * @return número de estudiantes exportados
+     */
+    public long exportar(Path fichero) {
+        String nombre = fichero.getFileName().toString().toLowerCase();
+        Formato formato = nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") ? Formato.NDJSON : Formato.CSV;
+        try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(canal, StandardCharsets.UTF_8), TAMANO_BUFFER)) {
+            return exportar(writer, formato);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo escribir " + fichero, e);
+        }
+    }
+
+    /**
+     * Exporta al {@code writer} indicado. No lo cierra; sí lo vacía al terminar.
+     *
+     * @return número de estudiantes exportados
+     */
+    public long exportar(Writer writer, Formato formato) {
+        // Sólo por e.id: ordenar también por c.nombre obligaría a la base de datos a ordenar todo el
+        // resultado, mientras que los cursos de un estudiante se ordenan aquí con poco coste
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults<Object[]> filas = session.createSelectionQuery(
+                             "SELECT e.id, e.nombre, e.email, c.nombre, c.creditos "
+                                     + "FROM Estudiante e LEFT JOIN e.cursos c ORDER BY e.id", Object[].class)
+                     .setFetchSize(tamanoFetch)
+                     .setReadOnly(true)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            long estudiantes = 0;
+            Object[] estudiante = null;
+            List<Object[]> cursos = new ArrayList<>();
+            if (formato == Formato.CSV) {
+                writer.write("estudiante_id,nombre,email,curso,creditos\n");
+            }
+            while (filas.next()) {
+                Object[] fila = filas.get();
+                // Las filas llegan ordenadas por estudiante: se escribe el anterior al cambiar de id
+                if (estudiante == null || !estudiante[0].equals(fila[0])) {
+                    if (estudiante != null) {
+                        escribir(writer, formato, estudiante, cursos);
+                    }
+                    estudiante = new Object[]{fila[0], fila[1], fila[2]};
+                    cursos.clear();
+                    estudiantes++;
+                }
+                if (fila[3] != null) {
+                    cursos.add(new Object[]{fila[3], fila[4]});
+                }
+            }
+            if (estudiante != null) {
+                escribir(writer, formato, estudiante, cursos);
+            }
+            writer.flush();
+            return estudiantes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error escribiendo la exportación", e);
+        }
+    }
+
+    // Un estudiante (id, nombre, email) con sus cursos (nombre, créditos), ordenados por nombre
+    private static void escribir(Writer writer, Formato formato, Object[] estudiante, List<Object[]> cursos)
+            throws IOException {
+        cursos.sort(POR_NOMBRE);
+        if (formato == Formato.CSV) {
+            String inicio = estudiante[0] + "," + csv(estudiante[1]) + "," + csv(estudiante[2]) + ",";
+            if (cursos.isEmpty()) {
+                writer.write(inicio + ",\n");
+            }
+            for (Object[] curso : cursos) {
+                writer.write(inicio + csv(curso[0]) + "," + formatear((Double) curso[1]) + "\n");
+            }
+            return;
+        }
+        writer.write("{\"id\":" + estudiante[0] + ",\"nombre\":" + json(estudiante[1])
+                + ",\"email\":" + json(estudiante[2]) + ",\"cursos\":[");
+        for (int i = 0; i < cursos.size(); i++) {
+            writer.write((i == 0 ? "" : ",") + "{\"nombre\":" + json(cursos.get(i)[0]) + ",\"creditos\":"
+                    + formatear((Double) cursos.get(i)[1]) + "}");
+        }
+        writer.write("]}\n");
+    }
+
+    private static String formatear(Double valor) {
+        return String.format(Locale.ROOT, "%s", valor);
+    }
+
+    private static String csv(Object valor) {
+        String texto = Objects.toString(valor, "");
+        if (texto.indexOf(',') < 0 && texto.indexOf('"') < 0 && texto.indexOf('\n') < 0 && texto.indexOf('\r') < 0) {
+            return texto;
+        }
+        return '"' + texto.replace("\"", "\"\"") + '"';
+    }
+
+    private static String json(Object valor) {
+        if (valor == null) {
+            return "null";
+        }
+        String texto = valor.toString();
+        StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
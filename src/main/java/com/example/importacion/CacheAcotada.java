@@ -0,0 +1,34 @@
+package com.example.importacion;
+
+import java.io.Serial;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché LRU de tamaño fijo. Cuando se supera la capacidad se descarta
+ * la entrada usada hace más tiempo, de modo que la memoria no depende
+ * del tamaño del fichero importado.
+ */
+public class CacheAcotada<K, V> extends LinkedHashMap<K, V> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final int capacidad;
+
+    public CacheAcotada(int capacidad) {
+        super(16, 0.75f, true);
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad debe ser positiva: " + capacidad);
+        }
+        this.capacidad = capacidad;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+        return size() > capacidad;
+    }
+}
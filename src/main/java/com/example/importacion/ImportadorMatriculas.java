@@ -0,0 +1,294 @@
+package com.example.importacion;
+
+import com.example.ListenersCompartidos;
+import com.example.model.Curso;
+import com.example.model.Emails;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import com.example.outbox.Outbox;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.jboss.logging.Logger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Importa ficheros de matrícula (profesores, cursos, estudiantes y pares
+ * estudiante_curso) en CSV o NDJSON.
+ *
+ * <p>El fichero se lee línea a línea y se escribe a través de una
+ * {@link StatelessSession}, confirmando una transacción cada
+ * {@code tamanoBloque} líneas. No hay contexto de persistencia y las
+ * referencias a profesores, cursos y estudiantes se resuelven con cachés
+ * LRU acotadas, así que la memoria usada es la misma para 10k que para
+ * 10M líneas.
+ *
+ * <p>Una StatelessSession no pasa por los listeners, así que el importador
+ * hace por su cuenta lo que harían: en cada bloque sube la versión de los
+ * estudiantes con matrículas nuevas y escribe sus eventos en el
+ * {@link Outbox} antes del commit; al terminar (también si falla a medias)
+ * invalida las cachés afectadas y recalcula los índices y totales abiertos
+ * ({@link ListenersCompartidos#recalcular}).
+ */
+public class ImportadorMatriculas {
+
+    public enum Formato {CSV, NDJSON}
+
+    private static final Logger LOG = Logger.getLogger(ImportadorMatriculas.class);
+
+    private static final int TAMANO_BLOQUE_POR_DEFECTO = 1_000;
+    private static final int CAPACIDAD_CACHE_POR_DEFECTO = 10_000;
+
+    private final SessionFactory sessionFactory;
+    private final int tamanoBloque;
+
+    // email -> id, nombre -> id, email -> id
+    private final CacheAcotada<String, Long> profesores;
+    private final CacheAcotada<String, Long> cursos;
+    private final CacheAcotada<String, Long> estudiantes;
+
+    public ImportadorMatriculas(SessionFactory sessionFactory) {
+        this(sessionFactory, TAMANO_BLOQUE_POR_DEFECTO, CAPACIDAD_CACHE_POR_DEFECTO);
+    }
+
+    public ImportadorMatriculas(SessionFactory sessionFactory, int tamanoBloque, int capacidadCache) {
+        if (tamanoBloque <= 0) {
+            throw new IllegalArgumentException("El tamaño de bloque debe ser positivo: " + tamanoBloque);
+        }
+        this.sessionFactory = sessionFactory;
+        this.tamanoBloque = tamanoBloque;
+        this.profesores = new CacheAcotada<>(capacidadCache);
+        this.cursos = new CacheAcotada<>(capacidadCache);
+        this.estudiantes = new CacheAcotada<>(capacidadCache);
+    }
+
+    /**
+     * Importa un fichero deduciendo el formato por su extensión
+     * ({@code .ndjson}/{@code .jsonl} o CSV en otro caso).
+     */
+    public ResumenImportacion importar(Path fichero) {
+        String nombre = fichero.getFileName().toString().toLowerCase();
+        Formato formato = nombre.endsWith(".ndjson") || nombre.endsWith(".jsonl") ? Formato.NDJSON : Formato.CSV;
+        try (Reader reader = Files.newBufferedReader(fichero, StandardCharsets.UTF_8)) {
+            return importar(reader, formato);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer " + fichero, e);
+        }
+    }
+
+    public ResumenImportacion importar(Reader reader, Formato formato) {
+        ResumenImportacion.Contador contador = new ResumenImportacion.Contador();
+        BufferedReader lector = reader instanceof BufferedReader br ? br : new BufferedReader(reader);
+        Outbox.Lote eventos = Outbox.lote(sessionFactory);
+
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            session.setJdbcBatchSize(tamanoBloque);
+            Transaction tx = session.beginTransaction();
+            List<long[]> matriculas = new ArrayList<>(tamanoBloque);
+            int enBloque = 0;
+            String linea;
+            try {
+                while ((linea = lector.readLine()) != null) {
+                    contador.lineas++;
+                    if (linea.isBlank() || linea.startsWith("#")) {
+                        continue;
+                    }
+                    try {
+                        Registro registro = formato == Formato.CSV ? Registro.desdeCsv(linea) : Registro.desdeJson(linea);
+                        procesar(session, registro, matriculas, eventos, contador);
+                    } catch (IllegalArgumentException e) {
+                        contador.rechazadas++;
+                        LOG.warnf("Línea %d rechazada: %s", contador.lineas, e.getMessage());
+                    }
+                    if (++enBloque == tamanoBloque) {
+                        confirmar(session, tx, matriculas, eventos);
+                        tx = session.beginTransaction();
+                        enBloque = 0;
+                    }
+                }
+                confirmar(session, tx, matriculas, eventos);
+            } catch (IOException e) {
+                tx.rollback();
+                throw new UncheckedIOException("Error leyendo la línea " + contador.lineas, e);
+            } catch (RuntimeException e) {
+                if (tx.isActive()) {
+                    tx.rollback();
+                }
+                throw e;
+            }
+        } finally {
+            invalidarColecciones(contador);
+            if (contador.profesores + contador.cursos + contador.estudiantes + contador.matriculas > 0) {
+                ListenersCompartidos.recalcular(sessionFactory);
+            }
+        }
+        return contador.resumen();
+    }
+
+    // Tras el commit se quitan de la caché de segundo nivel los estudiantes con
+    // versión nueva: con la anterior fallaría su siguiente UPDATE
+    private void confirmar(StatelessSession session, Transaction tx, List<long[]> matriculas, Outbox.Lote eventos) {
+        long[] estudiantesCambiados = escribirMatriculas(session, matriculas, eventos);
+        eventos.escribir(session);
+        tx.commit();
+        for (long estudianteId : estudiantesCambiados) {
+            sessionFactory.getCache().evictEntityData(Estudiante.class, estudianteId);
+        }
+    }
+
+    // Las filas de estudiante_curso y los cursos no pasan por el contexto de
+    // persistencia, así que las colecciones y las consultas en la caché de
+    // segundo nivel quedan obsoletas
+    private void invalidarColecciones(ResumenImportacion.Contador contador) {
+        if (contador.matriculas > 0) {
+            sessionFactory.getCache().evictCollectionData(Estudiante.class.getName() + ".cursos");
+            sessionFactory.getCache().evictCollectionData(Curso.class.getName() + ".estudiantes");
+        }
+        if (contador.cursos > 0) {
+            sessionFactory.getCache().evictCollectionData(Profesor.class.getName() + ".cursos");
+        }
+        if (contador.profesores + contador.cursos + contador.estudiantes + contador.matriculas > 0) {
+            sessionFactory.getCache().evictQueryRegions();
+        }
+    }
+
+    private void procesar(StatelessSession session, Registro registro, List<long[]> matriculas,
+                          Outbox.Lote eventos, ResumenImportacion.Contador contador) {
+        switch (registro.tipo()) {
+            case "profesor" -> {
+                Profesor profesor = new Profesor(registro.campo("nombre"), registro.campo("email"));
+                session.insert(profesor);
+                eventos.alta(profesor, profesor.getId());
+                profesores.put(profesor.getEmail(), profesor.getId());
+                contador.profesores++;
+            }
+            case "curso" -> {
+                // Instancia con sólo el id: basta para escribir la clave ajena sin cargar el profesor
+                Profesor profesor = new Profesor();
+                profesor.setId(idProfesor(session, registro.campo("profesor")));
+                Curso curso = new Curso(registro.campo("nombre"), parsearCreditos(registro.campo("creditos")), profesor);
+                session.insert(curso);
+                eventos.alta(curso, curso.getId());
+                cursos.put(curso.getNombre(), curso.getId());
+                contador.cursos++;
+            }
+            case "estudiante" -> {
+                Estudiante estudiante = new Estudiante(registro.campo("nombre"), registro.campo("email"));
+                session.insert(estudiante);
+                eventos.alta(estudiante, estudiante.getId());
+                estudiantes.put(estudiante.getEmail(), estudiante.getId());
+                contador.estudiantes++;
+            }
+            case "matricula" -> {
+                Long estudianteId = idEstudiante(session, registro.campo("estudiante"));
+                Long cursoId = idCurso(session, registro.campo("curso"));
+                matriculas.add(new long[]{estudianteId, cursoId});
+                contador.matriculas++;
+            }
+            default -> throw new IllegalArgumentException("Tipo de registro desconocido: " + registro.tipo());
+        }
+    }
+
+    /**
+     * Una StatelessSession ignora las colecciones, así que las filas de
+     * estudiante_curso del bloque se escriben en un único lote JDBC, después
+     * de vaciar el lote pendiente de entidades para que existan sus claves.
+     * Antes se sube la versión de los estudiantes afectados, en orden de id,
+     * como haría {@link com.example.matriculas.Matriculas}: bloquea sus filas
+     * para que sus eventos queden en orden y hace fallar a quien los hubiera
+     * leído antes. Devuelve los ids de esos estudiantes.
+     */
+    private long[] escribirMatriculas(StatelessSession session, List<long[]> matriculas, Outbox.Lote eventos) {
+        ((SharedSessionContractImplementor) session).getJdbcCoordinator().executeBatch();
+        if (matriculas.isEmpty()) {
+            return new long[0];
+        }
+        Map<Long, SortedSet<Long>> cursosPorEstudiante = new TreeMap<>();
+        for (long[] matricula : matriculas) {
+            cursosPorEstudiante.computeIfAbsent(matricula[0], k -> new TreeSet<>()).add(matricula[1]);
+        }
+        session.doWork(connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE Estudiante SET version = version + 1 WHERE id = ?")) {
+                for (Long estudianteId : cursosPorEstudiante.keySet()) {
+                    ps.setLong(1, estudianteId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO estudiante_curso (estudiante_id, curso_id) VALUES (?, ?)")) {
+                for (long[] matricula : matriculas) {
+                    ps.setLong(1, matricula[0]);
+                    ps.setLong(2, matricula[1]);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+        cursosPorEstudiante.forEach(eventos::matricular);
+        matriculas.clear();
+        return cursosPorEstudiante.keySet().stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private Long idProfesor(StatelessSession session, String leido) {
+        String email = Emails.normalizar(leido);
+        return resolver(profesores, email, () -> session
+                .createNamedQuery(Profesor.ID_POR_EMAIL, Long.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .uniqueResultOptional(), "profesor");
+    }
+
+    private Long idCurso(StatelessSession session, String nombre) {
+        return resolver(cursos, nombre, () -> session
+                .createNamedQuery(Curso.ID_POR_NOMBRE, Long.class)
+                .setParameter("nombre", nombre)
+                .setMaxResults(1)
+                .uniqueResultOptional(), "curso");
+    }
+
+    private Long idEstudiante(StatelessSession session, String leido) {
+        String email = Emails.normalizar(leido);
+        return resolver(estudiantes, email, () -> session
+                .createNamedQuery(Estudiante.ID_POR_EMAIL, Long.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .uniqueResultOptional(), "estudiante");
+    }
+
+    private Long resolver(CacheAcotada<String, Long> cache, String clave,
+                          Supplier<Optional<Long>> consulta, String tipo) {
+        Long id = cache.get(clave);
+        if (id == null) {
+            id = consulta.get().orElseThrow(() -> new IllegalArgumentException("No existe el " + tipo + " '" + clave + "'"));
+            cache.put(clave, id);
+        }
+        return id;
+    }
+
+    private static double parsearCreditos(String valor) {
+        try {
+            return Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Créditos no válidos: " + valor);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.importacion;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Una línea del fichero de matrícula ya separada en campos.
+ *
+ * <p>En CSV la primera columna es el tipo y el resto son posicionales:
+ * <pre>
+ * profesor,Profesor 1,p1@escuela.com
+ * curso,Curso 1,6.0,p1@escuela.com
+ * estudiante,Estudiante 1,e1@escuela.com
+ * matricula,e1@escuela.com,Curso 1
+ * </pre>
+ * En NDJSON cada línea es un objeto plano con la clave {@code tipo} y
+ * el resto de campos por nombre, p.ej.
+ * {@code {"tipo":"matricula","estudiante":"e1@escuela.com","curso":"Curso 1"}}.
+ */
+public record Registro(String tipo, Map<String, String> campos) {
+
+    private static final Map<String, String[]> COLUMNAS = Map.of(
+            "profesor", new String[]{"nombre", "email"},
+            "curso", new String[]{"nombre", "creditos", "profesor"},
+            "estudiante", new String[]{"nombre", "email"},
+            "matricula", new String[]{"estudiante", "curso"});
+
+    public String campo(String nombre) {
+        String valor = campos.get(nombre);
+        if (valor == null || valor.isBlank()) {
+            throw new IllegalArgumentException("Falta el campo '" + nombre + "' en registro de tipo " + tipo);
+        }
+        return valor;
+    }
+
+    public static Registro desdeCsv(String linea) {
+        List<String> valores = separarCsv(linea);
+        String tipo = valores.get(0).trim().toLowerCase();
+        String[] columnas = COLUMNAS.get(tipo);
+        if (columnas == null) {
+            throw new IllegalArgumentException("Tipo de registro desconocido: " + tipo);
+        }
+        Map<String, String> campos = new HashMap<>();
+        for (int i = 0; i < columnas.length && i + 1 < valores.size(); i++) {
+            campos.put(columnas[i], valores.get(i + 1).trim());
+        }
+        return new Registro(tipo, campos);
+    }
+
+    public static Registro desdeJson(String linea) {
+        Map<String, String> campos = parsearObjetoPlano(linea);
+        String tipo = campos.remove("tipo");
+        if (tipo == null || !COLUMNAS.containsKey(tipo.toLowerCase())) {
+            throw new IllegalArgumentException("Tipo de registro desconocido: " + tipo);
+        }
+        return new Registro(tipo.toLowerCase(), campos);
+    }
+
+    // CSV sencillo: separador ',' y comillas dobles con "" como escape
+    private static List<String> separarCsv(String linea) {
+        List<String> valores = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == ',') {
+                valores.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        valores.add(actual.toString());
+        return valores;
+    }
+
+    // Objeto JSON de un nivel con valores cadena, número, booleano o null
+    private static Map<String, String> parsearObjetoPlano(String linea) {
+        Map<String, String> campos = new HashMap<>();
+        String s = linea.trim();
+        if (!s.startsWith("{") || !s.endsWith("}")) {
+            throw new IllegalArgumentException("Línea NDJSON no válida: " + linea);
+        }
+        int i = 1;
+        int fin = s.length() - 1;
+        while (i < fin) {
+            i = saltarEspacios(s, i);
+            if (i >= fin) {
+                break;
+            }
+            StringBuilder clave = new StringBuilder();
+            i = leerCadena(s, i, fin, clave);
+            i = saltarEspacios(s, i);
+            if (i >= fin || s.charAt(i) != ':') {
+                throw new IllegalArgumentException("Se esperaba ':' en la posición " + i + ": " + linea);
+            }
+            i = saltarEspacios(s, i + 1);
+            if (i >= fin) {
+                throw new IllegalArgumentException("Falta el valor de '" + clave + "': " + linea);
+            }
+            String valor;
+            if (s.charAt(i) == '"') {
+                StringBuilder cadena = new StringBuilder();
+                i = leerCadena(s, i, fin, cadena);
+                valor = cadena.toString();
+            } else {
+                int inicio = i;
+                while (i < fin && s.charAt(i) != ',' && !Character.isWhitespace(s.charAt(i))) {
+                    i++;
+                }
+                valor = s.substring(inicio, i);
+                if (valor.equals("null")) {
+                    valor = null;
+                }
+            }
+            campos.put(clave.toString(), valor);
+            i = saltarEspacios(s, i);
+            if (i < fin && s.charAt(i) == ',') {
+                i++;
+            }
+        }
+        return campos;
+    }
+
+    private static int saltarEspacios(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    // Cadena entre comillas que empieza en i y termina antes de fin (la llave de cierre)
+    private static int leerCadena(String s, int i, int fin, StringBuilder destino) {
+        if (s.charAt(i) != '"') {
+            throw new IllegalArgumentException("Se esperaba '\"' en la posición " + i + ": " + s);
+        }
+        i++;
+        while (i < fin && s.charAt(i) != '"') {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                if (++i >= fin) {
+                    break;
+                }
+                char siguiente = s.charAt(i);
+                switch (siguiente) {
+                    case 'n' -> destino.append('\n');
+                    case 't' -> destino.append('\t');
+                    case 'r' -> destino.append('\r');
+                    case 'u' -> {
+                        if (i + 5 > fin) {
+                            throw new IllegalArgumentException("Escape \\u incompleto en la posición " + i + ": " + s);
+                        }
+                        try {
+                            destino.append((char) Integer.parseInt(s.substring(i + 1, i + 5), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Escape \\u no válido en la posición " + i + ": " + s);
+                        }
+                        i += 4;
+                    }
+                    default -> destino.append(siguiente);
+                }
+            } else {
+                destino.append(c);
+            }
+            i++;
+        }
+        if (i >= fin) {
+            throw new IllegalArgumentException("Cadena sin cerrar: " + s);
+        }
+        return i + 1;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.importacion;
+
+/**
+ * Totales de una importación.
+ */
+public record ResumenImportacion(long lineas, long profesores, long cursos, long estudiantes,
+                                 long matriculas, long rechazadas) {
+
+    // Acumulador mutable usado mientras se recorre el fichero
+    static class Contador {
+        long lineas;
+        long profesores;
+        long cursos;
+        long estudiantes;
+        long matriculas;
+        long rechazadas;
+
+        ResumenImportacion resumen() {
+            return new ResumenImportacion(lineas, profesores, cursos, estudiantes, matriculas, rechazadas);
+        }
+    }
+}
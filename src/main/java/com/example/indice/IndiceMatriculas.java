@@ -0,0 +1,292 @@
+package com.example.indice;
+
+import com.example.EscuchaCompartida;
+import com.example.ListenersCompartidos;
+import com.example.VistaIncremental;
+import com.example.model.Matricula;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.function.Consumer;
+
+/**
+ * Índice en memoria de las matrículas (tabla estudiante_curso) para
+ * consultas de conjuntos: estudiantes en alguno de varios cursos, en todos
+ * ellos o en unos pero no en otros, sin ir a la base de datos.
+ *
+ * <p>Guarda, por curso, un bitmap comprimido (Roaring) con los ids de sus
+ * estudiantes y, por estudiante, otro con los ids de sus cursos. Se carga
+ * completo con {@link #cargar(SessionFactory)} y después se mantiene al
+ * día con listeners de Hibernate sobre {@code Estudiante.cursos} y sobre
+ * las altas y bajas de {@link Matricula}: cada cambio se aplica al índice
+ * cuando su transacción se confirma.
+ *
+ * <p>Las escrituras que no pasan por una {@code Session} (SQL nativo,
+ * JDBC, {@code StatelessSession}) no generan eventos; después de ellas
+ * hay que llamar a {@link #recargar()} o, para todos los índices y totales
+ * abiertos, a {@link ListenersCompartidos#recalcular}, como hace el
+ * importador.
+ *
+ * <p>Los métodos de consulta devuelven bitmaps nuevos que el llamante
+ * puede modificar.
+ */
+public class IndiceMatriculas extends VistaIncremental<IndiceMatriculas.Estado> {
+
+    private static final int TAMANO_FETCH = 1_000;
+
+    private final SessionFactory sessionFactory;
+    private Escucha escucha;
+
+    private IndiceMatriculas(SessionFactory sessionFactory) {
+        super(Estado::new);
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Crea el índice, lo carga desde la base de datos y registra sus
+     * listeners en la SessionFactory.
+     */
+    public static IndiceMatriculas cargar(SessionFactory sessionFactory) {
+        IndiceMatriculas indice = new IndiceMatriculas(sessionFactory);
+        indice.registrarListeners();
+        indice.recargar();
+        return indice;
+    }
+
+    /**
+     * Vuelve a leer todas las matrículas de la base de datos sin parar las
+     * consultas ni perder los cambios confirmados mientras tanto (ver
+     * {@link VistaIncremental}).
+     */
+    public void recargar() {
+        recargar(() -> {
+        });
+    }
+
+    // trasLeer se ejecuta después de leer las matrículas y antes de sustituir el índice (para los tests)
+    void recargar(Runnable trasLeer) {
+        reconstruir(nuevo -> {
+            leer(nuevo);
+            trasLeer.run();
+        });
+    }
+
+    private void leer(Estado nuevo) {
+        try (StatelessSession session = sessionFactory.openStatelessSession();
+             ScrollableResults<Object[]> filas = session.createSelectionQuery(
+                             "SELECT e.id, c.id FROM Estudiante e JOIN e.cursos c", Object[].class)
+                     .setFetchSize(TAMANO_FETCH)
+                     .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (filas.next()) {
+                Object[] fila = filas.get();
+                nuevo.matricular((Long) fila[0], (Long) fila[1]);
+            }
+        }
+        nuevo.estudiantesPorCurso.forEachValue(Roaring64NavigableMap::runOptimize);
+    }
+
+    public Roaring64NavigableMap estudiantesEnCurso(long cursoId) {
+        return consultar(estado -> copia(estado.estudiantesPorCurso.get(cursoId)));
+    }
+
+    public Roaring64NavigableMap cursosDeEstudiante(long estudianteId) {
+        return consultar(estado -> copia(estado.cursosPorEstudiante.get(estudianteId)));
+    }
+
+    /** Unión: estudiantes matriculados en al menos uno de los cursos. */
+    public Roaring64NavigableMap estudiantesEnAlguno(long... cursoIds) {
+        return consultar(estado -> {
+            Roaring64NavigableMap resultado = new Roaring64NavigableMap();
+            for (long cursoId : cursoIds) {
+                Roaring64NavigableMap estudiantes = estado.estudiantesPorCurso.get(cursoId);
+                if (estudiantes != null) {
+                    resultado.or(estudiantes);
+                }
+            }
+            return resultado;
+        });
+    }
+
+    /** Intersección: estudiantes matriculados en todos los cursos. */
+    public Roaring64NavigableMap estudiantesEnTodos(long... cursoIds) {
+        if (cursoIds.length == 0) {
+            return new Roaring64NavigableMap();
+        }
+        return consultar(estado -> {
+            // Empezar por el curso con menos estudiantes acota las siguientes intersecciones
+            Roaring64NavigableMap menor = null;
+            for (long cursoId : cursoIds) {
+                Roaring64NavigableMap estudiantes = estado.estudiantesPorCurso.get(cursoId);
+                if (estudiantes == null) {
+                    return new Roaring64NavigableMap();
+                }
+                if (menor == null || estudiantes.getLongCardinality() < menor.getLongCardinality()) {
+                    menor = estudiantes;
+                }
+            }
+            Roaring64NavigableMap resultado = copia(menor);
+            for (long cursoId : cursoIds) {
+                resultado.and(estado.estudiantesPorCurso.get(cursoId));
+            }
+            return resultado;
+        });
+    }
+
+    /**
+     * Diferencia: estudiantes matriculados en alguno de {@code cursoIds}
+     * y en ninguno de {@code excluidos}.
+     */
+    public Roaring64NavigableMap estudiantesEnAlgunoExcepto(long[] cursoIds, long... excluidos) {
+        Roaring64NavigableMap resultado = estudiantesEnAlguno(cursoIds);
+        resultado.andNot(estudiantesEnAlguno(excluidos));
+        return resultado;
+    }
+
+    /** Deja de aplicar cambios y libera los bitmaps. */
+    @Override
+    public void close() {
+        escucha.quitar(this);
+        super.close();
+    }
+
+    // Un solo listener por SessionFactory que reparte a los índices abiertos
+    private void registrarListeners() {
+        escucha = ListenersCompartidos.obtener(sessionFactory, Escucha.class, Escucha::new, (registro, nueva) -> {
+            registro.appendListeners(EventType.POST_COLLECTION_RECREATE, nueva);
+            registro.appendListeners(EventType.POST_COLLECTION_UPDATE, nueva);
+            registro.appendListeners(EventType.POST_COLLECTION_REMOVE, nueva);
+            registro.appendListeners(EventType.POST_INSERT, nueva);
+            registro.appendListeners(EventType.POST_DELETE, nueva);
+        });
+        escucha.anadir(this);
+    }
+
+    private static Roaring64NavigableMap copia(Roaring64NavigableMap bitmap) {
+        Roaring64NavigableMap resultado = new Roaring64NavigableMap();
+        if (bitmap != null) {
+            resultado.or(bitmap);
+        }
+        return resultado;
+    }
+
+    // Los bitmaps en sí; cada cambio deja el mismo resultado aunque se aplique dos veces
+    static class Estado {
+        final MapaPorId<Roaring64NavigableMap> estudiantesPorCurso = new MapaPorId<>();
+        final MapaPorId<Roaring64NavigableMap> cursosPorEstudiante = new MapaPorId<>();
+
+        void matricular(long estudianteId, long cursoId) {
+            cursosPorEstudiante.computeIfAbsent(estudianteId, k -> new Roaring64NavigableMap()).addLong(cursoId);
+            estudiantesPorCurso.computeIfAbsent(cursoId, k -> new Roaring64NavigableMap()).addLong(estudianteId);
+        }
+
+        void desmatricular(long estudianteId, long cursoId) {
+            quitar(cursosPorEstudiante, estudianteId, cursoId);
+            quitar(estudiantesPorCurso, cursoId, estudianteId);
+        }
+
+        // Sustituye los cursos de un estudiante por los indicados; se copian porque el
+        // mismo cambio se aplica a cada índice abierto y, al recargar, otra vez al nuevo
+        void actualizar(long estudianteId, Roaring64NavigableMap cursos) {
+            Roaring64NavigableMap anteriores = cursosPorEstudiante.remove(estudianteId);
+            if (anteriores != null) {
+                anteriores.forEach(cursoId -> quitar(estudiantesPorCurso, cursoId, estudianteId));
+            }
+            if (!cursos.isEmpty()) {
+                cursosPorEstudiante.put(estudianteId, copia(cursos));
+                cursos.forEach(cursoId -> estudiantesPorCurso
+                        .computeIfAbsent(cursoId, k -> new Roaring64NavigableMap())
+                        .addLong(estudianteId));
+            }
+        }
+
+        private static void quitar(MapaPorId<Roaring64NavigableMap> mapa, long clave, long valor) {
+            Roaring64NavigableMap bitmap = mapa.get(clave);
+            if (bitmap != null) {
+                bitmap.removeLong(valor);
+                if (bitmap.isEmpty()) {
+                    mapa.remove(clave);
+                }
+            }
+        }
+    }
+
+    private static class Escucha extends EscuchaCompartida<IndiceMatriculas>
+            implements PostCollectionRecreateEventListener, PostCollectionUpdateEventListener,
+            PostCollectionRemoveEventListener, PostInsertEventListener, PostDeleteEventListener {
+
+        @Override
+        public void onPostRecreateCollection(PostCollectionRecreateEvent event) {
+            actualizar(event, false);
+        }
+
+        @Override
+        public void onPostUpdateCollection(PostCollectionUpdateEvent event) {
+            actualizar(event, false);
+        }
+
+        @Override
+        public void onPostRemoveCollection(PostCollectionRemoveEvent event) {
+            actualizar(event, true);
+        }
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Matricula matricula) {
+                long estudianteId = matricula.getEstudiante().getId();
+                long cursoId = matricula.getCurso().getId();
+                aplicar(event.getSession(), e -> e.matricular(estudianteId, cursoId));
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Matricula matricula) {
+                long estudianteId = matricula.getEstudiante().getId();
+                long cursoId = matricula.getCurso().getId();
+                aplicar(event.getSession(), e -> e.desmatricular(estudianteId, cursoId));
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        @Override
+        protected void recalcular(IndiceMatriculas indice) {
+            indice.recargar();
+        }
+
+        // Se lee el estado de la colección ahora y se aplica sólo si la transacción se confirma
+        private void actualizar(AbstractCollectionEvent event, boolean eliminada) {
+            if (!hayAbiertas() || !ListenersCompartidos.esDeEstudiante(event)) {
+                return;
+            }
+            long estudianteId = (Long) event.getAffectedOwnerIdOrNull();
+            Roaring64NavigableMap cursos = cursos(event, eliminada);
+            aplicar(event.getSession(), e -> e.actualizar(estudianteId, cursos));
+        }
+
+        // Se aplica sólo si la transacción se confirma
+        private void aplicar(EventSource session, Consumer<Estado> cambio) {
+            programar(session, indice -> indice.aplicar(cambio));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.indice;
+
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Mapa de id ({@code long}) a valor con direccionamiento abierto: las
+ * claves van en un {@code long[]} sin envolver en {@code Long} ni crear una
+ * entrada por par, que en el índice de matrículas es la mayor parte de la
+ * memoria con millones de estudiantes. No admite valores null (un hueco es
+ * un valor null) y no es seguro entre hilos.
+ */
+final class MapaPorId<V> {
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private long[] claves = new long[CAPACIDAD_INICIAL];
+    private Object[] valores = new Object[CAPACIDAD_INICIAL];
+    private int tamano;
+
+    V get(long clave) {
+        int i = posicion(clave);
+        return i < 0 ? null : valor(i);
+    }
+
+    V computeIfAbsent(long clave, LongFunction<V> crear) {
+        int i = posicion(clave);
+        if (i >= 0) {
+            return valor(i);
+        }
+        V valor = crear.apply(clave);
+        put(clave, valor);
+        return valor;
+    }
+
+    void put(long clave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("El valor no puede ser null");
+        }
+        // Como mucho medio lleno, para que las búsquedas recorran pocos huecos
+        if (2 * (tamano + 1) > valores.length) {
+            crecer();
+        }
+        int mascara = valores.length - 1;
+        int i = hueco(clave, mascara);
+        while (valores[i] != null && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        if (valores[i] == null) {
+            tamano++;
+        }
+        claves[i] = clave;
+        valores[i] = valor;
+    }
+
+    V remove(long clave) {
+        int i = posicion(clave);
+        if (i < 0) {
+            return null;
+        }
+        V anterior = valor(i);
+        // Las claves siguientes de la misma secuencia se desplazan al hueco si su
+        // posición ideal no queda entre él y donde están, para no cortar la búsqueda
+        int mascara = valores.length - 1;
+        int vacio = i;
+        for (int j = (i + 1) & mascara; valores[j] != null; j = (j + 1) & mascara) {
+            int ideal = hueco(claves[j], mascara);
+            if (((j - ideal) & mascara) >= ((j - vacio) & mascara)) {
+                claves[vacio] = claves[j];
+                valores[vacio] = valores[j];
+                vacio = j;
+            }
+        }
+        valores[vacio] = null;
+        tamano--;
+        return anterior;
+    }
+
+    int size() {
+        return tamano;
+    }
+
+    void forEachValue(Consumer<? super V> accion) {
+        for (int i = 0; i < valores.length; i++) {
+            if (valores[i] != null) {
+                accion.accept(valor(i));
+            }
+        }
+    }
+
+    private int posicion(long clave) {
+        int mascara = valores.length - 1;
+        for (int i = hueco(clave, mascara); valores[i] != null; i = (i + 1) & mascara) {
+            if (claves[i] == clave) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private V valor(int i) {
+        return valor(valores, i);
+    }
+
+    private void crecer() {
+        long[] anterioresClaves = claves;
+        Object[] anterioresValores = valores;
+        claves = new long[anterioresValores.length * 2];
+        valores = new Object[anterioresValores.length * 2];
+        tamano = 0;
+        for (int i = 0; i < anterioresValores.length; i++) {
+            if (anterioresValores[i] != null) {
+                put(anterioresClaves[i], valor(anterioresValores, i));
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V valor(Object[] valores, int i) {
+        return (V) valores[i];
+    }
+
+    // Los ids son consecutivos: se mezclan los bits para repartirlos por la tabla
+    private static int hueco(long clave, int mascara) {
+        long h = clave * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mascara;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.matriculas;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Matricula;
+import com.example.model.MatriculaId;
+import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.LockModeType;
+import org.hibernate.Session;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Altas y bajas de matrículas sin pasar por {@code Estudiante.cursos}.
+ *
+ * <p>Añadir un curso con {@code estudiante.getCursos().add(curso)} carga
+ * la colección entera y en el flush Hibernate la compara con la anterior.
+ * Aquí cada matrícula es una {@link Matricula}: el curso es una referencia
+ * sin cargar, el alta es un INSERT y la baja una lectura por clave
+ * primaria y un DELETE de esa fila. Las operaciones se ejecutan en la
+ * transacción de la sesión; un alta repetida falla en el flush por la
+ * clave primaria.
+ *
+ * <p>Como al cambiar {@code Estudiante.cursos}, cada alta o baja sube la
+ * versión del estudiante: se lee con
+ * {@link LockModeType#OPTIMISTIC_FORCE_INCREMENT} y Hibernate envía el
+ * UPDATE de la versión al confirmar (en un lote si son varios). Una
+ * transacción que haya leído antes al estudiante y cambie sus matrículas
+ * por cualquiera de los dos caminos falla con un conflicto de versión, y
+ * {@link com.example.transacciones.EjecutorTransaccional} la repite. El
+ * UPDATE también bloquea la fila del estudiante hasta el commit, así que
+ * las matrículas de un mismo estudiante se confirman de una en una.
+ *
+ * <p>Las colecciones {@code Estudiante.cursos} y {@code Curso.estudiantes}
+ * afectadas se quitan de la caché de segundo nivel al terminar la
+ * transacción (ver {@link com.example.CacheColeccionesInversas}). Las que
+ * ya estén cargadas en la misma sesión no cambian.
+ */
+public class Matriculas {
+
+    public static void matricular(Session session, long estudianteId, long cursoId) {
+        session.persist(nueva(session, subirVersion(session, estudianteId), cursoId));
+    }
+
+    /**
+     * Devuelve {@code false} si el estudiante no estaba matriculado. Un
+     * DELETE en HQL se ahorraría la lectura, pero no pasa por los listeners
+     * y Hibernate vaciaría entera la región de caché de
+     * {@code Estudiante.cursos}.
+     */
+    public static boolean desmatricular(Session session, long estudianteId, long cursoId) {
+        Matricula matricula = session.find(Matricula.class, new MatriculaId(estudianteId, cursoId));
+        if (matricula == null) {
+            return false;
+        }
+        subirVersion(session, estudianteId);
+        session.remove(matricula);
+        return true;
+    }
+
+    /**
+     * Matricula a varios estudiantes en un curso con un único lote JDBC: se
+     * leen los estudiantes con una consulta y se hace flush con el tamaño de
+     * lote de la sesión ampliado al número de estudiantes (el flush también
+     * envía los demás cambios pendientes).
+     */
+    public static void matricularEnCurso(Session session, long cursoId, Collection<Long> estudianteIds) {
+        if (estudianteIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Estudiante> estudiantes = new HashMap<>();
+        for (Estudiante estudiante : session.createQuery("FROM Estudiante e WHERE e.id IN (:ids)", Estudiante.class)
+                .setParameterList("ids", estudianteIds)
+                .setLockMode(LockModeType.OPTIMISTIC_FORCE_INCREMENT)
+                .getResultList()) {
+            estudiantes.put(estudiante.getId(), estudiante);
+        }
+        Integer tamanoLote = session.getJdbcBatchSize();
+        session.setJdbcBatchSize(Math.max(estudianteIds.size(), tamanoLote == null ? 0 : tamanoLote));
+        try {
+            for (Long estudianteId : estudianteIds) {
+                session.persist(nueva(session, existente(estudiantes.get(estudianteId), estudianteId), cursoId));
+            }
+            session.flush();
+        } finally {
+            session.setJdbcBatchSize(tamanoLote);
+        }
+    }
+
+    private static Estudiante subirVersion(Session session, long estudianteId) {
+        return existente(session.find(Estudiante.class, estudianteId, LockModeType.OPTIMISTIC_FORCE_INCREMENT),
+                estudianteId);
+    }
+
+    private static Estudiante existente(Estudiante estudiante, long estudianteId) {
+        if (estudiante == null) {
+            throw new EntityNotFoundException("No existe el estudiante " + estudianteId);
+        }
+        return estudiante;
+    }
+
+    private static Matricula nueva(Session session, Estudiante estudiante, long cursoId) {
+        return new Matricula(estudiante, session.getReference(Curso.class, cursoId));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.metricas;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEvent;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEvent;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.jboss.logging.Logger;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Detecta el patrón N+1: una misma sesión que inicializa una y otra vez
+ * proxies de la misma entidad o colecciones del mismo rol, cada una con
+ * su propia SELECT casi idéntica (p.ej. recorrer cursos y llamar a
+ * {@code getProfesor().getNombre()} sin batch fetching ni JOIN FETCH).
+ *
+ * <p>Sólo cuentan las cargas perezosas que mandan alguna sentencia a la
+ * base de datos: las resueltas por un lote anterior ({@code @BatchSize})
+ * o por la caché de segundo nivel no. Las sentencias se cuentan por hilo
+ * con {@link #INSPECTOR}, que tiene que estar configurado como
+ * {@code hibernate.session_factory.statement_inspector}.
+ *
+ * <p>Cuando una sesión llega a {@code umbral} cargas perezosas de la misma
+ * entidad o rol lo avisa una vez en el log e incrementa
+ * {@code consultas_n_mas_1_total{rol=...}}. Los contadores se guardan por
+ * sesión en un mapa débil, así que desaparecen con la sesión.
+ */
+public class DetectorNMasUno implements LoadEventListener, InitializeCollectionEventListener {
+
+    private static final Logger LOG = Logger.getLogger(DetectorNMasUno.class);
+
+    // Sentencias preparadas por el hilo actual (una sesión sólo se usa desde un hilo a la vez)
+    private static final ThreadLocal<long[]> SENTENCIAS = ThreadLocal.withInitial(() -> new long[1]);
+    // Sentencias al empezar cada carga en curso; débil por si la carga falla y no llega al final
+    private static final ThreadLocal<Map<Object, Long>> INICIOS = ThreadLocal.withInitial(WeakHashMap::new);
+
+    /** Cuenta las sentencias que prepara cada hilo; no cambia el SQL. */
+    public static final StatementInspector INSPECTOR = sql -> {
+        SENTENCIAS.get()[0]++;
+        return sql;
+    };
+
+    private final RegistroMetricas metricas;
+    private final int umbral;
+    private final Map<EventSource, Map<String, Integer>> cargasPorSesion =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
+    private DetectorNMasUno(RegistroMetricas metricas, int umbral) {
+        this.metricas = metricas;
+        this.umbral = umbral;
+    }
+
+    public static DetectorNMasUno registrar(SessionFactory sessionFactory, RegistroMetricas metricas, int umbral) {
+        DetectorNMasUno detector = new DetectorNMasUno(metricas, umbral);
+        Inicio inicio = new Inicio();
+        EventListenerRegistry registro = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(EventListenerRegistry.class);
+        // Inicio antes de la carga de Hibernate y el detector después
+        registro.prependListeners(EventType.LOAD, inicio);
+        registro.prependListeners(EventType.INIT_COLLECTION, inicio);
+        registro.appendListeners(EventType.LOAD, detector);
+        registro.appendListeners(EventType.INIT_COLLECTION, detector);
+        return detector;
+    }
+
+    // IMMEDIATE_LOAD es la inicialización de un proxy perezoso
+    @Override
+    public void onLoad(LoadEvent event, LoadType tipo) {
+        if (conSentencias(event) && tipo == LoadEventListener.IMMEDIATE_LOAD) {
+            contar(event.getSession(), event.getEntityClassName());
+        }
+    }
+
+    @Override
+    public void onInitializeCollection(InitializeCollectionEvent event) {
+        if (conSentencias(event)) {
+            contar(event.getSession(), event.getCollection().getRole());
+        }
+    }
+
+    private static boolean conSentencias(Object event) {
+        Long inicio = INICIOS.get().remove(event);
+        return inicio != null && SENTENCIAS.get()[0] > inicio;
+    }
+
+    private void contar(EventSource session, String rol) {
+        int cargas;
+        synchronized (cargasPorSesion) {
+            cargas = cargasPorSesion.computeIfAbsent(session, s -> new HashMap<>()).merge(rol, 1, Integer::sum);
+        }
+        if (cargas == umbral) {
+            metricas.contador("consultas_n_mas_1_total", "Sesiones con cargas perezosas repetidas (N+1) por rol",
+                    "rol", rol).increment();
+            LOG.warnf("Posible N+1: %d cargas perezosas de %s en la sesión %s", cargas, rol,
+                    session.getSessionIdentifier());
+        }
+    }
+
+    // Apunta cuántas sentencias llevaba el hilo al empezar cada carga
+    private static class Inicio implements LoadEventListener, InitializeCollectionEventListener {
+
+        @Override
+        public void onLoad(LoadEvent event, LoadType tipo) {
+            INICIOS.get().put(event, SENTENCIAS.get()[0]);
+        }
+
+        @Override
+        public void onInitializeCollection(InitializeCollectionEvent event) {
+            INICIOS.get().put(event, SENTENCIAS.get()[0]);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.metricas;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.jboss.logging.Logger;
+
+import java.io.Serial;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Publica, por cada consulta HQL, un histograma de latencia
+ * ({@code consulta_segundos}) y el total de filas devueltas
+ * ({@code consulta_filas_total}), y escribe en el log las que tardan
+ * {@code umbralLentaMs} o más.
+ *
+ * <p>Con {@code hibernate.use_sql_comments} Hibernate antepone el HQL a su
+ * SQL como comentario: {@link #INSPECTOR} lo apunta al preparar la
+ * sentencia y este listener de sesión mide en nanosegundos su ejecución
+ * en la base de datos. Las sentencias sin HQL (cargas por id, inserciones
+ * del flush) no cuentan. Las filas salen de las estadísticas públicas de
+ * Hibernate ({@link Statistics#getQueryStatistics}) al exportar.
+ *
+ * <p>La consulta se identifica por su texto con los literales sustituidos
+ * por {@code ?} ({@link #redactar(String)}): así no aparecen datos en el
+ * log ni en las métricas y la misma consulta con distintos literales
+ * cuenta como una sola. Los parámetros ({@code :nombre}) nunca se
+ * registran.
+ *
+ * <p>Hibernate crea una instancia por sesión a partir de
+ * {@code hibernate.session.events.auto}; hasta que se llama a
+ * {@link #registrar} no mide nada.
+ */
+public class EstadisticasConsultas implements SessionEventListener {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOG = Logger.getLogger(EstadisticasConsultas.class);
+
+    private static final Pattern CADENA = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERO = Pattern.compile("(?<![\\w:.?])-?\\d+(?:\\.\\d+)?[lLdDfF]?\\b");
+    // Comentarios que pone Hibernate a sus propias sentencias, no a una consulta
+    private static final Pattern SIN_HQL = Pattern.compile("(?i)(?:(?:insert|update|delete) for |dynamic native|<criteria>)");
+
+    // HQL de la última sentencia preparada por el hilo actual, o null si no venía de una consulta
+    private static final ThreadLocal<String> HQL = new ThreadLocal<>();
+
+    /** Apunta el HQL del comentario de cada sentencia; no cambia el SQL. */
+    public static final StatementInspector INSPECTOR = sql -> {
+        HQL.set(hql(sql));
+        return sql;
+    };
+
+    // conFilas: consultas cuyo consulta_filas_total ya está registrado
+    private record Configuracion(RegistroMetricas metricas, Statistics estadisticas, long umbralLentaNanos,
+                                 Set<String> conFilas) {
+    }
+
+    private static volatile Configuracion configuracion;
+
+    private transient String hql;
+    private transient long inicio;
+
+    /**
+     * Empieza a publicar las consultas de la SessionFactory, que tiene que
+     * tener {@link #INSPECTOR} como {@code hibernate.session_factory.statement_inspector}
+     * y esta clase en {@code hibernate.session.events.auto}.
+     */
+    public static void registrar(SessionFactory sessionFactory, RegistroMetricas metricas, long umbralLentaMs) {
+        configuracion = new Configuracion(metricas, sessionFactory.getStatistics(),
+                TimeUnit.MILLISECONDS.toNanos(umbralLentaMs), ConcurrentHashMap.newKeySet());
+    }
+
+    /** Deja de publicar (al cerrar la SessionFactory). */
+    public static void eliminar() {
+        configuracion = null;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        hql = HQL.get();
+        inicio = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        long nanos = System.nanoTime() - inicio;
+        Configuracion c = configuracion;
+        if (hql == null || c == null) {
+            return;
+        }
+        String consulta = redactar(hql);
+        hql = null;
+        RegistroMetricas metricas = c.metricas();
+        metricas.histograma("consulta_segundos", "Duración de cada consulta HQL", "hql", consulta)
+                .registrarNanos(nanos);
+        if (c.conFilas().add(consulta)) {
+            metricas.registrarContador("consulta_filas_total", "Filas devueltas por cada consulta HQL",
+                    () -> filas(c.estadisticas(), consulta), "hql", consulta);
+        }
+        if (nanos >= c.umbralLentaNanos()) {
+            metricas.contador("consulta_lentas_total", "Consultas HQL por encima del umbral de lentitud", "hql", consulta)
+                    .increment();
+            LOG.warnf("Consulta lenta (%d ms): %s", TimeUnit.NANOSECONDS.toMillis(nanos), consulta);
+        }
+    }
+
+    // Suma las de todos los HQL que se redactan igual
+    private static long filas(Statistics estadisticas, String consulta) {
+        long filas = 0;
+        for (String hql : estadisticas.getQueries()) {
+            if (redactar(hql).equals(consulta)) {
+                filas += estadisticas.getQueryStatistics(hql).getExecutionRowCount();
+            }
+        }
+        return filas;
+    }
+
+    // Hibernate escribe el comentario como "/* texto */ sql"
+    private static String hql(String sql) {
+        if (!sql.startsWith("/* ")) {
+            return null;
+        }
+        int fin = sql.indexOf(" */", 3);
+        if (fin < 0 || SIN_HQL.matcher(sql).region(3, fin).lookingAt()) {
+            return null;
+        }
+        return sql.substring(3, fin);
+    }
+
+    /** Sustituye los literales de texto y numéricos de una consulta por {@code ?}. */
+    public static String redactar(String hql) {
+        String sinCadenas = CADENA.matcher(hql).replaceAll("?");
+        return NUMERO.matcher(sinCadenas).replaceAll("?").replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.metricas;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias con cubetas fijas (en segundos), al estilo de
+ * Prometheus. Registrar un valor no bloquea: cada cubeta es un
+ * {@link LongAdder}.
+ */
+public class Histograma {
+
+    static final double[] LIMITES = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025,
+            0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    private final LongAdder[] cubetas = new LongAdder[LIMITES.length + 1];
+    private final LongAdder cuenta = new LongAdder();
+    private final LongAdder sumaNanos = new LongAdder();
+
+    public Histograma() {
+        for (int i = 0; i < cubetas.length; i++) {
+            cubetas[i] = new LongAdder();
+        }
+    }
+
+    public void registrarNanos(long nanos) {
+        double segundos = nanos / 1_000_000_000.0;
+        int i = 0;
+        while (i < LIMITES.length && segundos > LIMITES[i]) {
+            i++;
+        }
+        cubetas[i].increment();
+        cuenta.increment();
+        sumaNanos.add(nanos);
+    }
+
+    public long getCuenta() {
+        return cuenta.sum();
+    }
+
+    public double getSumaSegundos() {
+        return sumaNanos.sum() / 1_000_000_000.0;
+    }
+
+    /**
+     * Estimación del percentil (0-100) en segundos: límite superior de la
+     * cubeta donde cae. Para {@code +Inf} devuelve el último límite.
+     */
+    public double percentil(double percentil) {
+        long total = getCuenta();
+        if (total == 0) {
+            return 0;
+        }
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        long acumulado = 0;
+        for (int i = 0; i < LIMITES.length; i++) {
+            acumulado += cubetas[i].sum();
+            if (acumulado >= objetivo) {
+                return LIMITES[i];
+            }
+        }
+        return LIMITES[LIMITES.length - 1];
+    }
+
+    /** Cuentas acumuladas por cubeta; la última posición corresponde a {@code +Inf}. */
+    long[] acumulados() {
+        long[] resultado = new long[cubetas.length];
+        long acumulado = 0;
+        for (int i = 0; i < cubetas.length; i++) {
+            acumulado += cubetas[i].sum();
+            resultado[i] = acumulado;
+        }
+        return resultado;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.metricas;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+/**
+ * Publica en un {@link RegistroMetricas} los aciertos, fallos, inserciones,
+ * expulsiones y tamaño de cada región de la caché de segundo nivel, y los
+ * totales de la caché de consultas y de la de planes de consulta.
+ *
+ * <p>Aciertos, fallos e inserciones vienen de las estadísticas de Hibernate
+ * ({@code hibernate.generate_statistics}); las expulsiones las lleva el
+ * proveedor JCache y se leen de su MBean {@code CacheStatistics}
+ * ({@code monitoring.statistics} en caffeine.conf).
+ */
+public class MetricasCache {
+
+    public static void registrar(SessionFactory sessionFactory, RegistroMetricas metricas) {
+        Statistics estadisticas = sessionFactory.getStatistics();
+        metricas.registrarContador("cache_consultas_aciertos_total", "Consultas servidas por la caché de consultas",
+                estadisticas::getQueryCacheHitCount);
+        metricas.registrarContador("cache_consultas_fallos_total", "Consultas cacheables no encontradas en la caché",
+                estadisticas::getQueryCacheMissCount);
+        metricas.registrarContador("cache_consultas_inserciones_total", "Resultados guardados en la caché de consultas",
+                estadisticas::getQueryCachePutCount);
+        metricas.registrarContador("cache_planes_aciertos_total", "Consultas HQL ya traducidas en la caché de planes",
+                estadisticas::getQueryPlanCacheHitCount);
+        metricas.registrarContador("cache_planes_fallos_total", "Consultas HQL que hubo que traducir",
+                estadisticas::getQueryPlanCacheMissCount);
+        for (String region : estadisticas.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics r = estadisticas.getCacheRegionStatistics(region);
+            if (r == null) {
+                continue;
+            }
+            metricas.registrarContador("cache_aciertos_total", "Lecturas servidas por la caché de segundo nivel",
+                    r::getHitCount, "region", region);
+            metricas.registrarContador("cache_fallos_total", "Lecturas no encontradas en la caché de segundo nivel",
+                    r::getMissCount, "region", region);
+            metricas.registrarContador("cache_inserciones_total", "Elementos puestos en la caché de segundo nivel",
+                    r::getPutCount, "region", region);
+            metricas.registrarContador("cache_expulsiones_total", "Elementos expulsados por tamaño o caducidad",
+                    () -> expulsiones(region), "region", region);
+            metricas.registrarIndicador("cache_elementos", "Elementos en memoria en la región",
+                    r::getElementCountInMemory, "region", region);
+        }
+    }
+
+    static long expulsiones(String region) {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            Set<ObjectName> nombres = servidor.queryNames(
+                    new ObjectName("javax.cache:type=CacheStatistics,Cache=" + region + ",*"), null);
+            long total = 0;
+            for (ObjectName nombre : nombres) {
+                total += ((Number) servidor.getAttribute(nombre, "CacheEvictions")).longValue();
+            }
+            return total;
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
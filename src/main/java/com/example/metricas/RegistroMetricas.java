@@ -0,0 +1,121 @@
+package com.example.metricas;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Registro de indicadores, contadores e histogramas de la aplicación.
+ * Se exporta en el formato de texto de Prometheus con
+ * {@link #exportarPrometheus()} (ver {@link ServidorMetricas}).
+ *
+ * <p>Cada métrica puede llevar etiquetas, que se pasan como pares
+ * clave/valor: {@code histograma("consulta_segundos", "...", "hql", hql)}.
+ */
+public class RegistroMetricas {
+
+    private enum Tipo {GAUGE, COUNTER, HISTOGRAM}
+
+    private record Familia(Tipo tipo, String ayuda, Map<String, Object> series) {
+    }
+
+    private final Map<String, Familia> familias = new ConcurrentSkipListMap<>();
+
+    public void registrarIndicador(String nombre, String ayuda, Supplier<? extends Number> valor, String... etiquetas) {
+        familia(nombre, Tipo.GAUGE, ayuda).series().put(etiquetas(etiquetas), valor);
+    }
+
+    /** Contador cuyo valor lleva otro componente (p.ej. las estadísticas de Hibernate). */
+    public void registrarContador(String nombre, String ayuda, Supplier<? extends Number> valor, String... etiquetas) {
+        familia(nombre, Tipo.COUNTER, ayuda).series().put(etiquetas(etiquetas), valor);
+    }
+
+    public LongAdder contador(String nombre, String ayuda, String... etiquetas) {
+        return (LongAdder) familia(nombre, Tipo.COUNTER, ayuda).series()
+                .computeIfAbsent(etiquetas(etiquetas), k -> new LongAdder());
+    }
+
+    public Histograma histograma(String nombre, String ayuda, String... etiquetas) {
+        return (Histograma) familia(nombre, Tipo.HISTOGRAM, ayuda).series()
+                .computeIfAbsent(etiquetas(etiquetas), k -> new Histograma());
+    }
+
+    /** Elimina todas las series de una métrica. */
+    public void eliminar(String nombre) {
+        familias.remove(nombre);
+    }
+
+    /** Elimina la serie de una métrica con esas etiquetas (p.ej. al cerrar el pool que la alimentaba). */
+    public void eliminar(String nombre, String... etiquetas) {
+        String clave = etiquetas(etiquetas);
+        familias.computeIfPresent(nombre, (k, familia) -> {
+            familia.series().remove(clave);
+            return familia.series().isEmpty() ? null : familia;
+        });
+    }
+
+    public String exportarPrometheus() {
+        StringBuilder sb = new StringBuilder();
+        familias.forEach((nombre, familia) -> {
+            sb.append("# HELP ").append(nombre).append(' ').append(familia.ayuda()).append('\n');
+            sb.append("# TYPE ").append(nombre).append(' ').append(familia.tipo().name().toLowerCase()).append('\n');
+            familia.series().forEach((etiquetas, serie) -> {
+                switch (familia.tipo()) {
+                    case GAUGE -> linea(sb, nombre, etiquetas, ((Supplier<?>) serie).get());
+                    case COUNTER -> linea(sb, nombre, etiquetas,
+                            serie instanceof LongAdder adder ? adder.sum() : ((Supplier<?>) serie).get());
+                    case HISTOGRAM -> {
+                        Histograma h = (Histograma) serie;
+                        long[] acumulados = h.acumulados();
+                        for (int i = 0; i < acumulados.length; i++) {
+                            String le = i < Histograma.LIMITES.length ? formatear(Histograma.LIMITES[i]) : "+Inf";
+                            linea(sb, nombre + "_bucket", anadirEtiqueta(etiquetas, "le", le), acumulados[i]);
+                        }
+                        linea(sb, nombre + "_sum", etiquetas, h.getSumaSegundos());
+                        linea(sb, nombre + "_count", etiquetas, h.getCuenta());
+                    }
+                }
+            });
+        });
+        return sb.toString();
+    }
+
+    private Familia familia(String nombre, Tipo tipo, String ayuda) {
+        Familia familia = familias.computeIfAbsent(nombre, k -> new Familia(tipo, ayuda, new ConcurrentHashMap<>()));
+        if (familia.tipo() != tipo) {
+            throw new IllegalArgumentException("La métrica " + nombre + " ya está registrada como " + familia.tipo());
+        }
+        return familia;
+    }
+
+    private static String etiquetas(String... pares) {
+        if (pares.length % 2 != 0) {
+            throw new IllegalArgumentException("Las etiquetas deben ir en pares clave/valor");
+        }
+        String resultado = "";
+        for (int i = 0; i < pares.length; i += 2) {
+            resultado = anadirEtiqueta(resultado, pares[i], pares[i + 1]);
+        }
+        return resultado;
+    }
+
+    private static String anadirEtiqueta(String etiquetas, String clave, String valor) {
+        String par = clave + "=\"" + valor.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+        return etiquetas.isEmpty() ? par : etiquetas + "," + par;
+    }
+
+    private static void linea(StringBuilder sb, String nombre, String etiquetas, Object valor) {
+        sb.append(nombre);
+        if (!etiquetas.isEmpty()) {
+            sb.append('{').append(etiquetas).append('}');
+        }
+        sb.append(' ').append(valor instanceof Double d ? formatear(d) : String.valueOf(valor)).append('\n');
+    }
+
+    private static String formatear(double valor) {
+        return String.format(Locale.ROOT, "%s", valor);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.metricas;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Servidor HTTP mínimo (el del JDK) que publica un {@link RegistroMetricas}
+ * en {@code /metrics} para que Prometheus lo pueda leer.
+ */
+public class ServidorMetricas implements AutoCloseable {
+
+    private final HttpServer servidor;
+
+    private ServidorMetricas(HttpServer servidor) {
+        this.servidor = servidor;
+    }
+
+    public static ServidorMetricas iniciar(int puerto, RegistroMetricas metricas) throws IOException {
+        HttpServer servidor = HttpServer.create(new InetSocketAddress(puerto), 0);
+        servidor.createContext("/metrics", intercambio -> {
+            byte[] cuerpo = metricas.exportarPrometheus().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            try (OutputStream os = intercambio.getResponseBody()) {
+                os.write(cuerpo);
+            }
+        });
+        servidor.start();
+        return new ServidorMetricas(servidor);
+    }
+
+    public int getPuerto() {
+        return servidor.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        servidor.stop(0);
+    }
+}
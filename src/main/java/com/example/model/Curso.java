@@ -1,24 +1,64 @@
 package com.example.model;
 
+import com.example.consultas.CursoResumen;
 import jakarta.persistence.*;
+import org.hibernate.Hibernate;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_curso_nombre", columnList = "nombre"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "curso")
+@BatchSize(size = 25)
+@NamedEntityGraph(name = Curso.GRAFO_PROFESOR, attributeNodes = @NamedAttributeNode("profesor"))
+@NamedEntityGraph(name = Curso.GRAFO_ESTUDIANTES, attributeNodes = @NamedAttributeNode("estudiantes"))
+@NamedQuery(name = Curso.POR_IDS, query = "FROM Curso c WHERE c.id IN (:ids)")
+@NamedQuery(name = Curso.ID_POR_NOMBRE, query = "SELECT c.id FROM Curso c WHERE c.nombre = :nombre")
+@NamedQuery(name = Curso.IDS_POR_NOMBRES, query = "SELECT c.id FROM Curso c WHERE c.nombre IN (:nombres)")
+@NamedQuery(name = Curso.RESUMENES_DE_ESTUDIANTE,
+        query = "SELECT new com.example.consultas.CursoResumen(c.id, c.nombre, c.creditos, p.nombre) "
+                + "FROM Estudiante e JOIN e.cursos c LEFT JOIN c.profesor p "
+                + "WHERE e.id = :estudianteId ORDER BY c.id")
 public class Curso {
+    public static final String GRAFO_PROFESOR = "curso-with-profesor";
+    public static final String GRAFO_ESTUDIANTES = "curso-with-estudiantes";
+
+    public static final String POR_IDS = "Curso.porIds";
+    public static final String ID_POR_NOMBRE = "Curso.idPorNombre";
+    public static final String IDS_POR_NOMBRES = "Curso.idsPorNombres";
+    public static final String RESUMENES_DE_ESTUDIANTE = "Curso.resumenesDeEstudiante";
+
+    /** Tipo de resultado de cada consulta nombrada, el mismo que se pide al crearla. */
+    public static final Map<String, Class<?>> TIPOS_CONSULTAS = Map.of(
+            POR_IDS, Curso.class,
+            ID_POR_NOMBRE, Long.class,
+            IDS_POR_NOMBRES, Long.class,
+            RESUMENES_DE_ESTUDIANTE, CursoResumen.class);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "curso_seq")
+    @SequenceGenerator(name = "curso_seq", sequenceName = "curso_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    private long version;
+
     private String nombre;
     private double creditos;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="profesor_id")
     private Profesor profesor;
 
     @ManyToMany(mappedBy = "cursos")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "curso_estudiantes")
+    @BatchSize(size = 25)
     private Set<Estudiante> estudiantes = new HashSet<>();
 
     public Curso() {
@@ -32,6 +72,10 @@ public class Curso {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getNombre() {
         return nombre;
     }
@@ -70,13 +114,17 @@ public class Curso {
         this.profesor = profesor;
     }
 
+    // Si el profesor aún es un proxy no se carga: listar cursos no debe
+    // lanzar una consulta por curso
     @Override
     public String toString() {
         return "Curso{" +
                 "id=" + id +
                 ", nombre='" + nombre + '\'' +
                 ", creditos=" + creditos +
-                ", profesor=" + profesor.getNombre() +
+                (profesor == null ? ""
+                        : Hibernate.isInitialized(profesor) ? ", profesor=" + profesor.getNombre()
+                        : ", profesorId=" + profesor.getId()) +
                 '}';
     }
 }
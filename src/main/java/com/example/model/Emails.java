@@ -0,0 +1,21 @@
+package com.example.model;
+
+import java.util.Locale;
+
+/**
+ * El email es la clave natural de {@link Estudiante} y {@link Profesor}:
+ * único y con su propia caché email -&gt; id (ver
+ * {@link com.example.consultas.BusquedaPorEmail}). Esa caché y los mapas
+ * en memoria comparan el texto exacto, mientras que la base de datos puede
+ * comparar sin distinguir mayúsculas, así que se guarda y se busca siempre
+ * normalizado: sin espacios alrededor y en minúsculas.
+ */
+public final class Emails {
+
+    private Emails() {
+    }
+
+    public static String normalizar(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,23 +1,73 @@
 package com.example.model;
 
+import com.example.consultas.EstudianteResumen;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Fetch;
+import org.hibernate.annotations.FetchMode;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_estudiante_nombre_id", columnList = "nombre, id"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "estudiante")
+@NaturalIdCache(region = "estudiante_email")
+@NamedEntityGraph(name = Estudiante.GRAFO_CURSOS, attributeNodes = @NamedAttributeNode("cursos"))
+@NamedEntityGraph(name = Estudiante.GRAFO_CURSOS_Y_PROFESOR,
+        attributeNodes = @NamedAttributeNode(value = "cursos", subgraph = "cursos"),
+        subgraphs = @NamedSubgraph(name = "cursos", attributeNodes = @NamedAttributeNode("profesor")))
+@NamedQuery(name = Estudiante.POR_IDS, query = "FROM Estudiante e WHERE e.id IN (:ids)")
+@NamedQuery(name = Estudiante.POR_CURSOS,
+        query = "SELECT c.id, e.id, e.nombre, e.email FROM Estudiante e JOIN e.cursos c "
+                + "WHERE c.id IN (:cursoIds) ORDER BY e.id")
+@NamedQuery(name = Estudiante.ID_POR_EMAIL, query = "SELECT e.id FROM Estudiante e WHERE e.email = :email")
+@NamedQuery(name = Estudiante.RESUMEN,
+        query = "SELECT new com.example.consultas.EstudianteResumen(e.id, e.nombre, e.email) "
+                + "FROM Estudiante e WHERE e.id = :estudianteId")
 public class Estudiante {
+    public static final String GRAFO_CURSOS = "estudiante-with-cursos";
+    public static final String GRAFO_CURSOS_Y_PROFESOR = "estudiante-with-cursos-and-profesor";
+
+    public static final String POR_IDS = "Estudiante.porIds";
+    public static final String POR_CURSOS = "Estudiante.porCursos";
+    public static final String ID_POR_EMAIL = "Estudiante.idPorEmail";
+    public static final String RESUMEN = "Estudiante.resumen";
+
+    /** Tipo de resultado de cada consulta nombrada, el mismo que se pide al crearla. */
+    public static final Map<String, Class<?>> TIPOS_CONSULTAS = Map.of(
+            POR_IDS, Estudiante.class,
+            POR_CURSOS, Object[].class,
+            ID_POR_EMAIL, Long.class,
+            RESUMEN, EstudianteResumen.class);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "estudiante_seq")
+    @SequenceGenerator(name = "estudiante_seq", sequenceName = "estudiante_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    private long version;
+
+    @Column(nullable = false)
     private String nombre;
+
+    @NaturalId(mutable = true)
+    @Column(nullable = false)
     private String email;
 
     @ManyToMany
     @JoinTable(name = "estudiante_curso",
             joinColumns =@JoinColumn(name="estudiante_id", referencedColumnName = "id"),
-            inverseJoinColumns = @JoinColumn(name = "curso_id", referencedColumnName = "id"))
+            inverseJoinColumns = @JoinColumn(name = "curso_id", referencedColumnName = "id"),
+            indexes = @Index(name = "idx_estudiante_curso_estudiante", columnList = "estudiante_id, curso_id"))
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "estudiante_cursos")
+    @Fetch(FetchMode.SUBSELECT)
     private Set<Curso> cursos = new HashSet<>();
 
     public Estudiante() {
@@ -25,7 +75,7 @@ public class Estudiante {
 
     public Estudiante(String nombre, String email) {
         this.nombre = nombre;
-        this.email = email;
+        this.email = Emails.normalizar(email);
     }
 
     public Long getId() {
@@ -36,6 +86,10 @@ public class Estudiante {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getNombre() {
         return nombre;
     }
@@ -49,7 +103,7 @@ public class Estudiante {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = Emails.normalizar(email);
     }
 
     public Set<Curso> getCursos() {
@@ -0,0 +1,55 @@
+package com.example.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Una fila de la tabla estudiante_curso vista como entidad: la matrícula
+ * de un estudiante en un curso.
+ *
+ * <p>Es la misma tabla que la colección {@code Estudiante.cursos}, pero
+ * dar de alta o de baja una matrícula con esta entidad es un INSERT o
+ * DELETE de una fila, sin cargar la colección entera del estudiante ni la
+ * del curso. Se escribe con {@link com.example.matriculas.Matriculas},
+ * que además sube la versión del estudiante como lo haría cambiar su
+ * colección. Las colecciones ya cargadas en la misma sesión no se enteran
+ * del cambio.
+ */
+@Entity
+@Table(name = "estudiante_curso")
+@IdClass(MatriculaId.class)
+public class Matricula {
+
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "estudiante_id")
+    private Estudiante estudiante;
+
+    @Id
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "curso_id")
+    private Curso curso;
+
+    public Matricula() {
+    }
+
+    public Matricula(Estudiante estudiante, Curso curso) {
+        this.estudiante = estudiante;
+        this.curso = curso;
+    }
+
+    public Estudiante getEstudiante() {
+        return estudiante;
+    }
+
+    public Curso getCurso() {
+        return curso;
+    }
+
+    @Override
+    public String toString() {
+        return "Matricula{" +
+                "estudianteId=" + estudiante.getId() +
+                ", cursoId=" + curso.getId() +
+                '}';
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.model;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.Objects;
+
+/** Clave de {@link Matricula}: los ids del estudiante y del curso. */
+public class MatriculaId implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long estudiante;
+    private Long curso;
+
+    public MatriculaId() {
+    }
+
+    public MatriculaId(Long estudiante, Long curso) {
+        this.estudiante = estudiante;
+        this.curso = curso;
+    }
+
+    public Long getEstudiante() {
+        return estudiante;
+    }
+
+    public Long getCurso() {
+        return curso;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MatriculaId otra
+                && Objects.equals(estudiante, otra.estudiante)
+                && Objects.equals(curso, otra.curso);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(estudiante, curso);
+    }
+}
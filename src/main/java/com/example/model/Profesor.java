@@ -1,20 +1,56 @@
 package com.example.model;
 
+import com.example.consultas.ProfesorResumen;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_profesor_nombre", columnList = "nombre"))
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "profesor")
+@NaturalIdCache(region = "profesor_email")
+@BatchSize(size = 25)
+@NamedQuery(name = Profesor.ID_POR_EMAIL, query = "SELECT p.id FROM Profesor p WHERE p.email = :email")
+@NamedQuery(name = Profesor.RESUMENES_DE_ESTUDIANTE,
+        query = "SELECT new com.example.consultas.ProfesorResumen(p.id, p.nombre, p.email, COUNT(todos)) "
+                + "FROM Profesor p JOIN Curso todos ON todos.profesor = p "
+                + "WHERE p.id IN (SELECT c.profesor.id FROM Estudiante e JOIN e.cursos c "
+                + "WHERE e.id = :estudianteId) "
+                + "GROUP BY p.id, p.nombre, p.email ORDER BY p.id")
 public class Profesor {
+    public static final String ID_POR_EMAIL = "Profesor.idPorEmail";
+    public static final String RESUMENES_DE_ESTUDIANTE = "Profesor.resumenesDeEstudiante";
+
+    /** Tipo de resultado de cada consulta nombrada, el mismo que se pide al crearla. */
+    public static final Map<String, Class<?>> TIPOS_CONSULTAS = Map.of(
+            ID_POR_EMAIL, Long.class,
+            RESUMENES_DE_ESTUDIANTE, ProfesorResumen.class);
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "profesor_seq")
+    @SequenceGenerator(name = "profesor_seq", sequenceName = "profesor_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    private long version;
+
     private String nombre;
+
+    @NaturalId(mutable = true)
+    @Column(nullable = false)
     private String email;
 
     @OneToMany(mappedBy = "profesor")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "profesor_cursos")
+    @BatchSize(size = 25)
     private Set<Curso> cursos = new HashSet<>();
 
     public Profesor() {
@@ -22,7 +58,7 @@ public class Profesor {
 
     public Profesor(String nombre, String email) {
         this.nombre = nombre;
-        this.email = email;
+        this.email = Emails.normalizar(email);
     }
 
     public Long getId() {
@@ -33,6 +69,10 @@ public class Profesor {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     public String getNombre() {
         return nombre;
     }
@@ -46,7 +86,7 @@ public class Profesor {
     }
 
     public void setEmail(String email) {
-        this.email = email;
+        this.email = Emails.normalizar(email);
     }
 
     public Set<Curso> getCursos() {
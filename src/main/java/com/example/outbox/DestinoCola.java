@@ -0,0 +1,37 @@
+package com.example.outbox;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Pone los eventos en una cola en memoria de la que leen los consumidores
+ * del mismo proceso (en lugar de un broker de mensajes). Con la cola llena
+ * el relevo espera.
+ */
+public class DestinoCola implements DestinoEventos {
+
+    private final BlockingQueue<EventoCambio> cola;
+
+    public DestinoCola(int capacidad) {
+        this.cola = new LinkedBlockingQueue<>(capacidad);
+    }
+
+    public BlockingQueue<EventoCambio> cola() {
+        return cola;
+    }
+
+    @Override
+    public void enviar(List<EventoCambio> eventos) throws IOException {
+        try {
+            for (EventoCambio evento : eventos) {
+                cola.put(evento);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Envío a la cola interrumpido");
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Adónde envía {@link RelevoOutbox} los eventos. Si {@link #enviar(List)}
+ * termina sin excepción el lote se da por entregado y se borra de la
+ * tabla; si lanza, se vuelve a enviar entero más tarde, así que un
+ * consumidor puede recibir un evento más de una vez (descartable por
+ * {@link EventoCambio#id()}).
+ */
+@FunctionalInterface
+public interface DestinoEventos {
+
+    /** Envía los eventos en el orden recibido (orden de {@code id}). */
+    void enviar(List<EventoCambio> eventos) throws IOException;
+}
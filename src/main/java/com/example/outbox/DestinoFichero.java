@@ -0,0 +1,41 @@
+package com.example.outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Añade cada evento como una línea JSON al final de un fichero. Cada lote
+ * se fuerza a disco antes de darlo por entregado.
+ */
+public class DestinoFichero implements DestinoEventos, AutoCloseable {
+
+    private final FileChannel canal;
+
+    public DestinoFichero(Path fichero) throws IOException {
+        this.canal = FileChannel.open(fichero, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void enviar(List<EventoCambio> eventos) throws IOException {
+        StringBuilder sb = new StringBuilder(eventos.size() * 128);
+        for (EventoCambio evento : eventos) {
+            sb.append(evento.toJson()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        canal.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
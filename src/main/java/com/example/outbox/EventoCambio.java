@@ -0,0 +1,52 @@
+package com.example.outbox;
+
+import java.time.Instant;
+
+/**
+ * Cambio de un estudiante, curso o profesor leído de la tabla
+ * {@code outbox}.
+ *
+ * @param id         posición en el flujo; creciente y única, sirve a los
+ *                   consumidores para descartar repeticiones
+ * @param agregado   {@code Estudiante}, {@code Curso} o {@code Profesor}
+ * @param agregadoId id de la entidad cambiada
+ * @param tipo       {@code ALTA}, {@code CAMBIO}, {@code BAJA} o {@code MATRICULA}
+ * @param datos      objeto JSON con los campos nuevos (sólo los cambiados en
+ *                   {@code CAMBIO}) o, en {@code MATRICULA}, los ids de curso
+ *                   en {@code altas} y {@code bajas}
+ * @param creado     momento de la confirmación de la transacción
+ */
+public record EventoCambio(long id, String agregado, long agregadoId, String tipo, String datos, Instant creado) {
+
+    /** El evento como una línea JSON, con {@code datos} anidado. */
+    public String toJson() {
+        return "{\"id\":" + id
+                + ",\"agregado\":" + texto(agregado)
+                + ",\"agregado_id\":" + agregadoId
+                + ",\"tipo\":" + texto(tipo)
+                + ",\"datos\":" + datos
+                + ",\"creado\":" + texto(creado.toString()) + '}';
+    }
+
+    static String texto(String valor) {
+        StringBuilder sb = new StringBuilder(valor.length() + 2).append('"');
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
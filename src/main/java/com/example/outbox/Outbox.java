@@ -0,0 +1,377 @@
+package com.example.outbox;
+
+import com.example.EscuchaCompartida;
+import com.example.ListenersCompartidos;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Matricula;
+import com.example.model.Profesor;
+import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.event.spi.PreCollectionRecreateEvent;
+import org.hibernate.event.spi.PreCollectionRecreateEventListener;
+import org.hibernate.event.spi.PreCollectionRemoveEvent;
+import org.hibernate.event.spi.PreCollectionRemoveEventListener;
+import org.hibernate.event.spi.PreCollectionUpdateEvent;
+import org.hibernate.event.spi.PreCollectionUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+
+/**
+ * Escribe en la tabla {@code outbox} un evento por cada alta, cambio o baja
+ * de estudiantes, cursos y profesores y por cada cambio de matrículas
+ * ({@code Estudiante.cursos} o {@link Matricula}), en la misma transacción
+ * que el cambio: si se confirma quedan los dos y si se deshace ninguno.
+ * {@link RelevoOutbox} los envía después a los consumidores.
+ *
+ * <p>Los eventos son compactos: un {@code CAMBIO} sólo lleva los campos
+ * que han cambiado y una {@code MATRICULA} sólo los cursos que se añaden y
+ * se quitan al estudiante. Se acumulan durante la sesión y se insertan en
+ * un solo lote JDBC justo antes del commit.
+ *
+ * <p>Los eventos de una entidad tienen ids en el orden en que se confirman
+ * sus cambios, porque cada transacción tiene bloqueada su fila al
+ * escribirlos: altas, cambios y bajas la escriben, y cambiar
+ * {@code Estudiante.cursos} o una {@link Matricula} sube su versión (ver
+ * {@link com.example.matriculas.Matriculas}).
+ *
+ * <p>Los eventos se escriben mientras haya algún {@code Outbox} abierto.
+ * Igual que en {@link com.example.indice.IndiceMatriculas}, las escrituras
+ * que no pasan por una {@code Session} (HQL masivo, {@code StatelessSession})
+ * no generan eventos; quien las haga tiene que anotarlos en un
+ * {@link Lote}, como el importador.
+ */
+public class Outbox implements AutoCloseable {
+
+    private static final String INSERTAR =
+            "INSERT INTO outbox (agregado, agregado_id, tipo, datos, creado) VALUES (?, ?, ?, ?, ?)";
+    /** Propiedades que se publican; el resto (versión, colecciones) no interesan fuera. */
+    private static final Set<String> CAMPOS = Set.of("nombre", "email", "creditos", "profesor");
+
+    private record Pendiente(String agregado, long agregadoId, String tipo, String datos) {
+    }
+
+    private final SessionFactory sessionFactory;
+    private Escucha escucha;
+
+    private Outbox(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /** Registra los listeners en la SessionFactory y empieza a escribir eventos. */
+    public static Outbox abrir(SessionFactory sessionFactory) {
+        Outbox outbox = new Outbox(sessionFactory);
+        outbox.registrarListeners();
+        return outbox;
+    }
+
+    /** Deja de escribir eventos (si no queda otro {@code Outbox} abierto). */
+    @Override
+    public void close() {
+        escucha.quitar(this);
+    }
+
+    // Un solo listener por SessionFactory
+    private void registrarListeners() {
+        escucha = ListenersCompartidos.obtener(sessionFactory, Escucha.class, Escucha::new, (registro, nueva) -> {
+            registro.appendListeners(EventType.POST_INSERT, nueva);
+            registro.appendListeners(EventType.POST_UPDATE, nueva);
+            registro.appendListeners(EventType.POST_DELETE, nueva);
+            registro.appendListeners(EventType.PRE_COLLECTION_RECREATE, nueva);
+            registro.appendListeners(EventType.PRE_COLLECTION_UPDATE, nueva);
+            registro.appendListeners(EventType.PRE_COLLECTION_REMOVE, nueva);
+        });
+        escucha.anadir(this);
+    }
+
+    /**
+     * Lote de eventos de escrituras que no pasan por una {@code Session}.
+     * Hay que escribirlo con {@link Lote#escribir} en la misma transacción
+     * que los cambios, antes del commit, después de subir la versión de los
+     * estudiantes cuyas matrículas cambian (así sus eventos quedan en orden,
+     * igual que con {@link com.example.matriculas.Matriculas}). Si no hay
+     * ningún {@code Outbox} abierto no anota nada.
+     */
+    public static Lote lote(SessionFactory sessionFactory) {
+        return new Lote(sessionFactory.unwrap(SessionFactoryImplementor.class));
+    }
+
+    public static final class Lote {
+
+        private final SessionFactoryImplementor sessionFactory;
+        private final List<Pendiente> pendientes = new ArrayList<>();
+
+        private Lote(SessionFactoryImplementor sessionFactory) {
+            this.sessionFactory = sessionFactory;
+        }
+
+        /** Alta de un estudiante, curso o profesor ya insertado con el id indicado. */
+        public void alta(Object entidad, long id) {
+            String agregado = agregado(entidad);
+            if (agregado == null) {
+                throw new IllegalArgumentException("No se publican eventos de " + entidad.getClass().getName());
+            }
+            if (abierto()) {
+                EntityPersister persister = sessionFactory.getMappingMetamodel()
+                        .getEntityDescriptor(entidad.getClass());
+                String datos = datos(persister, persister.getValues(entidad), null);
+                pendientes.add(new Pendiente(agregado, id, "ALTA", datos));
+            }
+        }
+
+        /** Cursos en los que se ha matriculado el estudiante. */
+        public void matricular(long estudianteId, Collection<Long> altas) {
+            if (!altas.isEmpty() && abierto()) {
+                pendientes.add(new Pendiente("Estudiante", estudianteId, "MATRICULA",
+                        matriculas(new TreeSet<>(altas), List.of())));
+            }
+        }
+
+        /** Inserta los eventos anotados en la transacción en curso de la sesión y vacía el lote. */
+        public void escribir(SharedSessionContract session) {
+            if (!pendientes.isEmpty()) {
+                insertar(session, pendientes);
+                pendientes.clear();
+            }
+        }
+
+        private boolean abierto() {
+            Escucha escucha = ListenersCompartidos.buscar(sessionFactory, Escucha.class);
+            return escucha != null && escucha.hayAbiertas();
+        }
+    }
+
+    private static void insertar(SharedSessionContract session, List<Pendiente> eventos) {
+        Timestamp creado = Timestamp.from(Instant.now());
+        session.doWork(conexion -> {
+            try (PreparedStatement ps = conexion.prepareStatement(INSERTAR)) {
+                for (Pendiente evento : eventos) {
+                    ps.setString(1, evento.agregado());
+                    ps.setLong(2, evento.agregadoId());
+                    ps.setString(3, evento.tipo());
+                    ps.setString(4, evento.datos());
+                    ps.setTimestamp(5, creado);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    private static String agregado(Object entidad) {
+        if (entidad instanceof Estudiante) {
+            return "Estudiante";
+        } else if (entidad instanceof Curso) {
+            return "Curso";
+        } else if (entidad instanceof Profesor) {
+            return "Profesor";
+        }
+        return null;
+    }
+
+    // Campos publicables entre los indicados (todos si indices es null); null si no hay ninguno
+    private static String datos(EntityPersister persister, Object[] estado, int[] indices) {
+        String[] propiedades = persister.getPropertyNames();
+        StringBuilder sb = new StringBuilder("{");
+        int total = indices == null ? propiedades.length : indices.length;
+        for (int j = 0; j < total; j++) {
+            int i = indices == null ? j : indices[j];
+            if (!CAMPOS.contains(propiedades[i])) {
+                continue;
+            }
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            sb.append(EventoCambio.texto(propiedades[i])).append(':').append(valor(estado[i]));
+        }
+        return sb.length() == 1 && indices != null ? null : sb.append('}').toString();
+    }
+
+    private static String valor(Object valor) {
+        if (valor == null) {
+            return "null";
+        } else if (valor instanceof Number) {
+            return valor.toString();
+        } else if (valor instanceof Profesor profesor) {
+            return String.valueOf(profesor.getId());
+        }
+        return EventoCambio.texto(valor.toString());
+    }
+
+    private static String matriculas(Collection<Long> altas, Collection<Long> bajas) {
+        StringBuilder sb = new StringBuilder("{");
+        if (!altas.isEmpty()) {
+            sb.append("\"altas\":").append(lista(altas));
+        }
+        if (!bajas.isEmpty()) {
+            sb.append(sb.length() > 1 ? "," : "").append("\"bajas\":").append(lista(bajas));
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String lista(Collection<Long> ids) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Long id : ids) {
+            sb.append(sb.length() > 1 ? "," : "").append(id);
+        }
+        return sb.append(']').toString();
+    }
+
+    private static SortedSet<Long> ids(Collection<?> cursos) {
+        SortedSet<Long> ids = new TreeSet<>();
+        for (Object curso : cursos) {
+            ids.add(((Curso) curso).getId());
+        }
+        return ids;
+    }
+
+    private static class Escucha extends EscuchaCompartida<Outbox>
+            implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+            PreCollectionRecreateEventListener, PreCollectionUpdateEventListener,
+            PreCollectionRemoveEventListener {
+        // Eventos de la transacción en curso de cada sesión
+        private final Map<EventSource, List<Pendiente>> lotes = Collections.synchronizedMap(new WeakHashMap<>());
+
+        @Override
+        public void onPostInsert(PostInsertEvent event) {
+            if (event.getEntity() instanceof Matricula matricula) {
+                anotar(event.getSession(), "Estudiante", matricula.getEstudiante().getId(), "MATRICULA",
+                        matriculas(List.of(matricula.getCurso().getId()), List.of()));
+                return;
+            }
+            String agregado = agregado(event.getEntity());
+            if (agregado != null) {
+                anotar(event.getSession(), agregado, (Long) event.getId(), "ALTA",
+                        datos(event.getPersister(), event.getState(), null));
+            }
+        }
+
+        @Override
+        public void onPostUpdate(PostUpdateEvent event) {
+            String agregado = agregado(event.getEntity());
+            if (agregado == null) {
+                return;
+            }
+            // Cambiar las matrículas sube la versión del estudiante sin cambiar ningún campo publicado
+            String datos = datos(event.getPersister(), event.getState(), event.getDirtyProperties());
+            if (datos != null) {
+                anotar(event.getSession(), agregado, (Long) event.getId(), "CAMBIO", datos);
+            }
+        }
+
+        @Override
+        public void onPostDelete(PostDeleteEvent event) {
+            if (event.getEntity() instanceof Matricula matricula) {
+                anotar(event.getSession(), "Estudiante", matricula.getEstudiante().getId(), "MATRICULA",
+                        matriculas(List.of(), List.of(matricula.getCurso().getId())));
+                return;
+            }
+            String agregado = agregado(event.getEntity());
+            if (agregado != null) {
+                anotar(event.getSession(), agregado, (Long) event.getId(), "BAJA", "{}");
+            }
+        }
+
+        // Los eventos PRE: después de escribir la colección Hibernate sustituye la instantánea por el contenido nuevo
+
+        @Override
+        public void onPreRecreateCollection(PreCollectionRecreateEvent event) {
+            if (esDeEstudiante(event)) {
+                cambiarCursos(event, ids((Collection<?>) event.getCollection()), Set.of());
+            }
+        }
+
+        @Override
+        public void onPreUpdateCollection(PreCollectionUpdateEvent event) {
+            if (esDeEstudiante(event)) {
+                SortedSet<Long> anteriores = anteriores(event.getCollection());
+                SortedSet<Long> actuales = ids((Collection<?>) event.getCollection());
+                SortedSet<Long> altas = new TreeSet<>(actuales);
+                altas.removeAll(anteriores);
+                anteriores.removeAll(actuales);
+                cambiarCursos(event, altas, anteriores);
+            }
+        }
+
+        @Override
+        public void onPreRemoveCollection(PreCollectionRemoveEvent event) {
+            if (!esDeEstudiante(event)) {
+                return;
+            }
+            PersistentCollection<?> coleccion = event.getCollection();
+            if (coleccion.wasInitialized() && coleccion.getStoredSnapshot() != null) {
+                cambiarCursos(event, Set.of(), anteriores(coleccion));
+            } else {
+                // Sin cargar no se sabe qué cursos tenía: se quitan todos
+                anotar(event.getSession(), "Estudiante", (Long) event.getAffectedOwnerIdOrNull(), "MATRICULA",
+                        "{\"todas\":true}");
+            }
+        }
+
+        @Override
+        public boolean requiresPostCommitHandling(EntityPersister persister) {
+            return false;
+        }
+
+        private boolean esDeEstudiante(AbstractCollectionEvent event) {
+            return hayAbiertas() && ListenersCompartidos.esDeEstudiante(event);
+        }
+
+        private SortedSet<Long> anteriores(PersistentCollection<?> coleccion) {
+            return coleccion.getStoredSnapshot() instanceof Map<?, ?> instantanea
+                    ? ids(instantanea.values()) : new TreeSet<>();
+        }
+
+        private void cambiarCursos(AbstractCollectionEvent event, Collection<Long> altas, Collection<Long> bajas) {
+            if (!altas.isEmpty() || !bajas.isEmpty()) {
+                anotar(event.getSession(), "Estudiante", (Long) event.getAffectedOwnerIdOrNull(), "MATRICULA",
+                        matriculas(altas, bajas));
+            }
+        }
+
+        // El primer evento de la transacción programa la escritura del lote antes del commit
+        private void anotar(EventSource session, String agregado, long agregadoId, String tipo, String datos) {
+            if (!hayAbiertas()) {
+                return;
+            }
+            List<Pendiente> lote = lotes.get(session);
+            if (lote == null) {
+                List<Pendiente> nuevo = new ArrayList<>();
+                lote = nuevo;
+                lotes.put(session, nuevo);
+                session.getActionQueue().registerProcess(s -> escribir(s, nuevo));
+                session.getActionQueue().registerProcess((exito, s) -> lotes.remove(session));
+            }
+            lote.add(new Pendiente(agregado, agregadoId, tipo, datos));
+        }
+
+        private void escribir(SessionImplementor session, List<Pendiente> lote) {
+            lotes.remove(session);
+            insertar(session, lote);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.outbox;
+
+import com.example.metricas.RegistroMetricas;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.jboss.logging.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Vacía la tabla {@code outbox} hacia un {@link DestinoEventos}: lee los
+ * eventos más antiguos en lotes por orden de {@code id}, los envía y, sólo
+ * cuando el destino los acepta, los borra. Si el envío o el borrado fallan
+ * el lote se repite (entrega al menos una vez).
+ *
+ * <p>Los cambios de una misma entidad se confirman uno detrás de otro
+ * (bloqueo de su fila, también en las matrículas: ver {@link Outbox}), así
+ * que sus eventos tienen ids crecientes y se entregan en orden. Entre
+ * entidades distintas no hay orden: un evento de otra entidad con id menor
+ * puede confirmarse después de leer el lote. Para conservar el orden sólo
+ * debe haber un relevo por tabla.
+ *
+ * <p>Publica {@code outbox_eventos_enviados_total} y
+ * {@code outbox_fallos_total} en el {@link RegistroMetricas} y, mientras
+ * el relevo está en marcha ({@link #iniciar}), {@code outbox_pendientes}:
+ * los eventos que quedaban en la tabla al terminar la última pasada.
+ */
+public class RelevoOutbox implements AutoCloseable {
+
+    private static final Logger LOG = Logger.getLogger(RelevoOutbox.class);
+
+    private static final String LEER =
+            "SELECT id, agregado, agregado_id, tipo, datos, creado FROM outbox ORDER BY id LIMIT ?";
+
+    private final SessionFactory sessionFactory;
+    private final DestinoEventos destino;
+    private final int tamanoLote;
+    private final RegistroMetricas metricas;
+    private final LongAdder enviados;
+    private final LongAdder fallos;
+    private final Object lock = new Object();
+    private ScheduledExecutorService planificador;
+    private volatile long pendientesContados;
+
+    public RelevoOutbox(SessionFactory sessionFactory, DestinoEventos destino, int tamanoLote,
+                        RegistroMetricas metricas) {
+        if (tamanoLote < 1) {
+            throw new IllegalArgumentException("El lote debe tener al menos un evento: " + tamanoLote);
+        }
+        this.sessionFactory = sessionFactory;
+        this.destino = destino;
+        this.tamanoLote = tamanoLote;
+        this.metricas = metricas;
+        this.enviados = metricas.contador("outbox_eventos_enviados_total", "Eventos entregados al destino");
+        this.fallos = metricas.contador("outbox_fallos_total", "Lotes cuyo envío o borrado falló y se repetirán");
+    }
+
+    /**
+     * Envía un lote de como mucho {@code tamanoLote} eventos.
+     *
+     * @return eventos entregados (0 si la tabla está vacía)
+     * @throws UncheckedIOException si el destino rechaza el lote, que sigue en la tabla
+     */
+    public int enviarLote() {
+        synchronized (lock) {
+            List<EventoCambio> lote = leer();
+            if (lote.isEmpty()) {
+                return 0;
+            }
+            try {
+                destino.enviar(Collections.unmodifiableList(lote));
+                borrar(lote);
+            } catch (IOException e) {
+                fallos.increment();
+                throw new UncheckedIOException("El destino rechazó " + lote.size() + " eventos", e);
+            } catch (RuntimeException e) {
+                fallos.increment();
+                throw e;
+            }
+            enviados.add(lote.size());
+            return lote.size();
+        }
+    }
+
+    /**
+     * Envía lotes hasta vaciar la tabla; devuelve los eventos entregados.
+     * Al terminar, aunque falle, cuenta los eventos que quedan para
+     * {@code outbox_pendientes}.
+     */
+    public long drenar() {
+        long total = 0;
+        int enviado;
+        try {
+            do {
+                enviado = enviarLote();
+                total += enviado;
+            } while (enviado == tamanoLote);
+        } finally {
+            contarPendientes();
+        }
+        return total;
+    }
+
+    /**
+     * Drena la tabla en un hilo propio cada {@code intervalo}. Un fallo se
+     * escribe en el log y el lote se reintenta en la siguiente pasada.
+     */
+    public void iniciar(Duration intervalo) {
+        synchronized (lock) {
+            if (planificador != null) {
+                throw new IllegalStateException("El relevo ya está en marcha");
+            }
+            metricas.registrarIndicador("outbox_pendientes",
+                    "Eventos en la tabla outbox sin entregar al terminar la última pasada", () -> pendientesContados);
+            planificador = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread hilo = new Thread(r, "relevo-outbox");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            planificador.scheduleWithFixedDelay(() -> {
+                try {
+                    drenar();
+                } catch (RuntimeException e) {
+                    LOG.warn("El relevo del outbox falló; el lote se repetirá en la siguiente pasada", e);
+                }
+            }, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Eventos que quedan en la tabla (cuenta las filas en cada llamada). */
+    public long pendientes() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(conexion -> {
+                try (Statement st = conexion.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM outbox")) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            });
+        }
+    }
+
+    // Si no se puede contar, el indicador se queda con el valor anterior
+    private void contarPendientes() {
+        try {
+            pendientesContados = pendientes();
+        } catch (RuntimeException e) {
+            LOG.warn("No se pudieron contar los eventos pendientes del outbox", e);
+        }
+    }
+
+    private List<EventoCambio> leer() {
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(conexion -> {
+                List<EventoCambio> lote = new ArrayList<>(tamanoLote);
+                try (PreparedStatement ps = conexion.prepareStatement(LEER)) {
+                    ps.setInt(1, tamanoLote);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            lote.add(new EventoCambio(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                                    rs.getString(4), rs.getString(5), rs.getTimestamp(6).toInstant()));
+                        }
+                    }
+                }
+                return lote;
+            });
+        }
+    }
+
+    // Por id y no por rango: un evento con id menor puede confirmarse después de leer el lote
+    private void borrar(List<EventoCambio> lote) {
+        StringBuilder sql = new StringBuilder("DELETE FROM outbox WHERE id IN (");
+        for (int i = 0; i < lote.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (Session session = sessionFactory.openSession()) {
+            session.beginTransaction();
+            session.doWork(conexion -> {
+                try (PreparedStatement ps = conexion.prepareStatement(sql.toString())) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        ps.setLong(i + 1, lote.get(i).id());
+                    }
+                    ps.executeUpdate();
+                }
+            });
+            session.getTransaction().commit();
+        }
+    }
+
+    /** Para el hilo del relevo; los eventos pendientes siguen en la tabla. */
+    @Override
+    public void close() {
+        ScheduledExecutorService p;
+        synchronized (lock) {
+            p = planificador;
+            planificador = null;
+        }
+        if (p != null) {
+            p.shutdown();
+            try {
+                p.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        metricas.eliminar("outbox_pendientes");
+    }
+}
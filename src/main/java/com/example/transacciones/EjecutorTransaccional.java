@@ -0,0 +1,136 @@
+package com.example.transacciones;
+
+import com.example.metricas.RegistroMetricas;
+import jakarta.persistence.OptimisticLockException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.Transaction;
+import org.hibernate.exception.LockAcquisitionException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ejecuta un trabajo en su propia sesión y transacción y, si falla por un
+ * conflicto de bloqueo optimista, lo repite en una sesión nueva. Las
+ * entidades del modelo llevan un {@code @Version}: un UPDATE con una
+ * versión antigua (otra transacción cambió antes la fila) falla en vez
+ * de pisar el otro cambio. También se repite si la base de datos lo eligió como víctima de
+ * un interbloqueo: en MariaDB pasa cuando dos transacciones matriculan a
+ * la vez al mismo estudiante con {@link com.example.matriculas.Matriculas}
+ * (el INSERT en estudiante_curso bloquea en compartido la fila del
+ * estudiante y las dos esperan para subir su versión).
+ *
+ * <p>Antes de cada reintento espera un tiempo aleatorio entre 0 y
+ * {@code min(esperaMaxima, esperaBase * 2^intento)}: las transacciones que
+ * chocaron no vuelven a chocar a la vez y, con mucha contención, la espera
+ * media crece. Al agotar los intentos se lanza la última excepción.
+ *
+ * <p>El trabajo puede ejecutarse varias veces, así que debe leer lo que
+ * necesite con la sesión que recibe y no tener efectos fuera de ella.
+ * Publica {@code transacciones_conflictos_total},
+ * {@code transacciones_reintentos_total} y
+ * {@code transacciones_agotadas_total} en el {@link RegistroMetricas}.
+ */
+public class EjecutorTransaccional {
+
+    private static final int INTENTOS_POR_DEFECTO = 10;
+    private static final Duration ESPERA_BASE_POR_DEFECTO = Duration.ofMillis(2);
+    private static final Duration ESPERA_MAXIMA_POR_DEFECTO = Duration.ofMillis(200);
+
+    private final SessionFactory sessionFactory;
+    private final int maxIntentos;
+    private final long esperaBaseNanos;
+    private final long esperaMaximaNanos;
+    private final LongAdder conflictos;
+    private final LongAdder reintentos;
+    private final LongAdder agotados;
+
+    public EjecutorTransaccional(SessionFactory sessionFactory, RegistroMetricas metricas) {
+        this(sessionFactory, metricas, INTENTOS_POR_DEFECTO, ESPERA_BASE_POR_DEFECTO, ESPERA_MAXIMA_POR_DEFECTO);
+    }
+
+    public EjecutorTransaccional(SessionFactory sessionFactory, RegistroMetricas metricas, int maxIntentos,
+                                 Duration esperaBase, Duration esperaMaxima) {
+        if (maxIntentos <= 0) {
+            throw new IllegalArgumentException("El número de intentos debe ser positivo: " + maxIntentos);
+        }
+        this.sessionFactory = sessionFactory;
+        this.maxIntentos = maxIntentos;
+        this.esperaBaseNanos = esperaBase.toNanos();
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.conflictos = metricas.contador("transacciones_conflictos_total",
+                "Transacciones fallidas por un conflicto de bloqueo optimista");
+        this.reintentos = metricas.contador("transacciones_reintentos_total",
+                "Transacciones repetidas tras un conflicto de bloqueo optimista");
+        this.agotados = metricas.contador("transacciones_agotadas_total",
+                "Transacciones abandonadas tras agotar los reintentos");
+    }
+
+    public <T> T ejecutar(Function<Session, T> trabajo) {
+        for (int intento = 1; ; intento++) {
+            RuntimeException conflicto;
+            Session session = sessionFactory.openSession();
+            try {
+                Transaction tx = session.beginTransaction();
+                T resultado = trabajo.apply(session);
+                tx.commit();
+                return resultado;
+            } catch (RuntimeException e) {
+                deshacer(session, e);
+                if (!esConflicto(e)) {
+                    throw e;
+                }
+                conflicto = e;
+            } finally {
+                session.close();
+            }
+
+            conflictos.increment();
+            if (intento >= maxIntentos) {
+                agotados.increment();
+                throw conflicto;
+            }
+            reintentos.increment();
+            esperar(intento, conflicto);
+        }
+    }
+
+    /**
+     * {@code true} si la excepción (o alguna de sus causas) es un conflicto
+     * de versión o un interbloqueo.
+     */
+    public static boolean esConflicto(Throwable e) {
+        for (Throwable causa = e; causa != null; causa = causa.getCause()) {
+            if (causa instanceof OptimisticLockException || causa instanceof StaleStateException
+                    || causa instanceof LockAcquisitionException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deshacer(Session session, RuntimeException error) {
+        try {
+            if (session.getTransaction().isActive()) {
+                session.getTransaction().rollback();
+            }
+        } catch (RuntimeException e) {
+            error.addSuppressed(e);
+        }
+    }
+
+    private void esperar(int intento, RuntimeException conflicto) {
+        long tope = Math.min(esperaMaximaNanos, esperaBaseNanos << Math.min(intento, 30));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(tope + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflicto;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+-- Esquema inicial: el mismo que generaba hibernate.hbm2ddl.auto=create.
+-- Las bases de datos creadas así se toman como versión 1 (baselineOnMigrate).
+
+create sequence curso_seq start with 1 increment by 50 nocache;
+
+create sequence estudiante_seq start with 1 increment by 50 nocache;
+
+create sequence profesor_seq start with 1 increment by 50 nocache;
+
+create table Curso (
+    creditos float(53) not null,
+    id bigint not null,
+    profesor_id bigint,
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table Estudiante (
+    id bigint not null,
+    email varchar(255) not null,
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table estudiante_curso (
+    curso_id bigint not null,
+    estudiante_id bigint not null,
+    primary key (curso_id, estudiante_id)
+) engine=InnoDB;
+
+create table Profesor (
+    id bigint not null,
+    email varchar(255) not null,
+    nombre varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_estudiante_nombre_id
+   on Estudiante (nombre, id);
+
+alter table Estudiante
+   add constraint UK_piyd3qa6tjbgdr37oaek8o4wk unique (email);
+
+alter table Profesor
+   add constraint UK_20ypbfmcqnhop7j75vy9jnl5 unique (email);
+
+alter table Curso
+   add constraint FKmsrvpxe6d1gq9cdt590isqaon
+   foreign key (profesor_id)
+   references Profesor (id);
+
+alter table estudiante_curso
+   add constraint FK597o4g29h60x551opnw974ihp
+   foreign key (curso_id)
+   references Curso (id);
+
+alter table estudiante_curso
+   add constraint FKoppe8jsw993wcrdxq2d8104nx
+   foreign key (estudiante_id)
+   references Estudiante (id);
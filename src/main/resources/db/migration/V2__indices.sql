@@ -0,0 +1,14 @@
+-- Índices para las columnas por las que filtran y unen las consultas.
+-- estudiante_curso ya tiene clave primaria (curso_id, estudiante_id), que
+-- sirve para las listas de un curso; el índice inverso cubre los cursos de
+-- un estudiante sin volver a la tabla. Curso.profesor_id y los emails ya
+-- están indexados por su clave ajena y su restricción única.
+
+create index idx_curso_nombre
+   on Curso (nombre);
+
+create index idx_profesor_nombre
+   on Profesor (nombre);
+
+create index idx_estudiante_curso_estudiante
+   on estudiante_curso (estudiante_id, curso_id);
@@ -0,0 +1,7 @@
+-- Columna de versión para el bloqueo optimista (@Version) de las tres entidades.
+
+alter table Curso add column version bigint not null default 0;
+
+alter table Estudiante add column version bigint not null default 0;
+
+alter table Profesor add column version bigint not null default 0;
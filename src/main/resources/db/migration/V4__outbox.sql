@@ -0,0 +1,13 @@
+-- Eventos de cambio pendientes de enviar (ver com.example.outbox.Outbox).
+-- Se escriben en la misma transacción que el cambio y el relevo los borra
+-- una vez entregados; el orden de entrega es el de id.
+
+create table outbox (
+    id bigint not null auto_increment,
+    agregado varchar(32) not null,
+    agregado_id bigint not null,
+    tipo varchar(16) not null,
+    datos text not null,
+    creado timestamp(3) not null,
+    primary key (id)
+) engine=InnoDB;
@@ -0,0 +1,8 @@
+-- Los emails (clave natural de Estudiante y Profesor) se guardan sin
+-- espacios alrededor y en minúsculas (ver com.example.model.Emails).
+-- Con la collation por defecto de MariaDB el índice único ya no admite dos
+-- emails que sólo difieran en mayúsculas, así que no hay choques.
+
+update Estudiante set email = lower(trim(email)) where email <> lower(trim(email));
+
+update Profesor set email = lower(trim(email)) where email <> lower(trim(email));
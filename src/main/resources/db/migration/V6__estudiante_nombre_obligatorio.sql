@@ -0,0 +1,9 @@
+-- La paginación de estudiantes por (nombre, id) compara el nombre
+-- (ver com.example.consultas.Paginacion): con un nombre nulo las filas
+-- quedarían fuera de "nombre > :nombre" y el token no podría guardarlo.
+-- Los estudiantes sin nombre pasan a tener el nombre vacío, que ordena
+-- primero, igual que ordenaba el nulo.
+
+update Estudiante set nombre = '' where nombre is null;
+
+alter table Estudiante modify nombre varchar(255) not null;
@@ -0,0 +1,152 @@
+package com.example;
+
+import com.example.consultas.ConsultasMatricula;
+import com.example.consultas.Resumenes;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.NamedQuery;
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.dialect.DatabaseVersion;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ArranqueTest {
+
+    // Muchos hilos pidiendo la SessionFactory a la vez deben obtener la misma instancia
+    @Test
+    public void inicializacionConcurrente() throws Exception {
+        HibernateUtil.shutdown();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Callable<SessionFactory>> tareas = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            tareas.add(HibernateUtil::getSessionFactory);
+        }
+        Set<SessionFactory> instancias = new HashSet<>();
+        for (Future<SessionFactory> f : executor.invokeAll(tareas)) {
+            instancias.add(f.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, instancias.size());
+    }
+
+    @Test
+    public void calentarConInstantanea() throws Exception {
+        Path fichero = Files.createTempDirectory("arranque").resolve("instantanea.properties");
+        System.setProperty(InstantaneaArranque.FICHERO, fichero.toString());
+        try {
+            // Primer arranque: sin instantánea, la genera al calentar
+            HibernateUtil.shutdown();
+            assertFalse(HibernateUtil.estaListo());
+            long inicio = System.nanoTime();
+            HibernateUtil.iniciar();
+            HibernateUtil.calentar();
+            long frio = System.nanoTime() - inicio;
+            assertTrue(HibernateUtil.estaListo());
+            assertTrue(Files.exists(fichero));
+
+            // Segundo arranque: reutiliza el dialecto y la versión guardados. Se cambia la versión menor de
+            // la instantánea: si Hibernate preguntara a la base de datos, el dialecto tendría la verdadera
+            Properties guardada = new Properties();
+            try (Reader reader = Files.newBufferedReader(fichero)) {
+                guardada.load(reader);
+            }
+            int menor = Integer.parseInt(guardada.getProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_MINOR_VERSION)) + 1;
+            guardada.setProperty(JdbcSettings.JAKARTA_HBM2DDL_DB_MINOR_VERSION, String.valueOf(menor));
+            try (Writer writer = Files.newBufferedWriter(fichero)) {
+                guardada.store(writer, null);
+            }
+            HibernateUtil.shutdown();
+            inicio = System.nanoTime();
+            SessionFactory sf = HibernateUtil.iniciar();
+            HibernateUtil.calentar();
+            long conInstantanea = System.nanoTime() - inicio;
+            assertTrue(HibernateUtil.estaListo());
+            DatabaseVersion version = sf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect().getVersion();
+            assertEquals(menor, version.getDatabaseMinorVersion());
+
+            System.out.println("Arranque sin instantánea: " + frio / 1_000_000 + " ms");
+            System.out.println("Arranque con instantánea: " + conInstantanea / 1_000_000 + " ms");
+            System.out.println(Files.readString(fichero));
+        } finally {
+            System.clearProperty(InstantaneaArranque.FICHERO);
+            HibernateUtil.shutdown();
+        }
+    }
+
+    // Tras calentar, las consultas nombradas ya no se traducen en la primera petición
+    @Test
+    public void consultasNombradasTraducidasAlCalentar() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        HibernateUtil.calentar();
+        Statistics estadisticas = sf.getStatistics();
+        long fallos = estadisticas.getQueryPlanCacheMissCount();
+        long aciertos = estadisticas.getQueryPlanCacheHitCount();
+
+        try (Session session = sf.openSession()) {
+            ConsultasMatricula.estudiantesEnCursosPorNombre(session, List.of("-"));
+            Resumenes.cursosDeEstudiante(session, -1L);
+            session.createNamedQuery(Curso.ID_POR_NOMBRE, Long.class).setParameter("nombre", "-").getResultList();
+            session.createNamedSelectionQuery(Estudiante.POR_CURSOS, Object[].class)
+                    .setParameterList("cursoIds", List.of(-1L)).getResultList();
+        }
+
+        assertEquals(fallos, estadisticas.getQueryPlanCacheMissCount());
+        assertTrue(estadisticas.getQueryPlanCacheHitCount() >= aciertos + 4);
+    }
+
+    // Una consulta nombrada con errores impide construir la SessionFactory (no hace falta base de datos)
+    @Test
+    public void consultaNombradaIncorrectaFallaAlArrancar() {
+        StandardServiceRegistry registro = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.dialect", "org.hibernate.dialect.MariaDBDialect")
+                .applySetting("hibernate.boot.allow_jdbc_metadata_access", "false")
+                .applySetting("hibernate.hbm2ddl.auto", "none")
+                .build();
+        try {
+            HibernateException error = assertThrows(HibernateException.class, () -> new MetadataSources(registro)
+                    .addAnnotatedClass(ConConsultaRota.class)
+                    .buildMetadata()
+                    .buildSessionFactory());
+            assertTrue(error.getMessage().contains("ConConsultaRota.rota"), error.getMessage());
+        } finally {
+            StandardServiceRegistryBuilder.destroy(registro);
+        }
+    }
+
+    @Entity(name = "ConConsultaRota")
+    @NamedQuery(name = "ConConsultaRota.rota", query = "SELECT x FROM ConConsultaRota x WHERE x.noExiste = 1")
+    static class ConConsultaRota {
+        @Id
+        private Long id;
+    }
+}
@@ -0,0 +1,126 @@
+package com.example;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheSegundoNivelTest {
+
+    private Long cursoId;
+    private Long profesorId;
+
+    @Test
+    public void cursoYEstudiantesDesdeCache() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        Statistics estadisticas = sf.getStatistics();
+
+        // Primera sesión: carga desde la base de datos y llena la caché
+        Session s1 = sf.openSession();
+        Curso curso = s1.find(Curso.class, cursoId);
+        int matriculados = curso.getEstudiantes().size();
+        curso.getProfesor().getCursos().size();
+        s1.close();
+
+        long consultasAntes = estadisticas.getPrepareStatementCount();
+
+        // Segunda sesión: curso, profesor y colección sin ir a la base de datos
+        Session s2 = sf.openSession();
+        Curso enCache = s2.find(Curso.class, cursoId);
+        System.out.println(enCache);
+        assertEquals(matriculados, enCache.getEstudiantes().size());
+        enCache.getEstudiantes().forEach(e -> System.out.println("  " + e));
+        Profesor profesor = s2.find(Profesor.class, profesorId);
+        assertEquals(1, profesor.getCursos().size());
+        s2.close();
+
+        assertEquals(consultasAntes, estadisticas.getPrepareStatementCount());
+
+        CacheRegionStatistics regionCurso = estadisticas.getDomainDataRegionStatistics("curso");
+        CacheRegionStatistics regionEstudiantes = estadisticas.getDomainDataRegionStatistics("curso_estudiantes");
+        System.out.println("Curso: aciertos=" + regionCurso.getHitCount() + " fallos=" + regionCurso.getMissCount());
+        System.out.println("Curso.estudiantes: aciertos=" + regionEstudiantes.getHitCount()
+                + " fallos=" + regionEstudiantes.getMissCount());
+        assertTrue(regionCurso.getHitCount() > 0);
+        assertTrue(regionEstudiantes.getHitCount() > 0);
+
+        String texto = HibernateUtil.getMetricas().exportarPrometheus();
+        assertTrue(texto.contains("cache_aciertos_total{region=\"curso_estudiantes\"}"));
+        assertTrue(texto.contains("cache_expulsiones_total{region=\"curso\"} 0"));
+    }
+
+    // Cambiar el lado dueño (Estudiante.cursos, Curso.profesor) invalida las colecciones inversas en caché
+    @Test
+    public void coleccionesInversasAlDia() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        Session s1 = sf.openSession();
+        Curso curso = s1.find(Curso.class, cursoId);
+        assertEquals(2, curso.getEstudiantes().size());
+        assertEquals(1, curso.getProfesor().getCursos().size());
+        s1.close();
+        assertTrue(sf.getCache().containsCollection(Curso.class.getName() + ".estudiantes", cursoId));
+
+        Session s2 = sf.openSession();
+        s2.beginTransaction();
+        Estudiante nuevo = new Estudiante("Estudiante Cache 3", "ecache3" + System.nanoTime() + "@escuela.com");
+        nuevo.getCursos().add(s2.getReference(Curso.class, cursoId));
+        s2.persist(nuevo);
+        s2.persist(new Curso("Curso Cache 2", 6.0, s2.getReference(Profesor.class, profesorId)));
+        s2.getTransaction().commit();
+        s2.close();
+
+        Session s3 = sf.openSession();
+        assertEquals(3, s3.find(Curso.class, cursoId).getEstudiantes().size());
+        assertEquals(2, s3.find(Profesor.class, profesorId).getCursos().size());
+        s3.close();
+
+        // Quitar el curso al estudiante y cambiar de profesor el curso nuevo
+        Session s4 = sf.openSession();
+        s4.beginTransaction();
+        s4.find(Estudiante.class, nuevo.getId()).getCursos().clear();
+        Profesor otro = new Profesor("Profesor Cache 2", "pcache2" + System.nanoTime() + "@escuela.com");
+        s4.persist(otro);
+        s4.createSelectionQuery("FROM Curso c WHERE c.profesor.id = :id AND c.id <> :cursoId", Curso.class)
+                .setParameter("id", profesorId)
+                .setParameter("cursoId", cursoId)
+                .getSingleResult()
+                .setProfesor(otro);
+        s4.getTransaction().commit();
+        s4.close();
+
+        Session s5 = sf.openSession();
+        assertEquals(2, s5.find(Curso.class, cursoId).getEstudiantes().size());
+        assertEquals(1, s5.find(Profesor.class, profesorId).getCursos().size());
+        s5.close();
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor p = new Profesor("Profesor Cache", "pcache" + System.nanoTime() + "@escuela.com");
+        Curso c = new Curso("Curso Cache", 3.0, p);
+        Estudiante e1 = new Estudiante("Estudiante Cache 1", "ecache1" + System.nanoTime() + "@escuela.com");
+        Estudiante e2 = new Estudiante("Estudiante Cache 2", "ecache2" + System.nanoTime() + "@escuela.com");
+        e1.getCursos().add(c);
+        e2.getCursos().add(c);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        session.persist(c);
+        session.persist(e1);
+        session.persist(e2);
+        session.getTransaction().commit();
+        session.close();
+
+        cursoId = c.getId();
+        profesorId = p.getId();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jpa.SpecHints;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Número exacto de sentencias SQL en los listados de EscuelaTest, con la
+ * caché de segundo nivel vacía. Con asociaciones perezosas, @BatchSize y
+ * SUBSELECT no depende del número de filas listadas.
+ */
+public class ConteoSentenciasTest {
+
+    private String marca;
+    private Long cursoId;
+
+    // Estudiantes y, para cada uno, sus cursos con el nombre del profesor
+    @Test
+    public void listarEstudiantesConCursosYProfesor() {
+        long sentencias = contar(session -> {
+            List<Estudiante> estudiantes = session.createQuery(
+                            "FROM Estudiante e WHERE e.email LIKE :marca", Estudiante.class)
+                    .setParameter("marca", "%" + marca)
+                    .getResultList();
+            for (Estudiante estudiante : estudiantes) {
+                System.out.println(estudiante);
+                for (Curso curso : estudiante.getCursos()) {
+                    System.out.println("  " + curso + " - " + curso.getProfesor().getNombre());
+                }
+            }
+        });
+        // estudiantes + cursos de todos (SUBSELECT) + profesores (un lote)
+        assertEquals(3, sentencias);
+    }
+
+    @Test
+    public void listarEstudiantesConGrafoDeEntidades() {
+        long sentencias = contar(session -> {
+            List<Estudiante> estudiantes = session.createQuery(
+                            "SELECT DISTINCT e FROM Estudiante e WHERE e.email LIKE :marca", Estudiante.class)
+                    .setParameter("marca", "%" + marca)
+                    .setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, session.getEntityGraph(Estudiante.GRAFO_CURSOS_Y_PROFESOR))
+                    .getResultList();
+            for (Estudiante estudiante : estudiantes) {
+                for (Curso curso : estudiante.getCursos()) {
+                    System.out.println(estudiante.getNombre() + " - " + curso.getNombre()
+                            + " - " + curso.getProfesor().getNombre());
+                }
+            }
+        });
+        assertEquals(1, sentencias);
+    }
+
+    // Como listarCursosSoloLectura: toString() no carga el profesor
+    @Test
+    public void listarCursos() {
+        long sentencias = contar(session -> session.createQuery(
+                        "FROM Curso c WHERE c.nombre LIKE :marca", Curso.class)
+                .setParameter("marca", "%" + marca)
+                .setReadOnly(true)
+                .getResultList()
+                .forEach(System.out::println));
+        assertEquals(1, sentencias);
+    }
+
+    // Un curso sin profesor también se puede imprimir
+    @Test
+    public void cursoSinProfesor() {
+        assertEquals("Curso{id=null, nombre='Curso Suelto', creditos=3.0}",
+                new Curso("Curso Suelto", 3.0, null).toString());
+    }
+
+    // Como listarEstudiantesEnUnCursoSinHQL
+    @Test
+    public void estudiantesDeUnCurso() {
+        long sentencias = contar(session -> {
+            Curso curso = session.find(Curso.class, cursoId);
+            curso.getEstudiantes().forEach(System.out::println);
+        });
+        // curso + colección de estudiantes
+        assertEquals(2, sentencias);
+    }
+
+    private long contar(Consumer<Session> escenario) {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        sf.getCache().evictAllRegions();
+        Statistics estadisticas = sf.getStatistics();
+        long antes = estadisticas.getPrepareStatementCount();
+        Session session = sf.openSession();
+        escenario.accept(session);
+        session.close();
+        return estadisticas.getPrepareStatementCount() - antes;
+    }
+
+    @BeforeEach
+    public void seed() {
+        marca = "-" + System.nanoTime();
+
+        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com" + marca);
+        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com" + marca);
+        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com" + marca);
+        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com" + marca);
+
+        Profesor p1 = new Profesor("Profesor 1" + marca, "p1@escuela.com" + marca);
+        Profesor p2 = new Profesor("Profesor 2" + marca, "p2@escuela.com" + marca);
+
+        Curso c1 = new Curso("Curso 1" + marca, 6.0, p1);
+        Curso c2 = new Curso("Curso 2" + marca, 4.0, p1);
+        Curso c3 = new Curso("Curso 3" + marca, 8.0, p2);
+
+        e1.getCursos().add(c1);
+        e1.getCursos().add(c2);
+        e2.getCursos().add(c2);
+        e2.getCursos().add(c3);
+        e3.getCursos().add(c1);
+        e4.getCursos().add(c3);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p1);
+        session.persist(p2);
+        session.persist(c1);
+        session.persist(c2);
+        session.persist(c3);
+        session.persist(e1);
+        session.persist(e2);
+        session.persist(e3);
+        session.persist(e4);
+        session.getTransaction().commit();
+        session.close();
+
+        cursoId = c2.getId();
+    }
+}
@@ -14,15 +14,20 @@ import java.util.Set;
 
 public class EscuelaTest {
 
+    private String marca;
+    private long estudianteId;
+    private long curso2Id;
+    private long curso3Id;
+
     @Test
     public void buscarEstudianteTest(){
         Session session = HibernateUtil.getSessionFactory().openSession();
-        Estudiante e = session.find(Estudiante.class, 1L);
+        Estudiante e = session.find(Estudiante.class, estudianteId);
         Set<Curso> cursos = e.getCursos();
 
         // Impresión
         System.out.println("==================================");
-        System.out.println("Estudiante con ID = 1 y sus cursos");
+        System.out.println("Estudiante con ID = " + estudianteId + " y sus cursos");
         System.out.println("----------------------------------");
         System.out.println(e);
         for(Curso curso: cursos){
@@ -48,7 +53,7 @@ public class EscuelaTest {
 
     @Test
     public void listarEstudiantesEnUnCursoConHQL(){
-        int cursoId = 2;
+        long cursoId = curso2Id;
 
         Session session = HibernateUtil.getSessionFactory().openSession();
 
@@ -71,7 +76,7 @@ public class EscuelaTest {
 
     @Test
     public void listarEstudiantesEnUnCursoSinHQL(){
-        Long cursoId = 2L;
+        Long cursoId = curso2Id;
         Session session = HibernateUtil.getSessionFactory().openSession();
         Curso curso = session.find(Curso.class, cursoId);
         Set<Estudiante> estudiantes = curso.getEstudiantes();
@@ -91,8 +96,8 @@ public class EscuelaTest {
         Session session = HibernateUtil.getSessionFactory().openSession();
 
         List<Long> cursoIds = new ArrayList<>();
-        cursoIds.add(2L);
-        cursoIds.add(3L);
+        cursoIds.add(curso2Id);
+        cursoIds.add(curso3Id);
 
 
         Query<Estudiante> query = session.createQuery(
@@ -101,7 +106,7 @@ public class EscuelaTest {
 
         List<Estudiante> estudiantes = query.getResultList();
 
-        System.out.println("Estudiantes en los cursos con ID 2 o 3:");
+        System.out.println("Estudiantes en los cursos con ID " + curso2Id + " o " + curso3Id + ":");
         for (Estudiante estudiante : estudiantes) {
             System.out.println(estudiante);
         }
@@ -115,8 +120,8 @@ public class EscuelaTest {
         Session session = HibernateUtil.getSessionFactory().openSession();
 
         List<String> nombresCursos = new ArrayList<>();
-        nombresCursos.add("Curso 2");
-        nombresCursos.add("Curso 3");
+        nombresCursos.add("Curso 2" + marca);
+        nombresCursos.add("Curso 3" + marca);
 
         Query<Estudiante> query = session.createQuery(
                 "SELECT DISTINCT e FROM Estudiante e JOIN e.cursos c WHERE c.nombre IN (:nombresCursos)", Estudiante.class);
@@ -124,7 +129,7 @@ public class EscuelaTest {
 
         List<Estudiante> estudiantes = query.getResultList();
 
-        System.out.println("Estudiantes en los cursos 'Curso 2' o 'Curso 3':");
+        System.out.println("Estudiantes en los cursos " + nombresCursos + ":");
         for (Estudiante estudiante : estudiantes) {
             System.out.println(estudiante);
         }
@@ -136,23 +141,26 @@ public class EscuelaTest {
     @BeforeEach
     public void seed(){
 
+        // El email es clave natural única: cada siembra lleva su propia marca
+        marca = "-" + System.nanoTime();
+
         // Crear estudiantes
-        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com");
-        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com");
-        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com");
-        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com");
-        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com");
-        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com");
+        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com" + marca);
+        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com" + marca);
+        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com" + marca);
+        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com" + marca);
+        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com" + marca);
+        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com" + marca);
 
         // Crear profesores
-        Profesor p1 = new Profesor("Profesor 1", "p1@escuela.com");
-        Profesor p2 = new Profesor("Profesor 2", "p2@escuela.com");
+        Profesor p1 = new Profesor("Profesor 1", "p1@escuela.com" + marca);
+        Profesor p2 = new Profesor("Profesor 2", "p2@escuela.com" + marca);
 
         // Crear cursos
-        Curso c1 = new Curso("Curso 1", 6.0, p1);
-        Curso c2 = new Curso("Curso 2", 4.0, p1);
-        Curso c3 = new Curso("Curso 3", 8.0, p2);
-        Curso c4 = new Curso("Curso 4", 5.0, p2);
+        Curso c1 = new Curso("Curso 1" + marca, 6.0, p1);
+        Curso c2 = new Curso("Curso 2" + marca, 4.0, p1);
+        Curso c3 = new Curso("Curso 3" + marca, 8.0, p2);
+        Curso c4 = new Curso("Curso 4" + marca, 5.0, p2);
 
         // Matricular estudiantes en cursos
         e1.getCursos().add(c1);
@@ -196,6 +204,10 @@ public class EscuelaTest {
 
         session.close();
 
+        estudianteId = e1.getId();
+        curso2Id = c2.getId();
+        curso3Id = c3.getId();
+
 
     }
 }
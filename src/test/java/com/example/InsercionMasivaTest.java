@@ -0,0 +1,84 @@
+package com.example;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InsercionMasivaTest {
+
+    private static final int NUM_ESTUDIANTES = 10_000;
+    private static final int TAMANO_LOTE = 50;
+
+    // Compara filas/segundo insertando estudiantes uno a uno (lote de 1,
+    // equivalente a lo que permitía IDENTITY) y con lotes JDBC de TAMANO_LOTE.
+    @Test
+    public void compararInsercionSinLoteYConLote() {
+        double sinLote = insertarEstudiantes(1);
+        double conLote = insertarEstudiantes(TAMANO_LOTE);
+
+        System.out.println("==================================");
+        System.out.println("Inserción masiva de " + NUM_ESTUDIANTES + " estudiantes");
+        System.out.println("----------------------------------");
+        System.out.printf("Sin lote (batch_size=1):  %.0f filas/s%n", sinLote);
+        System.out.printf("Con lote (batch_size=%d): %.0f filas/s%n", TAMANO_LOTE, conLote);
+        System.out.println("==================================");
+    }
+
+    @Test
+    public void insertarEstudiantesConCursosEnLote() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.setJdbcBatchSize(TAMANO_LOTE);
+        session.beginTransaction();
+
+        Profesor profesor = new Profesor("Profesor Lote", "lote@escuela.com");
+        Curso curso = new Curso("Curso Lote", 6.0, profesor);
+        session.persist(profesor);
+        session.persist(curso);
+
+        for (int i = 0; i < 1_000; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante " + i, "lote" + i + "@escuela.com");
+            estudiante.getCursos().add(curso);
+            session.persist(estudiante);
+            // Vaciar el contexto de persistencia en cada lote para que no crezca
+            if (i > 0 && i % TAMANO_LOTE == 0) {
+                session.flush();
+                session.clear();
+                curso = session.getReference(Curso.class, curso.getId());
+            }
+        }
+        session.getTransaction().commit();
+        session.close();
+
+        Session s2 = HibernateUtil.getSessionFactory().openSession();
+        Long matriculados = s2.createQuery(
+                "SELECT COUNT(e) FROM Estudiante e JOIN e.cursos c WHERE c.nombre = :nombre", Long.class)
+                .setParameter("nombre", "Curso Lote")
+                .getSingleResult();
+        s2.close();
+        assertEquals(1_000L, matriculados);
+    }
+
+    private double insertarEstudiantes(int tamanoLote) {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.setJdbcBatchSize(tamanoLote);
+        session.beginTransaction();
+
+        long inicio = System.nanoTime();
+        for (int i = 0; i < NUM_ESTUDIANTES; i++) {
+            session.persist(new Estudiante("Masivo " + i, "masivo" + tamanoLote + "_" + i + "@escuela.com"));
+            if (i > 0 && i % TAMANO_LOTE == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        session.getTransaction().commit();
+        long nanos = System.nanoTime() - inicio;
+        session.close();
+
+        return NUM_ESTUDIANTES / (nanos / 1_000_000_000.0);
+    }
+}
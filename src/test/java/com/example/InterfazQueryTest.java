@@ -15,13 +15,17 @@ import java.util.List;
 
 public class InterfazQueryTest {
 
+    private String marca;
+    private long profesorId;
+    private List<Long> estudianteIds;
+
     // getSingleResult()
     @Test
     public void encontrarProfesorPorNombre() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         try {
             Query<Profesor> query = session.createQuery("FROM Profesor p WHERE p.nombre = :nombre", Profesor.class);
-            query.setParameter("nombre", "Profesor 1");
+            query.setParameter("nombre", "Profesor 1" + marca);
             Profesor profesor = query.getSingleResult();
             System.out.println(profesor);
         } catch (NoResultException e) {
@@ -40,17 +44,17 @@ public class InterfazQueryTest {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
 
-        Profesor p1 = session.find(Profesor.class, 1L);
+        Profesor p1 = session.find(Profesor.class, profesorId);
         System.out.println(p1);
 
         Query query = session.createQuery("UPDATE Profesor p SET p.email = :nuevoEmail WHERE p.nombre = :nombre");
-        query.setParameter("nuevoEmail", "nuevoemail@escuela.com");
-        query.setParameter("nombre", "Profesor 1");
+        query.setParameter("nuevoEmail", "nuevoemail@escuela.com" + marca);
+        query.setParameter("nombre", "Profesor 1" + marca);
         int filasAfectadas = query.executeUpdate();
         session.getTransaction().commit();
         System.out.println("Filas afectadas: " + filasAfectadas);
 
-        Profesor p2 = session.find(Profesor.class, 1L);
+        Profesor p2 = session.find(Profesor.class, profesorId);
         System.out.println(p2);
 
         // Es necesario refrescar el objeto para ver los cambios,
@@ -64,7 +68,7 @@ public class InterfazQueryTest {
 
 
         Session s2 = HibernateUtil.getSessionFactory().openSession();
-        Profesor p3 = s2.find(Profesor.class, 1L);
+        Profesor p3 = s2.find(Profesor.class, profesorId);
         System.out.println(p3);
     }
 
@@ -73,10 +77,7 @@ public class InterfazQueryTest {
     @Test
     public void listarEstudiantesPorListaDeIds() {
         Session session = HibernateUtil.getSessionFactory().openSession();
-        List<Long> ids = new ArrayList();
-        ids.add(1L);
-        ids.add(2L);
-        ids.add(3L);
+        List<Long> ids = new ArrayList(estudianteIds);
 
         Query<Estudiante> query = session.createQuery("FROM Estudiante e WHERE e.id IN (:ids)", Estudiante.class);
         query.setParameterList("ids", ids);
@@ -119,17 +120,20 @@ public class InterfazQueryTest {
     @BeforeEach
     public void seed(){
 
+        // El email es clave natural única: cada siembra lleva su propia marca
+        marca = "-" + System.nanoTime();
+
         // Crear estudiantes
-        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com");
-        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com");
-        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com");
-        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com");
-        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com");
-        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com");
+        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com" + marca);
+        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com" + marca);
+        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com" + marca);
+        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com" + marca);
+        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com" + marca);
+        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com" + marca);
 
         // Crear profesores
-        Profesor p1 = new Profesor("Profesor 1", "p1@escuela.com");
-        Profesor p2 = new Profesor("Profesor 2", "p2@escuela.com");
+        Profesor p1 = new Profesor("Profesor 1" + marca, "p1@escuela.com" + marca);
+        Profesor p2 = new Profesor("Profesor 2" + marca, "p2@escuela.com" + marca);
 
         // Crear cursos
         Curso c1 = new Curso("Curso 1", 6.0, p1);
@@ -174,5 +178,8 @@ public class InterfazQueryTest {
 
         session.getTransaction().commit();
         session.close();
+
+        profesorId = p1.getId();
+        estudianteIds = List.of(e1.getId(), e2.getId(), e3.getId());
     }
 }
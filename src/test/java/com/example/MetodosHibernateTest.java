@@ -5,18 +5,21 @@ import com.example.model.Estudiante;
 import com.example.model.Profesor;
 import org.hibernate.LockMode;
 import org.hibernate.Session;
-import org.junit.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 public class MetodosHibernateTest {
 
+    private String marca;
+    private long estudianteId;
+
     @Test
     public void testSave() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = new Estudiante("Estudiante nuevo", "email1@dominio.com");
+        Estudiante estudiante = new Estudiante("Estudiante nuevo", "email1@dominio.com" + marca);
         Long id = (Long) session.save(estudiante);
         session.getTransaction().commit();
         assertNotNull(id);
@@ -35,7 +38,7 @@ public class MetodosHibernateTest {
     public void testSaveOrUpdate() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = new Estudiante("Estudiante Nuevo", "emailNuevo@dominio.com");
+        Estudiante estudiante = new Estudiante("Estudiante Nuevo", "emailNuevo@dominio.com" + marca);
         session.saveOrUpdate(estudiante); // Guarda si es nuevo, actualiza si ya existe.
         session.getTransaction().commit();
         session.close();
@@ -46,7 +49,7 @@ public class MetodosHibernateTest {
     public void testPersist() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = new Estudiante("Estudiante Persist", "emailPersist@dominio.com");
+        Estudiante estudiante = new Estudiante("Estudiante Persist", "emailPersist@dominio.com" + marca);
         session.persist(estudiante); // Guarda el estudiante, no devuelve el id
         session.getTransaction().commit();
         session.close();
@@ -58,7 +61,7 @@ public class MetodosHibernateTest {
     @Test
     public void testGet() {
         Session session = HibernateUtil.getSessionFactory().openSession();
-        Estudiante estudiante = session.get(Estudiante.class, 1L); // Intenta obtener el estudiante con id 1
+        Estudiante estudiante = session.get(Estudiante.class, estudianteId); // Intenta obtener el primer estudiante sembrado
         session.close();
         assertNotNull(estudiante);
     }
@@ -68,7 +71,7 @@ public class MetodosHibernateTest {
     public void testLoad() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         try {
-            Estudiante estudiante = session.load(Estudiante.class, 1L); // Carga el estudiante con id 1
+            Estudiante estudiante = session.load(Estudiante.class, estudianteId); // Carga el primer estudiante sembrado
             assertNotNull(estudiante.getNombre());
         } finally {
             session.close();
@@ -80,7 +83,7 @@ public class MetodosHibernateTest {
     public void testRefresh() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = session.get(Estudiante.class, 1L);
+        Estudiante estudiante = session.get(Estudiante.class, estudianteId);
         // Supongamos que el estudiante ha sido modificado fuera de la sesión actual
         session.refresh(estudiante); // Actualiza el estado del objeto con la base de datos
         session.getTransaction().commit();
@@ -92,7 +95,7 @@ public class MetodosHibernateTest {
     public void testDelete() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = session.get(Estudiante.class, 1L);
+        Estudiante estudiante = session.get(Estudiante.class, estudianteId);
         session.delete(estudiante); // Elimina el estudiante
         session.getTransaction().commit();
         session.close();
@@ -103,7 +106,7 @@ public class MetodosHibernateTest {
     public void testEvict() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = session.get(Estudiante.class, 1L);
+        Estudiante estudiante = session.get(Estudiante.class, estudianteId);
         session.evict(estudiante); // El estudiante ya no está gestionado por esta sesión
         session.getTransaction().commit();
         session.close();
@@ -124,7 +127,7 @@ public class MetodosHibernateTest {
     @Test
     public void testLock() {
         Session session = HibernateUtil.getSessionFactory().openSession();
-        Estudiante estudiante = new Estudiante("Estudiante Lock", "emailLock@dominio.com");
+        Estudiante estudiante = new Estudiante("Estudiante Lock", "emailLock@dominio.com" + marca);
         session.beginTransaction();
         session.save(estudiante);
         session.lock(estudiante, LockMode.NONE); // Reatacha el objeto a la sesión sin un bloqueo específico
@@ -137,7 +140,7 @@ public class MetodosHibernateTest {
     public void testMerge() {
         Session session = HibernateUtil.getSessionFactory().openSession();
         session.beginTransaction();
-        Estudiante estudiante = new Estudiante("Estudiante Merge", "emailMerge@dominio.com");
+        Estudiante estudiante = new Estudiante("Estudiante Merge", "emailMerge@dominio.com" + marca);
         session.save(estudiante);
         session.getTransaction().commit();
         session.close();
@@ -154,17 +157,20 @@ public class MetodosHibernateTest {
     @BeforeEach
     public void seed(){
 
+        // El email es clave natural única: cada siembra lleva su propia marca
+        marca = "-" + System.nanoTime();
+
         // Crear estudiantes
-        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com");
-        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com");
-        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com");
-        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com");
-        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com");
-        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com");
+        Estudiante e1 = new Estudiante("Estudiante 1", "e1@escuela.com" + marca);
+        Estudiante e2 = new Estudiante("Estudiante 2", "e2@escuela.com" + marca);
+        Estudiante e3 = new Estudiante("Estudiante 3", "e3@escuela.com" + marca);
+        Estudiante e4 = new Estudiante("Estudiante 4", "e4@escuela.com" + marca);
+        Estudiante e5 = new Estudiante("Estudiante 5", "e5@escuela.com" + marca);
+        Estudiante e6 = new Estudiante("Estudiante 6", "e6@escuela.com" + marca);
 
         // Crear profesores
-        Profesor p1 = new Profesor("Profesor 1", "p1@escuela.com");
-        Profesor p2 = new Profesor("Profesor 2", "p2@escuela.com");
+        Profesor p1 = new Profesor("Profesor 1", "p1@escuela.com" + marca);
+        Profesor p2 = new Profesor("Profesor 2", "p2@escuela.com" + marca);
 
         // Crear cursos
         Curso c1 = new Curso("Curso 1", 6.0, p1);
@@ -214,5 +220,7 @@ public class MetodosHibernateTest {
 
         session.close();
 
+        estudianteId = e1.getId();
+
     }
 }
@@ -0,0 +1,126 @@
+package com.example;
+
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.dialect.MariaDBDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Plan de ejecución de las consultas por nombre y de matrícula con y sin
+// los índices de V2__indices.sql, sobre unas decenas de miles de filas.
+// Los índices no se quitan: idx_estudiante_curso_estudiante respalda la
+// clave ajena de estudiante_id y MariaDB no deja borrarlo (error 1553)
+public class PlanesConsultaTest {
+
+    private static final int NUM_ESTUDIANTES = 20_000;
+    private static final int NUM_CURSOS = 500;
+    private static final int NUM_PROFESORES = 50;
+    private static final int CURSOS_POR_ESTUDIANTE = 3;
+
+    private static long estudianteId;
+
+    @Test
+    public void cursoPorNombre() {
+        comparar("idx_curso_nombre", "SELECT id FROM Curso%s WHERE nombre = 'Curso Plan 7'");
+    }
+
+    @Test
+    public void profesorPorNombre() {
+        comparar("idx_profesor_nombre", "SELECT id FROM Profesor%s WHERE nombre = 'Profesor Plan 7'");
+    }
+
+    @Test
+    public void cursosDeUnEstudiante() {
+        comparar("idx_estudiante_curso_estudiante",
+                "SELECT curso_id FROM estudiante_curso%s WHERE estudiante_id = " + estudianteId);
+    }
+
+    // Pide el plan con IGNORE INDEX en el hueco %s de la consulta y sin él
+    private void comparar(String indice, String sql) {
+        String sinIndice = plan(sql.formatted(" IGNORE INDEX (" + indice + ")"));
+        String conIndice = plan(sql.formatted(""));
+
+        System.out.println(sql.formatted("") + "\n  sin índice: " + sinIndice + "\n  con índice: " + conIndice);
+        assertFalse(sinIndice.toLowerCase().contains(indice));
+        assertTrue(conIndice.toLowerCase().contains(indice));
+    }
+
+    private String plan(String sql) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.doReturningWork(conexion -> {
+                StringBuilder plan = new StringBuilder();
+                try (Statement st = conexion.createStatement(); ResultSet rs = st.executeQuery("EXPLAIN " + sql)) {
+                    int columnas = rs.getMetaData().getColumnCount();
+                    while (rs.next()) {
+                        for (int i = 1; i <= columnas; i++) {
+                            plan.append(rs.getMetaData().getColumnLabel(i)).append('=').append(rs.getString(i)).append(' ');
+                        }
+                    }
+                }
+                return plan.toString().replaceAll("\\s+", " ").trim();
+            });
+        }
+    }
+
+    @BeforeEach
+    public void seed() {
+        // EXPLAIN e IGNORE INDEX son de MariaDB: con otra base de datos no se comprueba nada
+        assumeTrue(HibernateUtil.getSessionFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof MariaDBDialect, "Sólo con MariaDB");
+        StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+        Long existentes = session.createSelectionQuery(
+                        "SELECT COUNT(c) FROM Curso c WHERE c.nombre = 'Curso Plan 0'", Long.class)
+                .getSingleResult();
+        if (existentes > 0 && estudianteId != 0) {
+            session.close();
+            return;
+        }
+
+        session.close();
+
+        SplittableRandom aleatorio = new SplittableRandom(42);
+        String marca = "." + System.nanoTime();
+        Session s = HibernateUtil.getSessionFactory().openSession();
+        s.beginTransaction();
+        Profesor[] profesores = new Profesor[NUM_PROFESORES];
+        for (int i = 0; i < NUM_PROFESORES; i++) {
+            profesores[i] = new Profesor("Profesor Plan " + i, "plan.p" + i + marca + "@escuela.com");
+            s.persist(profesores[i]);
+        }
+        long[] cursos = new long[NUM_CURSOS];
+        for (int i = 0; i < NUM_CURSOS; i++) {
+            Curso curso = new Curso("Curso Plan " + i, 6.0, profesores[i % NUM_PROFESORES]);
+            s.persist(curso);
+            cursos[i] = curso.getId();
+        }
+        s.flush();
+        s.clear();
+        for (int i = 0; i < NUM_ESTUDIANTES; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante Plan " + i, "plan.e" + i + marca + "@escuela.com");
+            for (int j = 0; j < CURSOS_POR_ESTUDIANTE; j++) {
+                estudiante.getCursos().add(s.getReference(Curso.class,
+                        cursos[(i + j * 167 + aleatorio.nextInt(7)) % NUM_CURSOS]));
+            }
+            s.persist(estudiante);
+            estudianteId = estudiante.getId();
+            if (i % 500 == 0) {
+                s.flush();
+                s.clear();
+            }
+        }
+        s.getTransaction().commit();
+        s.close();
+    }
+}
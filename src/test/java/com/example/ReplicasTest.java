@@ -0,0 +1,109 @@
+package com.example;
+
+import com.example.model.Profesor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Primaria y dos réplicas H2 embebidas. Cada base de datos tiene un
+// profesor con el mismo email y distinto nombre, para saber de cuál se lee.
+public class ReplicasTest {
+
+    private static final String H2 = "jdbc:h2:mem:%s;MODE=MariaDB;DB_CLOSE_DELAY=-1";
+    private static final String EMAIL = "origen@escuela.com";
+
+    private final List<String> propiedades = List.of("hibernate.connection.driver_class", "hibernate.connection.url",
+            "hibernate.connection.username", "hibernate.connection.password", Replicas.URLS, Replicas.BALANCEO);
+
+    @Test
+    public void roundRobinEntreReplicas() {
+        iniciar("round_robin");
+
+        List<String> origenes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            try (Session session = HibernateUtil.abrirSesionLectura()) {
+                assertTrue(session.isDefaultReadOnly());
+                origenes.add(origen(session));
+            }
+        }
+        assertEquals(List.of("Replica A", "Replica B", "Replica A", "Replica B"), origenes);
+
+        try (Session session = HibernateUtil.abrirSesionLectura(false)) {
+            assertTrue(session.isDefaultReadOnly());
+            assertEquals("Primaria", origen(session));
+        }
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            assertEquals("Primaria", origen(session));
+        }
+    }
+
+    @Test
+    public void menosConexiones() {
+        iniciar("menos_conexiones");
+
+        try (Session primera = HibernateUtil.abrirSesionLectura();
+             Session segunda = HibernateUtil.abrirSesionLectura()) {
+            assertEquals("Replica A", origen(primera));
+            // La réplica A tiene una conexión prestada a la primera sesión
+            assertEquals("Replica B", origen(segunda));
+        }
+        try (Session session = HibernateUtil.abrirSesionLectura()) {
+            assertEquals("Replica A", origen(session));
+        }
+    }
+
+    private static String origen(Session session) {
+        return session.createSelectionQuery("SELECT p.nombre FROM Profesor p WHERE p.email = :email", String.class)
+                .setParameter("email", EMAIL)
+                .getSingleResult();
+    }
+
+    private void iniciar(String balanceo) {
+        System.setProperty(Replicas.BALANCEO, balanceo);
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(new Profesor("Primaria", EMAIL));
+        session.getTransaction().commit();
+        session.close();
+    }
+
+    // Las réplicas se rellenan a mano: el esquema con las mismas migraciones y una fila propia
+    private static void replica(String nombre, String profesor) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(H2.formatted(nombre));
+        dataSource.setUser("sa");
+        MigracionesEsquema.migrar(dataSource, true);
+        try (Connection conexion = dataSource.getConnection(); Statement st = conexion.createStatement()) {
+            st.executeUpdate("INSERT INTO Profesor (id, version, nombre, email) VALUES (1, 0, '" + profesor + "', '" + EMAIL + "')");
+        }
+    }
+
+    @BeforeEach
+    public void seed() throws SQLException {
+        HibernateUtil.shutdown();
+        replica("replicas_a", "Replica A");
+        replica("replicas_b", "Replica B");
+        System.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+        System.setProperty("hibernate.connection.url", H2.formatted("replicas_primaria"));
+        System.setProperty("hibernate.connection.username", "sa");
+        System.setProperty("hibernate.connection.password", "");
+        System.setProperty(Replicas.URLS, H2.formatted("replicas_a") + "," + H2.formatted("replicas_b"));
+    }
+
+    @AfterEach
+    public void restaurar() {
+        propiedades.forEach(System::clearProperty);
+        HibernateUtil.shutdown();
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.agregados;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Matricula;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TotalesMatriculaTest {
+
+    private TotalesMatricula totales;
+    private long p1;
+    private long p2;
+    private long c1;
+    private long c2;
+    private long e1;
+    private long e2;
+
+    // c1 (6.0, p1)   c2 (4.5, p1)   e1: c1, c2   e2: c2
+    @Test
+    public void totalesIniciales() {
+        assertEquals(10.5, totales.creditosDeEstudiante(e1));
+        assertEquals(4.5, totales.creditosDeEstudiante(e2));
+        assertEquals(new TotalesMatricula.CargaProfesor(2, 10.5, 2, 3), totales.cargaDeProfesor(p1));
+        assertEquals(new TotalesMatricula.CargaProfesor(0, 0, 0, 0), totales.cargaDeProfesor(p2));
+    }
+
+    @Test
+    public void actualizarConCambios() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        // Matrícula nueva, curso nuevo del segundo profesor y cambio de créditos
+        Profesor profesor2 = session.find(Profesor.class, p2);
+        Curso c3 = new Curso("Curso Totales 3", 3.0, profesor2);
+        session.persist(c3);
+        session.find(Estudiante.class, e2).getCursos().add(c3);
+        session.find(Curso.class, c2).setCreditos(5.0);
+        session.getTransaction().commit();
+        session.close();
+
+        assertEquals(11.0, totales.creditosDeEstudiante(e1));
+        assertEquals(8.0, totales.creditosDeEstudiante(e2));
+        assertEquals(new TotalesMatricula.CargaProfesor(2, 11.0, 2, 3), totales.cargaDeProfesor(p1));
+        assertEquals(new TotalesMatricula.CargaProfesor(1, 3.0, 1, 1), totales.cargaDeProfesor(p2));
+
+        // Cambio de profesor y baja de un estudiante
+        Session s2 = HibernateUtil.getSessionFactory().openSession();
+        s2.beginTransaction();
+        s2.find(Curso.class, c1).setProfesor(s2.getReference(Profesor.class, p2));
+        s2.remove(s2.find(Estudiante.class, e2));
+        s2.getTransaction().commit();
+        s2.close();
+
+        assertEquals(0.0, totales.creditosDeEstudiante(e2));
+        assertEquals(new TotalesMatricula.CargaProfesor(1, 5.0, 1, 1), totales.cargaDeProfesor(p1));
+        assertEquals(new TotalesMatricula.CargaProfesor(2, 9.0, 1, 1), totales.cargaDeProfesor(p2));
+        assertTotalesIgualesTrasReconstruir();
+    }
+
+    // Un cambio confirmado mientras se reconstruye no se pierde ni se cuenta dos veces:
+    // la lectura ya no ve el curso nuevo pero sí su matrícula
+    @Test
+    public void cambiosDuranteReconstruir() {
+        totales.reconstruir(() -> {
+            Session session = HibernateUtil.getSessionFactory().openSession();
+            session.beginTransaction();
+            Curso c3 = new Curso("Curso Totales 3", 1.0, session.getReference(Profesor.class, p2));
+            session.persist(c3);
+            session.persist(new Matricula(session.getReference(Estudiante.class, e1), c3));
+            session.getTransaction().commit();
+            session.close();
+        });
+
+        assertEquals(11.5, totales.creditosDeEstudiante(e1));
+        assertEquals(new TotalesMatricula.CargaProfesor(1, 1.0, 1, 1), totales.cargaDeProfesor(p2));
+        assertTotalesIgualesTrasReconstruir();
+    }
+
+    @Test
+    public void ignorarTransaccionDeshecha() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.find(Curso.class, c1).setCreditos(100.0);
+        session.flush();
+        session.getTransaction().rollback();
+        session.close();
+
+        assertEquals(10.5, totales.creditosDeEstudiante(e1));
+    }
+
+    private void assertTotalesIgualesTrasReconstruir() {
+        double creditos1 = totales.creditosDeEstudiante(e1);
+        TotalesMatricula.CargaProfesor carga1 = totales.cargaDeProfesor(p1);
+        TotalesMatricula.CargaProfesor carga2 = totales.cargaDeProfesor(p2);
+        totales.reconstruir();
+        assertEquals(creditos1, totales.creditosDeEstudiante(e1));
+        assertEquals(carga1, totales.cargaDeProfesor(p1));
+        assertEquals(carga2, totales.cargaDeProfesor(p2));
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor pr1 = new Profesor("Profesor Totales 1", "ptot1" + System.nanoTime() + "@escuela.com");
+        Profesor pr2 = new Profesor("Profesor Totales 2", "ptot2" + System.nanoTime() + "@escuela.com");
+        Curso cu1 = new Curso("Curso Totales 1", 6.0, pr1);
+        Curso cu2 = new Curso("Curso Totales 2", 4.5, pr1);
+        Estudiante es1 = new Estudiante("Estudiante Totales 1", "etot1" + System.nanoTime() + "@escuela.com");
+        Estudiante es2 = new Estudiante("Estudiante Totales 2", "etot2" + System.nanoTime() + "@escuela.com");
+        es1.getCursos().add(cu1);
+        es1.getCursos().add(cu2);
+        es2.getCursos().add(cu2);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(pr1);
+        session.persist(pr2);
+        session.persist(cu1);
+        session.persist(cu2);
+        session.persist(es1);
+        session.persist(es2);
+        session.getTransaction().commit();
+        session.close();
+
+        p1 = pr1.getId();
+        p2 = pr2.getId();
+        c1 = cu1.getId();
+        c2 = cu2.getId();
+        e1 = es1.getId();
+        e2 = es2.getId();
+        totales = TotalesMatricula.cargar(HibernateUtil.getSessionFactory());
+    }
+
+    @AfterEach
+    public void cerrar() {
+        totales.close();
+    }
+}
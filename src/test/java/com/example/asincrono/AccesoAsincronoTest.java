@@ -0,0 +1,153 @@
+package com.example.asincrono;
+
+import com.example.HibernateUtil;
+import com.example.consultas.CursoResumen;
+import com.example.consultas.EstudianteResumen;
+import com.example.consultas.ProfesorResumen;
+import com.example.metricas.RegistroMetricas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AccesoAsincronoTest {
+
+    private long estudianteId;
+    private long cursoA;
+    private long cursoB;
+    private long profesorId;
+
+    @Test
+    public void fichaEnParalelo() {
+        try (AccesoAsincrono acceso = AccesoAsincrono.crear(HibernateUtil.getSessionFactory(), new RegistroMetricas())) {
+            AccesoAsincrono.FichaEstudiante ficha = acceso.fichaEstudiante(estudianteId).join().orElseThrow();
+
+            assertEquals("Estudiante Asincrono", ficha.estudiante().nombre());
+            assertEquals(List.of(cursoA, cursoB), ficha.cursos().stream().map(CursoResumen::id).toList());
+            assertEquals("Profesor Asincrono", ficha.cursos().get(0).profesorNombre());
+            List<ProfesorResumen> profesores = ficha.profesores();
+            assertEquals(1, profesores.size());
+            assertEquals(profesorId, profesores.get(0).id());
+            assertEquals(2, profesores.get(0).cursos());
+
+            assertEquals(Optional.empty(), acceso.fichaEstudiante(-1).join());
+        }
+    }
+
+    @Test
+    public void escrituraYLectura() {
+        try (AccesoAsincrono acceso = AccesoAsincrono.crear(HibernateUtil.getSessionFactory(), new RegistroMetricas())) {
+            acceso.desmatricular(estudianteId, cursoB).join();
+            assertEquals(List.of(), acceso.estudiantesEnCurso(cursoB).join());
+            acceso.matricular(estudianteId, cursoB).join();
+            assertEquals(List.of(estudianteId), acceso.estudiantesEnCurso(cursoB).join().stream()
+                    .map(EstudianteResumen::id).toList());
+        }
+    }
+
+    // Cientos de trabajos en hilos virtuales, pero nunca más de 4 a la vez con la base de datos
+    @Test
+    public void contrapresionConElSemaforo() {
+        AtomicInteger activos = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        AtomicBoolean todosVirtuales = new AtomicBoolean(true);
+        try (AccesoAsincrono acceso = new AccesoAsincrono(HibernateUtil.getSessionFactory(),
+                Executors.newVirtualThreadPerTaskExecutor(), 4, new RegistroMetricas())) {
+            List<CompletableFuture<Long>> trabajos = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                trabajos.add(acceso.leer(session -> {
+                    maximo.accumulateAndGet(activos.incrementAndGet(), Math::max);
+                    todosVirtuales.compareAndSet(true, Thread.currentThread().isVirtual());
+                    try {
+                        Thread.sleep(2);
+                        return session.createSelectionQuery("SELECT COUNT(c) FROM Curso c", Long.class)
+                                .getSingleResult();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    } finally {
+                        activos.decrementAndGet();
+                    }
+                }));
+            }
+            AccesoAsincrono.todos(trabajos.toArray(CompletableFuture[]::new)).join();
+            assertTrue(trabajos.stream().allMatch(t -> t.join() >= 2));
+        }
+        assertTrue(todosVirtuales.get());
+        assertEquals(4, maximo.get());
+    }
+
+    @Test
+    public void unFalloCancelaElResto() throws InterruptedException {
+        CountDownLatch interrumpido = new CountDownLatch(1);
+        CountDownLatch empezado = new CountDownLatch(1);
+        try (AccesoAsincrono acceso = AccesoAsincrono.crear(HibernateUtil.getSessionFactory(), new RegistroMetricas())) {
+            CompletableFuture<Object> lento = acceso.leer(session -> {
+                empezado.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    interrumpido.countDown();
+                }
+                return null;
+            });
+            CompletableFuture<Object> fallido = acceso.leer(session -> {
+                try {
+                    empezado.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("fallo");
+            });
+
+            long inicio = System.nanoTime();
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> AccesoAsincrono.todos(lento, fallido).join());
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+            assertTrue(lento.isCancelled());
+            assertTrue(System.nanoTime() - inicio < TimeUnit.SECONDS.toNanos(10));
+        }
+        // El hilo del trabajo cancelado recibe la interrupción
+        assertTrue(interrumpido.await(10, TimeUnit.SECONDS));
+    }
+
+    @BeforeEach
+    public void seed() {
+        String marca = "." + System.nanoTime();
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Profesor profesor = new Profesor("Profesor Asincrono", "async.p" + marca + "@escuela.com");
+        session.persist(profesor);
+        Curso a = new Curso("Curso Asincrono A", 6.0, profesor);
+        Curso b = new Curso("Curso Asincrono B", 3.0, profesor);
+        session.persist(a);
+        session.persist(b);
+        Estudiante estudiante = new Estudiante("Estudiante Asincrono", "async.e" + marca + "@escuela.com");
+        estudiante.getCursos().add(a);
+        estudiante.getCursos().add(b);
+        session.persist(estudiante);
+        session.getTransaction().commit();
+        session.close();
+        estudianteId = estudiante.getId();
+        cursoA = a.getId();
+        cursoB = b.getId();
+        profesorId = profesor.getId();
+    }
+}
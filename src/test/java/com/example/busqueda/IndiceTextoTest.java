@@ -0,0 +1,164 @@
+package com.example.busqueda;
+
+import com.example.HibernateUtil;
+import com.example.busqueda.IndiceTexto.Resultado;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndiceTextoTest {
+
+    private IndiceTexto indice;
+    private String marca;
+    private long joseId;
+    private long josefinaId;
+    private long profesorId;
+
+    @Test
+    public void prefijoErratasYAcentos() {
+        assertTrue(ids(indice.buscar("Quintan", 50)).contains(joseId));
+        assertTrue(ids(indice.buscar("Quintanila", 50)).contains(joseId));
+        assertTrue(ids(indice.buscar("jose quintanilla", 50)).contains(joseId));
+        // Busca en el email también
+        assertTrue(ids(indice.buscar("jq." + marca, 50)).contains(joseId));
+        assertTrue(indice.buscar("Zzyzx" + marca, 50).isEmpty());
+    }
+
+    // La palabra exacta puntúa más que el prefijo
+    @Test
+    public void ordenPorRelevancia() {
+        List<Long> ids = ids(indice.buscar(Estudiante.class, "jose " + marca, 50));
+        assertEquals(List.of(joseId, josefinaId), ids);
+    }
+
+    @Test
+    public void filtrarPorTipo() {
+        List<Resultado> profesores = indice.buscar(Profesor.class, "Quintanilla " + marca, 50);
+        assertEquals(1, profesores.size());
+        assertEquals(new Resultado(Profesor.class, profesorId, profesores.get(0).puntuacion()), profesores.get(0));
+        assertEquals(3, indice.buscar("Quintanilla " + marca, 50).size());
+    }
+
+    @Test
+    public void listenersAlConfirmar() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante nueva = new Estudiante("Ramona Villalobos", "rv." + marca + "@escuela.com");
+        session.persist(nueva);
+        session.getTransaction().commit();
+        assertEquals(List.of(nueva.getId()), ids(indice.buscar("villalobos " + marca, 50)));
+
+        session.beginTransaction();
+        nueva.setNombre("Ramona Castañeda");
+        session.getTransaction().commit();
+        assertTrue(indice.buscar("villalobos " + marca, 50).isEmpty());
+        assertEquals(List.of(nueva.getId()), ids(indice.buscar("castaneda " + marca, 50)));
+
+        session.beginTransaction();
+        session.remove(nueva);
+        session.getTransaction().rollback();
+        assertEquals(1, indice.buscar("castaneda " + marca, 50).size());
+        session.close();
+
+        session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.remove(session.find(Estudiante.class, nueva.getId()));
+        session.getTransaction().commit();
+        session.close();
+        assertTrue(indice.buscar("castaneda " + marca, 50).isEmpty());
+    }
+
+    // Lo escrito sin Session no genera eventos: aparece al reindexar
+    @Test
+    public void reindexarEnParalelo() {
+        StatelessSession session = HibernateUtil.getSessionFactory().openStatelessSession();
+        session.beginTransaction();
+        for (int i = 0; i < 2_500; i++) {
+            session.insert(new Estudiante("Masivo " + i, "masivo" + i + "." + marca + "@escuela.com"));
+        }
+        session.getTransaction().commit();
+        session.close();
+        assertTrue(indice.buscar("masivo " + marca, 10).isEmpty());
+
+        long indexadas = indice.reindexar(4);
+
+        assertTrue(indexadas >= 2_500);
+        assertEquals(10, indice.buscar("masivo " + marca, 10).size());
+        assertTrue(ids(indice.buscar("Quintanilla", 50)).contains(joseId));
+    }
+
+    // Una escritura leída antes de un cambio ya aplicado no lo deshace ni resucita una baja
+    @Test
+    public void loteAntiguoNoPisaCambios() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante jose = session.find(Estudiante.class, joseId);
+        long leida = jose.getVersion();
+        jose.setNombre("José Barrionuevo");
+        session.getTransaction().commit();
+
+        indice.aplicar(Estudiante.class, joseId, "José Quintanilla", jose.getEmail(), leida, false);
+        assertEquals(List.of(joseId), ids(indice.buscar("barrionuevo " + marca, 50)));
+        assertFalse(ids(indice.buscar(Estudiante.class, "quintanilla " + marca, 50)).contains(joseId));
+
+        Estudiante josefina = session.find(Estudiante.class, josefinaId);
+        session.beginTransaction();
+        session.remove(josefina);
+        session.getTransaction().commit();
+        session.close();
+
+        indice.aplicar(Estudiante.class, josefinaId, josefina.getNombre(), josefina.getEmail(),
+                josefina.getVersion(), false);
+        assertTrue(indice.buscar("josefina " + marca, 50).isEmpty());
+    }
+
+    // Aplicar cambios no reabre el buscador; la búsqueda siguiente espera a verlos todos
+    @Test
+    public void cambiosSinReabrirCadaVez() {
+        long antes = indice.reaperturas();
+        for (int i = 0; i < 200; i++) {
+            indice.aplicar(Profesor.class, profesorId, "Inés Cambio" + i, "iq." + marca + "@escuela.com", i + 100, false);
+        }
+        assertEquals(List.of(profesorId), ids(indice.buscar("cambio199 " + marca, 50)));
+        assertTrue(indice.reaperturas() - antes < 10, "reaperturas: " + (indice.reaperturas() - antes));
+    }
+
+    private static List<Long> ids(List<Resultado> resultados) {
+        return resultados.stream().map(Resultado::id).toList();
+    }
+
+    @BeforeEach
+    public void seed() {
+        marca = "m" + System.nanoTime();
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante jose = new Estudiante("José Quintanilla", "jq." + marca + "@escuela.com");
+        Estudiante josefina = new Estudiante("Josefina Quintanilla", "josefina." + marca + "@escuela.com");
+        Profesor profesor = new Profesor("Inés Quintanilla", "iq." + marca + "@escuela.com");
+        session.persist(jose);
+        session.persist(josefina);
+        session.persist(profesor);
+        session.getTransaction().commit();
+        session.close();
+        joseId = jose.getId();
+        josefinaId = josefina.getId();
+        profesorId = profesor.getId();
+
+        indice = IndiceTexto.abrir(HibernateUtil.getSessionFactory());
+    }
+
+    @AfterEach
+    public void cerrar() {
+        indice.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.carga;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GeneradorDatosTest {
+
+    private static final int ESTUDIANTES = 5_000;
+    private static final int CURSOS = 100;
+
+    @Test
+    public void cursosPopularesConSesgo() {
+        GeneradorDatos.DatosGenerados datos = generar(1.2);
+
+        long[] porCurso = matriculadosPorCurso(datos.cursoIds());
+        System.out.printf("%d filas en %d ms (%.0f filas/s); curso más popular %d, menos popular %d%n",
+                datos.estudianteIds().length + datos.matriculas(), datos.duracion().toMillis(),
+                datos.filasPorSegundo(), porCurso[0], porCurso[CURSOS - 1]);
+        assertEquals(datos.matriculas(), Arrays.stream(porCurso).sum());
+        assertTrue(porCurso[0] > 10 * Math.max(1, porCurso[CURSOS - 1]));
+        assertEquals(ESTUDIANTES, cuenta("SELECT COUNT(e) FROM Estudiante e WHERE e.id IN (:ids)",
+                datos.estudianteIds()));
+        // Entre 1 y 4 cursos distintos por estudiante
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            List<Long> cursosPorEstudiante = session.createSelectionQuery(
+                            "SELECT COUNT(m) FROM Matricula m WHERE m.estudiante.id IN (:ids) GROUP BY m.estudiante.id",
+                            Long.class)
+                    .setParameter("ids", Arrays.stream(datos.estudianteIds()).boxed().toList())
+                    .getResultList();
+            assertEquals(ESTUDIANTES, cursosPorEstudiante.size());
+            assertTrue(cursosPorEstudiante.stream().allMatch(n -> n >= 1 && n <= 4));
+        }
+    }
+
+    @Test
+    public void sinSesgoSeReparteIgual() {
+        long[] porCurso = matriculadosPorCurso(generar(0).cursoIds());
+
+        long media = Arrays.stream(porCurso).sum() / CURSOS;
+        assertTrue(Arrays.stream(porCurso).allMatch(n -> n > media / 2 && n < media * 2));
+    }
+
+    // Con el prefijo, las consultas por nombre de otros tests no encuentran los datos generados
+    @Test
+    public void nombresConPrefijo() {
+        String prefijo = "gen" + System.nanoTime();
+        GeneradorDatos.DatosGenerados datos = new GeneradorDatos(HibernateUtil.getSessionFactory())
+                .generar(new GeneradorDatos.Configuracion(3, 2, 2, 1, 1, 0, 7, prefijo, 50));
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            assertEquals(prefijo + " Profesor 1", session.find(Profesor.class, datos.profesorIds()[1]).getNombre());
+            assertEquals(prefijo + " Curso 1", session.find(Curso.class, datos.cursoIds()[1]).getNombre());
+        }
+    }
+
+    @Test
+    public void zipf() {
+        Distribucion distribucion = new Distribucion(10, 1.0);
+        assertEquals(2.0, distribucion.probabilidad(0) / distribucion.probabilidad(1), 1e-9);
+        assertEquals(10.0, distribucion.probabilidad(0) / distribucion.probabilidad(9), 1e-9);
+
+        int[] veces = new int[10];
+        SplittableRandom aleatorio = new SplittableRandom(1);
+        for (int i = 0; i < 100_000; i++) {
+            veces[distribucion.muestra(aleatorio)]++;
+        }
+        for (int k = 0; k < 10; k++) {
+            assertEquals(distribucion.probabilidad(k), veces[k] / 100_000.0, 0.01);
+        }
+        assertEquals(0, new Distribucion(1, 3.0).muestra(aleatorio));
+    }
+
+    private GeneradorDatos.DatosGenerados generar(double sesgo) {
+        GeneradorDatos.Configuracion configuracion = new GeneradorDatos.Configuracion(ESTUDIANTES, CURSOS, 10,
+                1, 4, sesgo, 7, "gen" + System.nanoTime(), 50);
+        return new GeneradorDatos(HibernateUtil.getSessionFactory()).generar(configuracion);
+    }
+
+    private long[] matriculadosPorCurso(long[] cursoIds) {
+        long[] porCurso = new long[cursoIds.length];
+        for (int i = 0; i < cursoIds.length; i++) {
+            porCurso[i] = cuenta("SELECT COUNT(m) FROM Matricula m WHERE m.curso.id IN (:ids)", new long[]{cursoIds[i]});
+        }
+        return porCurso;
+    }
+
+    private long cuenta(String hql, long[] ids) {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.createSelectionQuery(hql, Long.class)
+                    .setParameter("ids", Arrays.stream(ids).boxed().toList())
+                    .getSingleResult();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.consultas;
+
+import com.example.HibernateUtil;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BusquedaPorEmailTest {
+
+    private String marca;
+
+    @Test
+    public void busquedaRepetidaSinConsultas() {
+        Statistics estadisticas = HibernateUtil.getSessionFactory().getStatistics();
+        String email = "ana" + marca + "@escuela.com";
+
+        Session s1 = HibernateUtil.getSessionFactory().openSession();
+        assertEquals("Ana", BusquedaPorEmail.estudiante(s1, email).orElseThrow().getNombre());
+        s1.close();
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        long aciertos = estadisticas.getNaturalIdCacheHitCount();
+        Session s2 = HibernateUtil.getSessionFactory().openSession();
+        assertEquals("Ana", BusquedaPorEmail.estudiante(s2, email).orElseThrow().getNombre());
+        s2.close();
+
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+        assertTrue(estadisticas.getNaturalIdCacheHitCount() > aciertos);
+    }
+
+    @Test
+    public void emailInexistente() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        assertTrue(BusquedaPorEmail.profesor(session, "nadie" + marca + "@escuela.com").isEmpty());
+        session.close();
+    }
+
+    @Test
+    public void cargaMultipleEnOrden() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        List<Estudiante> estudiantes = BusquedaPorEmail.estudiantes(session, List.of(
+                "luis" + marca + "@escuela.com", "nadie" + marca + "@escuela.com", "ana" + marca + "@escuela.com"));
+        session.close();
+
+        assertEquals("Luis", estudiantes.get(0).getNombre());
+        assertNull(estudiantes.get(1));
+        assertEquals("Ana", estudiantes.get(2).getNombre());
+    }
+
+    // La caché de claves naturales compara el texto exacto: se guarda y se busca en minúsculas
+    @Test
+    public void sinDistinguirMayusculas() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante eva = new Estudiante("Eva", " Eva" + marca + "@Escuela.com");
+        session.persist(eva);
+        session.getTransaction().commit();
+        session.close();
+        assertEquals("eva" + marca + "@escuela.com", eva.getEmail());
+
+        session = HibernateUtil.getSessionFactory().openSession();
+        assertEquals("Eva", BusquedaPorEmail.estudiante(session, "EVA" + marca + "@escuela.com").orElseThrow().getNombre());
+        List<Estudiante> estudiantes = BusquedaPorEmail.estudiantes(session, List.of(
+                "Ana" + marca + "@ESCUELA.com", "eva" + marca + "@escuela.com "));
+        session.close();
+
+        assertEquals("Ana", estudiantes.get(0).getNombre());
+        assertEquals("Eva", estudiantes.get(1).getNombre());
+    }
+
+    @Test
+    public void emailDuplicado() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(new Profesor("Otra Marta", "marta" + marca + "@escuela.com"));
+        assertThrows(RuntimeException.class, session::flush);
+        session.getTransaction().rollback();
+        session.close();
+    }
+
+    @BeforeEach
+    public void seed() {
+        marca = "." + System.nanoTime();
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(new Profesor("Marta", "marta" + marca + "@escuela.com"));
+        Arrays.asList(new Estudiante("Ana", "ana" + marca + "@escuela.com"),
+                        new Estudiante("Luis", "luis" + marca + "@escuela.com"))
+                .forEach(session::persist);
+        session.getTransaction().commit();
+        session.close();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.consultas;
+
+import com.example.HibernateUtil;
+import com.example.asincrono.AccesoAsincrono;
+import com.example.metricas.RegistroMetricas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CargaPorIdsTest {
+
+    private static final int NUM_ESTUDIANTES = 300;
+
+    private final List<Long> estudianteIds = new ArrayList<>();
+    private Long cursoA;
+    private Long cursoB;
+    private Long cursoVacio;
+
+    @Test
+    public void trozosRellenadosHastaPotenciaDeDos() {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= 21; i++) {
+            ids.add(i);
+        }
+        ids.add(3L);
+
+        List<List<Long>> trozos = CargaPorIds.trozos(ids, 8);
+
+        assertEquals(List.of(8, 8, 8), trozos.stream().map(List::size).toList());
+        assertEquals(List.of(17L, 18L, 19L, 20L, 21L, 21L, 21L, 21L), trozos.get(2));
+        assertEquals(List.of(List.of(5L)), CargaPorIds.trozos(List.of(5L, 5L), 8));
+        assertEquals(List.of(4, 2, 1), List.of(3, 2, 1).stream()
+                .map(n -> CargaPorIds.trozos(ids.subList(0, n), 8).get(0).size()).toList());
+        assertEquals(List.of(), CargaPorIds.trozos(List.of(), 8));
+        assertThrows(IllegalArgumentException.class, () -> new CargaPorIds(null, 100));
+    }
+
+    @Test
+    public void estudiantesEnElOrdenPedido() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        // Orden al revés, con repetidos y con ids que no existen
+        List<Long> pedidos = new ArrayList<>(estudianteIds);
+        Collections.reverse(pedidos);
+        pedidos.add(2, -1L);
+        pedidos.add(estudianteIds.get(0));
+        pedidos.addAll(estudianteIds.subList(0, 10));
+
+        try (AccesoAsincrono acceso = AccesoAsincrono.crear(sf, new RegistroMetricas())) {
+            long sentencias = sf.getStatistics().getPrepareStatementCount();
+            List<Estudiante> estudiantes = new CargaPorIds(acceso, 16).estudiantes(pedidos);
+
+            List<Long> esperados = new ArrayList<>(estudianteIds);
+            Collections.reverse(esperados);
+            assertEquals(esperados, estudiantes.stream().map(Estudiante::getId).toList());
+            // 301 ids distintos en trozos de 16: 19 consultas
+            assertEquals(19, sf.getStatistics().getPrepareStatementCount() - sentencias);
+        }
+    }
+
+    @Test
+    public void cursosYEstudiantesPorCurso() {
+        try (AccesoAsincrono acceso = AccesoAsincrono.crear(HibernateUtil.getSessionFactory(), new RegistroMetricas())) {
+            CargaPorIds carga = new CargaPorIds(acceso, 2);
+
+            assertEquals(List.of(cursoB, cursoVacio, cursoA), carga.cursos(List.of(cursoB, cursoVacio, -1L, cursoA))
+                    .stream().map(Curso::getId).toList());
+
+            Map<Long, List<EstudianteResumen>> porCurso = carga.estudiantesPorCurso(
+                    List.of(cursoB, cursoVacio, cursoA, -1L));
+            assertEquals(List.of(cursoB, cursoVacio, cursoA, -1L), List.copyOf(porCurso.keySet()));
+            assertEquals(NUM_ESTUDIANTES / 2, porCurso.get(cursoB).size());
+            assertEquals(NUM_ESTUDIANTES, porCurso.get(cursoA).size());
+            assertEquals(List.of(), porCurso.get(cursoVacio));
+            assertEquals(estudianteIds, porCurso.get(cursoA).stream().map(EstudianteResumen::id).toList());
+
+            // Los de B primero y sin repetir; luego el resto de A
+            List<Long> enCursos = carga.estudiantesEnCursos(List.of(cursoB, cursoA)).stream()
+                    .map(EstudianteResumen::id).toList();
+            assertEquals(NUM_ESTUDIANTES, enCursos.stream().collect(Collectors.toSet()).size());
+            assertEquals(porCurso.get(cursoB).stream().map(EstudianteResumen::id).toList(),
+                    enCursos.subList(0, NUM_ESTUDIANTES / 2));
+            assertTrue(enCursos.containsAll(estudianteIds));
+        }
+    }
+
+    @BeforeEach
+    public void seed() {
+        String marca = "." + System.nanoTime();
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Profesor profesor = new Profesor("Profesor Carga", "carga.p" + marca + "@escuela.com");
+        session.persist(profesor);
+        Curso a = new Curso("Curso Carga A", 6.0, profesor);
+        Curso b = new Curso("Curso Carga B", 3.0, profesor);
+        Curso vacio = new Curso("Curso Carga Vacio", 3.0, profesor);
+        session.persist(a);
+        session.persist(b);
+        session.persist(vacio);
+        List<Estudiante> estudiantes = new ArrayList<>();
+        for (int i = 0; i < NUM_ESTUDIANTES; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante Carga " + i, "carga.e" + i + marca + "@escuela.com");
+            estudiante.getCursos().add(a);
+            if (i % 2 == 1) {
+                estudiante.getCursos().add(b);
+            }
+            session.persist(estudiante);
+            estudiantes.add(estudiante);
+        }
+        session.getTransaction().commit();
+        session.close();
+        estudianteIds.clear();
+        estudiantes.forEach(e -> estudianteIds.add(e.getId()));
+        Collections.sort(estudianteIds);
+        cursoA = a.getId();
+        cursoB = b.getId();
+        cursoVacio = vacio.getId();
+    }
+}
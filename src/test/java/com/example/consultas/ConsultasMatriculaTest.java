@@ -0,0 +1,149 @@
+package com.example.consultas;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConsultasMatriculaTest {
+
+    private Long c1Id;
+    private Long c2Id;
+
+    @Test
+    public void repetirConsultaSinIrALaBaseDeDatos() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        Statistics estadisticas = sf.getStatistics();
+
+        Session s1 = sf.openSession();
+        List<Estudiante> primera = ConsultasMatricula.estudiantesEnCursos(s1, List.of(c2Id, c1Id));
+        s1.close();
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        long aciertos = aciertosPorCurso(estadisticas);
+
+        Session s2 = sf.openSession();
+        List<Estudiante> segunda = ConsultasMatricula.estudiantesEnCursos(s2, List.of(c1Id, c2Id));
+        segunda.forEach(System.out::println);
+        s2.close();
+
+        assertEquals(primera.size(), segunda.size());
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+        assertEquals(aciertos + 2, aciertosPorCurso(estadisticas));
+    }
+
+    // Matricular en un curso no invalida lo guardado de los demás
+    @Test
+    public void invalidarSoloElCursoCambiado() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        Statistics estadisticas = sf.getStatistics();
+
+        Session s1 = sf.openSession();
+        ConsultasMatricula.estudiantesEnCurso(s1, c1Id);
+        ConsultasMatricula.estudiantesEnCurso(s1, c2Id);
+        s1.close();
+
+        Session s2 = sf.openSession();
+        s2.beginTransaction();
+        Estudiante nuevo = new Estudiante("Estudiante Roster 4", "roster4" + System.nanoTime() + "@escuela.com");
+        nuevo.getCursos().add(s2.getReference(Curso.class, c1Id));
+        s2.persist(nuevo);
+        s2.getTransaction().commit();
+        s2.close();
+
+        long sentencias = estadisticas.getPrepareStatementCount();
+        Session s3 = sf.openSession();
+        assertEquals(1, ConsultasMatricula.estudiantesEnCurso(s3, c2Id).size());
+        s3.close();
+        assertEquals(sentencias, estadisticas.getPrepareStatementCount());
+
+        Session s4 = sf.openSession();
+        assertEquals(3, ConsultasMatricula.estudiantesEnCurso(s4, c1Id).size());
+        s4.close();
+    }
+
+    private static long aciertosPorCurso(Statistics estadisticas) {
+        return estadisticas.getCacheRegionStatistics("curso_estudiantes").getHitCount();
+    }
+
+    @Test
+    public void invalidarAlMatricular() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+
+        Session s1 = sf.openSession();
+        assertEquals(2, ConsultasMatricula.estudiantesEnCurso(s1, c1Id).size());
+        s1.close();
+
+        // Nueva matrícula: cambia estudiante_curso
+        Session s2 = sf.openSession();
+        s2.beginTransaction();
+        Estudiante nuevo = new Estudiante("Estudiante Roster 3", "roster3" + System.nanoTime() + "@escuela.com");
+        nuevo.getCursos().add(s2.getReference(Curso.class, c1Id));
+        s2.persist(nuevo);
+        s2.getTransaction().commit();
+        s2.close();
+
+        Session s3 = sf.openSession();
+        assertEquals(3, ConsultasMatricula.estudiantesEnCurso(s3, c1Id).size());
+        s3.close();
+    }
+
+    @Test
+    public void invalidarConExecuteUpdate() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        String nombre = "Roster " + System.nanoTime();
+
+        Session s1 = sf.openSession();
+        assertTrue(ConsultasMatricula.estudiantesEnCursosPorNombre(s1, List.of(nombre)).isEmpty());
+        s1.close();
+
+        // Cambio masivo sobre curso: la consulta por nombre debe volver a ejecutarse
+        Session s2 = sf.openSession();
+        s2.beginTransaction();
+        s2.createMutationQuery("UPDATE Curso c SET c.nombre = :nombre WHERE c.id = :id")
+                .setParameter("nombre", nombre)
+                .setParameter("id", c1Id)
+                .executeUpdate();
+        s2.getTransaction().commit();
+        s2.close();
+
+        Session s3 = sf.openSession();
+        assertEquals(2, ConsultasMatricula.estudiantesEnCursosPorNombre(s3, List.of(nombre)).size());
+        s3.close();
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor p = new Profesor("Profesor Roster", "proster" + System.nanoTime() + "@escuela.com");
+        Curso c1 = new Curso("Curso Roster 1", 6.0, p);
+        Curso c2 = new Curso("Curso Roster 2", 4.0, p);
+        Estudiante e1 = new Estudiante("Estudiante Roster 1", "roster1" + System.nanoTime() + "@escuela.com");
+        Estudiante e2 = new Estudiante("Estudiante Roster 2", "roster2" + System.nanoTime() + "@escuela.com");
+        e1.getCursos().add(c1);
+        e1.getCursos().add(c2);
+        e2.getCursos().add(c1);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        session.persist(c1);
+        session.persist(c2);
+        session.persist(e1);
+        session.persist(e2);
+        session.getTransaction().commit();
+        session.close();
+
+        c1Id = c1.getId();
+        c2Id = c2.getId();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.consultas;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PaginacionTest {
+
+    private Long cursoId;
+
+    // Recorrer todas las páginas da las mismas filas, en el mismo orden, que la consulta completa
+    @Test
+    public void recorrerEstudiantesPorNombre() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        List<Long> esperados = session.createQuery(
+                "SELECT e.id FROM Estudiante e ORDER BY e.nombre, e.id", Long.class).getResultList();
+
+        List<Long> leidos = new ArrayList<>();
+        String token = null;
+        do {
+            Pagina<Estudiante> pagina = Paginacion.estudiantesPorNombre(session, token, 3);
+            pagina.elementos().forEach(e -> leidos.add(e.getId()));
+            token = pagina.siguiente();
+        } while (token != null);
+        session.close();
+
+        assertEquals(esperados, leidos);
+    }
+
+    @Test
+    public void recorrerEstudiantesDeUnCurso() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        Pagina<Estudiante> primera = Paginacion.estudiantesEnCurso(session, cursoId, null, 2);
+        Pagina<Estudiante> segunda = Paginacion.estudiantesEnCurso(session, cursoId, primera.siguiente(), 2);
+        Pagina<Estudiante> tercera = Paginacion.estudiantesEnCurso(session, cursoId, segunda.siguiente(), 2);
+        session.close();
+
+        assertEquals(2, primera.elementos().size());
+        assertEquals(2, segunda.elementos().size());
+        assertEquals(1, tercera.elementos().size());
+        assertFalse(tercera.hayMas());
+        assertEquals(List.of("Paginado A", "Paginado A", "Paginado B", "Paginado C", "Paginado D"),
+                List.of(primera, segunda, tercera).stream()
+                        .flatMap(p -> p.elementos().stream())
+                        .map(Estudiante::getNombre)
+                        .sorted()
+                        .toList());
+    }
+
+    @Test
+    public void ultimaPaginaSinToken() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        Pagina<Estudiante> pagina = Paginacion.estudiantesEnCurso(session, cursoId, null, 5);
+        session.close();
+
+        assertEquals(5, pagina.elementos().size());
+        assertNull(pagina.siguiente());
+    }
+
+    @Test
+    public void rechazarTokenDeOtroListado() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        // Hay al menos dos cursos (los de seed), así que la primera página de uno trae token
+        String token = Paginacion.cursos(session, null, 1).siguiente();
+        assertNotNull(token);
+        assertThrows(IllegalArgumentException.class,
+                () -> Paginacion.estudiantesEnCurso(session, cursoId, token, 2));
+        assertThrows(IllegalArgumentException.class,
+                () -> Paginacion.estudiantesPorNombre(session, "no es un token", 2));
+        session.close();
+    }
+
+    // Un nombre nulo no tendría sitio en el token ni en "nombre > :nombre": la columna lo impide
+    @Test
+    public void nombreObligatorio() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        assertThrows(RuntimeException.class, () -> session.createNativeMutationQuery(
+                        "INSERT INTO Estudiante (id, email, nombre, version) VALUES (-42, :email, NULL, 0)")
+                .setParameter("email", "sinnombre" + System.nanoTime() + "@escuela.com")
+                .executeUpdate());
+        session.getTransaction().rollback();
+        session.close();
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor p = new Profesor("Profesor Paginado", "ppag" + System.nanoTime() + "@escuela.com");
+        Curso c = new Curso("Curso Paginado", 6.0, p);
+        Curso otro = new Curso("Curso Paginado Vacío", 3.0, p);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        session.persist(c);
+        session.persist(otro);
+        // Dos estudiantes con el mismo nombre: el id desempata
+        for (String nombre : List.of("Paginado C", "Paginado A", "Paginado D", "Paginado A", "Paginado B")) {
+            Estudiante e = new Estudiante(nombre, "pag" + System.nanoTime() + "@escuela.com");
+            e.getCursos().add(c);
+            session.persist(e);
+        }
+        session.getTransaction().commit();
+        session.close();
+
+        cursoId = c.getId();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.consultas;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ResumenesTest {
+
+    private static final int NUM_CURSOS = 2_000;
+    private static final int REPETICIONES = 20;
+
+    private Long cursoId;
+
+    @Test
+    public void listarSinContextoDePersistencia() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        CursoResumen curso = Resumenes.cursos(session).stream()
+                .filter(c -> c.id().equals(cursoId))
+                .findFirst()
+                .orElseThrow();
+        List<EstudianteResumen> estudiantes = Resumenes.estudiantesEnCurso(session, cursoId);
+
+        assertEquals(new CursoResumen(cursoId, "Curso Resumen", 6.0, "Profesor Resumen"), curso);
+        assertEquals(List.of("Estudiante Resumen 1", "Estudiante Resumen 2"),
+                estudiantes.stream().map(EstudianteResumen::nombre).toList());
+        assertTrue(Resumenes.estudiantes(session).size() >= 2);
+        // Ninguna entidad ha pasado por la sesión
+        assertEquals(0, session.getStatistics().getEntityCount());
+        session.close();
+    }
+
+    // Compara latencia y memoria reservada al listar cursos con su profesor
+    // como entidades de sólo lectura (como listarCursosSoloLectura) y como records.
+    @Test
+    public void compararEntidadesYRecords() {
+        SessionFactory sf = HibernateUtil.getSessionFactory();
+        StatelessSession insercion = sf.openStatelessSession();
+        insercion.beginTransaction();
+        Profesor profesor = new Profesor("Profesor Benchmark", "pbench" + System.nanoTime() + "@escuela.com");
+        insercion.insert(profesor);
+        for (int i = 0; i < NUM_CURSOS; i++) {
+            insercion.insert(new Curso("Curso Benchmark " + i, 3.0, profesor));
+        }
+        insercion.getTransaction().commit();
+        insercion.close();
+
+        Function<Session, Integer> entidades = session -> {
+            List<Curso> cursos = session.createQuery(
+                            "FROM Curso c LEFT JOIN FETCH c.profesor", Curso.class)
+                    .setReadOnly(true)
+                    .getResultList();
+            cursos.forEach(c -> c.getProfesor());
+            return cursos.size();
+        };
+        Function<Session, Integer> records = session -> Resumenes.cursos(session).size();
+
+        // Calentamiento: traducción de las consultas y JIT
+        medir(entidades);
+        medir(records);
+        double[] conEntidades = medir(entidades);
+        double[] conRecords = medir(records);
+
+        System.out.println("==================================");
+        System.out.println("Listado de " + (int) conEntidades[2] + " cursos con profesor");
+        System.out.println("----------------------------------");
+        System.out.printf("Entidades (readOnly): %.2f ms, %.0f KB reservados%n", conEntidades[0], conEntidades[1]);
+        System.out.printf("Records (SELECT new): %.2f ms, %.0f KB reservados%n", conRecords[0], conRecords[1]);
+        System.out.println("==================================");
+        assertEquals(conEntidades[2], conRecords[2]);
+    }
+
+    // {milisegundos, KB reservados, filas}, de media por repetición
+    private double[] medir(Function<Session, Integer> listado) {
+        com.sun.management.ThreadMXBean hilos =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long hilo = Thread.currentThread().threadId();
+        int filas = 0;
+        long nanos = 0;
+        long bytes = 0;
+        for (int i = 0; i < REPETICIONES; i++) {
+            Session session = HibernateUtil.getSessionFactory().openSession();
+            long memoriaInicio = hilos.getThreadAllocatedBytes(hilo);
+            long inicio = System.nanoTime();
+            filas = listado.apply(session);
+            nanos += System.nanoTime() - inicio;
+            bytes += hilos.getThreadAllocatedBytes(hilo) - memoriaInicio;
+            session.close();
+        }
+        return new double[]{nanos / 1_000_000.0 / REPETICIONES, bytes / 1024.0 / REPETICIONES, filas};
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor p = new Profesor("Profesor Resumen", "presumen" + System.nanoTime() + "@escuela.com");
+        Curso c = new Curso("Curso Resumen", 6.0, p);
+        Estudiante e1 = new Estudiante("Estudiante Resumen 1", "eresumen1" + System.nanoTime() + "@escuela.com");
+        Estudiante e2 = new Estudiante("Estudiante Resumen 2", "eresumen2" + System.nanoTime() + "@escuela.com");
+        e1.getCursos().add(c);
+        e2.getCursos().add(c);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        session.persist(c);
+        session.persist(e1);
+        session.persist(e2);
+        session.getTransaction().commit();
+        session.close();
+
+        cursoId = c.getId();
+    }
+}
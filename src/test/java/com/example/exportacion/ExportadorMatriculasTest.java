@@ -0,0 +1,91 @@
+package com.example.exportacion;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExportadorMatriculasTest {
+
+    private String marca;
+
+    @Test
+    public void exportarNdjson() {
+        StringWriter salida = new StringWriter();
+        // Fetch diminuto para que el cursor haga varios viajes
+        long estudiantes = new ExportadorMatriculas(HibernateUtil.getSessionFactory(), 2)
+                .exportar(salida, ExportadorMatriculas.Formato.NDJSON);
+
+        List<String> lineas = lineasConMarca(salida.toString());
+        lineas.forEach(System.out::println);
+        assertEquals(3, lineas.size());
+        assertTrue(lineas.get(0).matches("\\{\"id\":\\d+,\"nombre\":\"Estudiante \\\\\"Exportado\\\\\" 1\","
+                + "\"email\":\"exp1" + marca + "\",\"cursos\":\\[\\{\"nombre\":\"Curso A" + marca
+                + "\",\"creditos\":6.0},\\{\"nombre\":\"Curso B" + marca + "\",\"creditos\":4.5}]}"));
+        assertTrue(lineas.get(2).endsWith("\"cursos\":[]}"));
+        assertEquals(salida.toString().lines().count(), estudiantes);
+    }
+
+    @Test
+    public void exportarCsvAFichero() throws IOException {
+        Path fichero = Files.createTempFile("matriculas", ".csv");
+        try {
+            long estudiantes = new ExportadorMatriculas(HibernateUtil.getSessionFactory()).exportar(fichero);
+            String csv = Files.readString(fichero);
+
+            assertTrue(csv.startsWith("estudiante_id,nombre,email,curso,creditos\n"));
+            List<String> lineas = lineasConMarca(csv);
+            lineas.forEach(System.out::println);
+            // Dos matrículas del primero, una del segundo y una línea sin curso para el tercero
+            assertEquals(4, lineas.size());
+            assertTrue(lineas.get(0).endsWith(",\"Estudiante \"\"Exportado\"\" 1\",exp1" + marca
+                    + ",Curso A" + marca + ",6.0"));
+            assertTrue(lineas.get(3).endsWith(",\"Estudiante, sin cursos\",exp3" + marca + ",,"));
+            assertTrue(estudiantes >= 3);
+        } finally {
+            Files.deleteIfExists(fichero);
+        }
+    }
+
+    private List<String> lineasConMarca(String salida) {
+        return salida.lines().filter(l -> l.contains(marca)).toList();
+    }
+
+    @BeforeEach
+    public void seed() {
+        marca = "-" + System.nanoTime();
+        Profesor p = new Profesor("Profesor Exportado", "pexp" + marca);
+        Curso a = new Curso("Curso A" + marca, 6.0, p);
+        Curso b = new Curso("Curso B" + marca, 4.5, p);
+        Estudiante e1 = new Estudiante("Estudiante \"Exportado\" 1", "exp1" + marca);
+        Estudiante e2 = new Estudiante("Estudiante Exportado 2", "exp2" + marca);
+        Estudiante e3 = new Estudiante("Estudiante, sin cursos", "exp3" + marca);
+        e1.getCursos().add(b);
+        e1.getCursos().add(a);
+        e2.getCursos().add(a);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        // B antes que A: el orden por nombre no coincide con el de id
+        session.persist(b);
+        session.persist(a);
+        session.persist(e1);
+        session.persist(e2);
+        session.persist(e3);
+        session.getTransaction().commit();
+        session.close();
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.importacion;
+
+import com.example.HibernateUtil;
+import com.example.agregados.TotalesMatricula;
+import com.example.busqueda.IndiceTexto;
+import com.example.indice.IndiceMatriculas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import com.example.outbox.Outbox;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ImportadorMatriculasTest {
+
+    @Test
+    public void importarCsv() {
+        String csv = """
+                # tipo,campos...
+                profesor,Profesor CSV,pcsv@escuela.com
+                curso,Curso CSV,6.0,pcsv@escuela.com
+                estudiante,"Estudiante, CSV 1",ecsv1@escuela.com
+                estudiante,Estudiante CSV 2,ecsv2@escuela.com
+                matricula,ecsv1@escuela.com,Curso CSV
+                matricula,ECsv2@Escuela.com,Curso CSV
+                matricula,noexiste@escuela.com,Curso CSV
+                """;
+
+        // Bloques y caché diminutos para forzar varios commits y expulsiones
+        ImportadorMatriculas importador = new ImportadorMatriculas(HibernateUtil.getSessionFactory(), 2, 1);
+        ResumenImportacion resumen = importador.importar(new StringReader(csv), ImportadorMatriculas.Formato.CSV);
+        System.out.println(resumen);
+
+        assertEquals(1, resumen.profesores());
+        assertEquals(1, resumen.cursos());
+        assertEquals(2, resumen.estudiantes());
+        assertEquals(2, resumen.matriculas());
+        assertEquals(1, resumen.rechazadas());
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        Curso curso = session.createQuery("FROM Curso c WHERE c.nombre = 'Curso CSV'", Curso.class).getSingleResult();
+        assertEquals("Profesor CSV", curso.getProfesor().getNombre());
+        assertEquals(2, curso.getEstudiantes().size());
+        session.close();
+    }
+
+    @Test
+    public void importarNdjson() {
+        String ndjson = """
+                {"tipo":"profesor","nombre":"Profesor JSON","email":"pjson@escuela.com"}
+                {"tipo":"curso","nombre":"Curso JSON","creditos":4.5,"profesor":"pjson@escuela.com"}
+                {"tipo":"estudiante","nombre":"Estudiante \\"JSON\\"","email":"ejson@escuela.com"}
+                {"tipo":"matricula","estudiante":"ejson@escuela.com","curso":"Curso JSON"}
+                """;
+
+        ImportadorMatriculas importador = new ImportadorMatriculas(HibernateUtil.getSessionFactory());
+        ResumenImportacion resumen = importador.importar(new StringReader(ndjson), ImportadorMatriculas.Formato.NDJSON);
+        System.out.println(resumen);
+        assertEquals(0, resumen.rechazadas());
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        List<Estudiante> estudiantes = session.createQuery(
+                "SELECT e FROM Estudiante e JOIN e.cursos c WHERE c.nombre = 'Curso JSON'", Estudiante.class)
+                .getResultList();
+        estudiantes.forEach(System.out::println);
+        assertEquals(1, estudiantes.size());
+        assertEquals("Estudiante \"JSON\"", estudiantes.get(0).getNombre());
+        session.close();
+    }
+
+    // Líneas NDJSON cortadas: se cuentan como rechazadas y la importación sigue
+    @Test
+    public void ndjsonMalFormadoSeRechaza() {
+        String marca = String.valueOf(System.nanoTime());
+        String ndjson = """
+                {"tipo":"profesor","nombre":"Profesor Roto","email":"proto%1$s@escuela.com"}
+                {"tipo":"estudiante","nombre":"Estudiante sin cerrar}
+                {"tipo":"estudiante","nombre":"Estudiante \\u00"}
+                {"tipo":"estudiante","nombre":"Estudiante \\u00e}
+                {"tipo":"estudiante","nombre"}
+                {"tipo":"estudiante","nombre":}
+                {"tipo":"estudiante","nombre":"Estudiante \\}
+                {"tipo":"estudiante","nombre":"Estudiante Roto","email":"eroto%1$s@escuela.com"}
+                """.formatted(marca);
+
+        ImportadorMatriculas importador = new ImportadorMatriculas(HibernateUtil.getSessionFactory());
+        ResumenImportacion resumen = importador.importar(new StringReader(ndjson), ImportadorMatriculas.Formato.NDJSON);
+        System.out.println(resumen);
+        assertEquals(6, resumen.rechazadas());
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        assertEquals(1, session.createQuery("SELECT COUNT(e) FROM Estudiante e WHERE e.email = :email", Long.class)
+                .setParameter("email", "eroto" + marca + "@escuela.com")
+                .getSingleResult());
+        session.close();
+    }
+
+    // Sin listeners, el importador escribe los eventos, sube versiones y recalcula los índices abiertos
+    // El outbox sólo se abre para que el listener escriba los eventos; no se usa en el cuerpo
+    @Test
+    @SuppressWarnings("try")
+    public void avisaAOutboxEIndices() {
+        SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+        String marca = "imp" + System.nanoTime();
+        Session session = sessionFactory.openSession();
+        session.beginTransaction();
+        Estudiante previo = new Estudiante("Previo " + marca, "previo." + marca + "@escuela.com");
+        session.persist(previo);
+        session.getTransaction().commit();
+        session.close();
+        // Deja la versión anterior en la caché de segundo nivel
+        session = sessionFactory.openSession();
+        long versionAnterior = session.find(Estudiante.class, previo.getId()).getVersion();
+        session.close();
+
+        String csv = """
+                profesor,Profesor %1$s,p.%1$s@escuela.com
+                curso,Curso %1$s,6.0,p.%1$s@escuela.com
+                estudiante,Importado %1$s,e.%1$s@escuela.com
+                matricula,e.%1$s@escuela.com,Curso %1$s
+                matricula,previo.%1$s@escuela.com,Curso %1$s
+                """.formatted(marca);
+
+        try (Outbox outbox = Outbox.abrir(sessionFactory);
+             IndiceMatriculas indice = IndiceMatriculas.cargar(sessionFactory);
+             TotalesMatricula totales = TotalesMatricula.cargar(sessionFactory);
+             IndiceTexto texto = IndiceTexto.abrir(sessionFactory)) {
+            new ImportadorMatriculas(sessionFactory, 2, 10)
+                    .importar(new StringReader(csv), ImportadorMatriculas.Formato.CSV);
+
+            session = sessionFactory.openSession();
+            Profesor profesor = session.createQuery("FROM Profesor p WHERE p.email = :email", Profesor.class)
+                    .setParameter("email", "p." + marca + "@escuela.com").getSingleResult();
+            Curso curso = session.createQuery("FROM Curso c WHERE c.nombre = :nombre", Curso.class)
+                    .setParameter("nombre", "Curso " + marca).getSingleResult();
+            Estudiante importado = session.createQuery("FROM Estudiante e WHERE e.email = :email", Estudiante.class)
+                    .setParameter("email", "e." + marca + "@escuela.com").getSingleResult();
+
+            assertEquals(List.of("ALTA {\"email\":\"p." + marca + "@escuela.com\","
+                            + "\"nombre\":\"Profesor " + marca + "\"}"),
+                    eventos(session, "Profesor", profesor.getId()));
+            assertEquals(List.of("ALTA {\"creditos\":6.0,\"nombre\":\"Curso " + marca + "\",\"profesor\":"
+                    + profesor.getId() + "}"), eventos(session, "Curso", curso.getId()));
+            assertEquals(List.of("ALTA {\"email\":\"e." + marca + "@escuela.com\","
+                            + "\"nombre\":\"Importado " + marca + "\"}",
+                    "MATRICULA {\"altas\":[" + curso.getId() + "]}"),
+                    eventos(session, "Estudiante", importado.getId()));
+            assertEquals(List.of("MATRICULA {\"altas\":[" + curso.getId() + "]}"),
+                    eventos(session, "Estudiante", previo.getId()));
+
+            // La caché no conserva la versión anterior: cambiar al estudiante no da conflicto
+            Estudiante cambiado = session.find(Estudiante.class, previo.getId());
+            assertEquals(versionAnterior + 1, cambiado.getVersion());
+            session.beginTransaction();
+            cambiado.setNombre("Previo cambiado " + marca);
+            session.getTransaction().commit();
+            session.close();
+
+            Roaring64NavigableMap enCurso = Roaring64NavigableMap.bitmapOf(importado.getId(), previo.getId());
+            assertEquals(enCurso, indice.estudiantesEnCurso(curso.getId()));
+            assertEquals(6.0, totales.creditosDeEstudiante(previo.getId()));
+            assertEquals(1, totales.cargaDeProfesor(profesor.getId()).cursos());
+            assertEquals(List.of(importado.getId()),
+                    texto.buscar("importado " + marca, 10).stream().map(IndiceTexto.Resultado::id).toList());
+        }
+    }
+
+    private static List<String> eventos(Session session, String agregado, long id) {
+        return session.createNativeQuery(
+                        "SELECT tipo, datos FROM outbox WHERE agregado = :agregado AND agregado_id = :id ORDER BY id",
+                        Object[].class)
+                .setParameter("agregado", agregado)
+                .setParameter("id", id)
+                .getResultStream()
+                .map(fila -> fila[0] + " " + fila[1])
+                .toList();
+    }
+}
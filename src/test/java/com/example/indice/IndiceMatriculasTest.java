@@ -0,0 +1,162 @@
+package com.example.indice;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.longlong.Roaring64NavigableMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndiceMatriculasTest {
+
+    private IndiceMatriculas indice;
+    private long a;
+    private long b;
+    private long c;
+    private long e1;
+    private long e2;
+    private long e3;
+
+    // e1: A, B   e2: B, C   e3: A
+    @Test
+    public void operacionesDeConjuntos() {
+        assertArrayEquals(ids(e1, e2, e3), indice.estudiantesEnAlguno(a, b, c).toArray());
+        assertArrayEquals(ids(e1), indice.estudiantesEnTodos(a, b).toArray());
+        assertArrayEquals(ids(e3), indice.estudiantesEnAlgunoExcepto(new long[]{a}, b).toArray());
+        assertArrayEquals(ids(b, c), indice.cursosDeEstudiante(e2).toArray());
+        assertTrue(indice.estudiantesEnTodos(a, c).isEmpty());
+    }
+
+    // Mismo resultado que la consulta HQL de EscuelaTest.listarEstudiantesEnDosCursosPorId
+    @Test
+    public void coincidirConHql() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        long[] esperados = session.createQuery(
+                        "SELECT DISTINCT e.id FROM Estudiante e JOIN e.cursos c WHERE c.id IN (:cursoIds) ORDER BY e.id",
+                        Long.class)
+                .setParameter("cursoIds", List.of(b, c))
+                .getResultList().stream().mapToLong(Long::longValue).toArray();
+        session.close();
+
+        long inicio = System.nanoTime();
+        Roaring64NavigableMap resultado = indice.estudiantesEnAlguno(b, c);
+        System.out.printf("Unión en el índice: %d µs%n", (System.nanoTime() - inicio) / 1_000);
+        assertArrayEquals(esperados, resultado.toArray());
+    }
+
+    @Test
+    public void actualizarAlConfirmar() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante estudiante = session.find(Estudiante.class, e3);
+        estudiante.getCursos().add(session.getReference(Curso.class, c));
+        Estudiante nuevo = new Estudiante("Estudiante Indice 4", "indice4" + System.nanoTime() + "@escuela.com");
+        nuevo.getCursos().add(session.getReference(Curso.class, c));
+        session.persist(nuevo);
+        session.flush();
+        // Hasta el commit el índice no cambia
+        assertArrayEquals(ids(e2), indice.estudiantesEnCurso(c).toArray());
+        session.getTransaction().commit();
+        session.close();
+
+        assertArrayEquals(ids(e2, e3, nuevo.getId()), indice.estudiantesEnCurso(c).toArray());
+        assertArrayEquals(ids(a, c), indice.cursosDeEstudiante(e3).toArray());
+
+        // Quitar una matrícula y borrar un estudiante
+        Session s2 = HibernateUtil.getSessionFactory().openSession();
+        s2.beginTransaction();
+        s2.find(Estudiante.class, e1).getCursos().removeIf(curso -> curso.getId() == b);
+        s2.remove(s2.find(Estudiante.class, e2));
+        s2.getTransaction().commit();
+        s2.close();
+
+        assertArrayEquals(ids(e1, e3), indice.estudiantesEnCurso(a).toArray());
+        assertTrue(indice.estudiantesEnCurso(b).isEmpty());
+        assertTrue(indice.cursosDeEstudiante(e2).isEmpty());
+    }
+
+    // Un cambio confirmado después de leer y antes de sustituir el índice no se pierde
+    @Test
+    public void cambiosDuranteRecargar() {
+        indice.recargar(() -> {
+            Session session = HibernateUtil.getSessionFactory().openSession();
+            session.beginTransaction();
+            session.find(Estudiante.class, e3).getCursos().add(session.getReference(Curso.class, c));
+            session.getTransaction().commit();
+            session.close();
+        });
+
+        assertArrayEquals(ids(e2, e3), indice.estudiantesEnCurso(c).toArray());
+        assertArrayEquals(ids(a, c), indice.cursosDeEstudiante(e3).toArray());
+    }
+
+    @Test
+    public void ignorarTransaccionDeshecha() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.find(Estudiante.class, e3).getCursos().add(session.getReference(Curso.class, b));
+        session.flush();
+        session.getTransaction().rollback();
+        session.close();
+
+        assertEquals(1, indice.cursosDeEstudiante(e3).getLongCardinality());
+        assertArrayEquals(ids(e1, e2), indice.estudiantesEnCurso(b).toArray());
+    }
+
+    private static long[] ids(long... ids) {
+        long[] ordenados = ids.clone();
+        Arrays.sort(ordenados);
+        return ordenados;
+    }
+
+    @BeforeEach
+    public void seed() {
+        Profesor p = new Profesor("Profesor Indice", "pindice" + System.nanoTime() + "@escuela.com");
+        Curso ca = new Curso("Curso Indice A", 6.0, p);
+        Curso cb = new Curso("Curso Indice B", 4.0, p);
+        Curso cc = new Curso("Curso Indice C", 3.0, p);
+        Estudiante es1 = new Estudiante("Estudiante Indice 1", "indice1" + System.nanoTime() + "@escuela.com");
+        Estudiante es2 = new Estudiante("Estudiante Indice 2", "indice2" + System.nanoTime() + "@escuela.com");
+        Estudiante es3 = new Estudiante("Estudiante Indice 3", "indice3" + System.nanoTime() + "@escuela.com");
+        es1.getCursos().add(ca);
+        es1.getCursos().add(cb);
+        es2.getCursos().add(cb);
+        es2.getCursos().add(cc);
+        es3.getCursos().add(ca);
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(p);
+        session.persist(ca);
+        session.persist(cb);
+        session.persist(cc);
+        session.persist(es1);
+        session.persist(es2);
+        session.persist(es3);
+        session.getTransaction().commit();
+        session.close();
+
+        a = ca.getId();
+        b = cb.getId();
+        c = cc.getId();
+        e1 = es1.getId();
+        e2 = es2.getId();
+        e3 = es3.getId();
+        indice = IndiceMatriculas.cargar(HibernateUtil.getSessionFactory());
+    }
+
+    @AfterEach
+    public void cerrar() {
+        indice.close();
+    }
+}
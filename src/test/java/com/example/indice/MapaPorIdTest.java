@@ -0,0 +1,48 @@
+package com.example.indice;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class MapaPorIdTest {
+
+    // Altas y bajas al azar sobre pocas claves (muchas colisiones y desplazamientos al borrar)
+    @Test
+    public void mismoResultadoQueHashMap() {
+        Random azar = new Random(42);
+        MapaPorId<String> mapa = new MapaPorId<>();
+        Map<Long, String> esperado = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long clave = azar.nextInt(2_000) - 100;
+            if (azar.nextInt(3) == 0) {
+                assertEquals(esperado.remove(clave), mapa.remove(clave));
+            } else {
+                String valor = "v" + i;
+                esperado.put(clave, valor);
+                mapa.put(clave, valor);
+            }
+        }
+        assertEquals(esperado.size(), mapa.size());
+        for (long clave = -100; clave < 1_900; clave++) {
+            assertEquals(esperado.get(clave), mapa.get(clave));
+        }
+        Map<String, Integer> valores = new HashMap<>();
+        mapa.forEachValue(valor -> valores.merge(valor, 1, Integer::sum));
+        assertEquals(esperado.size(), valores.size());
+    }
+
+    @Test
+    public void computeIfAbsentCreaUnaVez() {
+        MapaPorId<StringBuilder> mapa = new MapaPorId<>();
+        mapa.computeIfAbsent(7, k -> new StringBuilder()).append('a');
+        mapa.computeIfAbsent(7, k -> new StringBuilder()).append('b');
+        assertEquals("ab", mapa.get(7).toString());
+        assertNull(mapa.get(8));
+        assertEquals(1, mapa.size());
+    }
+}
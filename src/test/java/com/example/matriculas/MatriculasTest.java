@@ -0,0 +1,152 @@
+package com.example.matriculas;
+
+import com.example.HibernateUtil;
+import com.example.indice.IndiceMatriculas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.transacciones.EjecutorTransaccional;
+import org.hibernate.Session;
+import org.hibernate.StatelessSession;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MatriculasTest {
+
+    private static final int MATRICULADOS = 2_000;
+
+    private long cursoId;
+    private List<Long> estudianteIds;
+    private long nuevoId;
+
+    // La colección del curso tiene miles de filas y no se carga
+    @Test
+    public void altaYBajaDeUnaFila() {
+        IndiceMatriculas indice = IndiceMatriculas.cargar(HibernateUtil.getSessionFactory());
+
+        // Lectura del estudiante, INSERT y UPDATE de su versión
+        assertEquals(3, sentencias(session -> Matriculas.matricular(session, nuevoId, cursoId)));
+        assertEquals(MATRICULADOS + 1, estudiantesDelCurso());
+        assertTrue(indice.estudiantesEnCurso(cursoId).contains(nuevoId));
+
+        // Lectura de la matrícula y del estudiante, DELETE y UPDATE de su versión
+        assertEquals(4, sentencias(session -> assertTrue(Matriculas.desmatricular(session, nuevoId, cursoId))));
+        assertEquals(MATRICULADOS, estudiantesDelCurso());
+        assertFalse(indice.estudiantesEnCurso(cursoId).contains(nuevoId));
+        sentencias(session -> assertFalse(Matriculas.desmatricular(session, nuevoId, cursoId)));
+        indice.close();
+    }
+
+    @Test
+    public void altaMasivaEnUnLote() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Curso curso = new Curso("Curso Matriculas Lote", 3.0, null);
+        session.persist(curso);
+        session.getTransaction().commit();
+        session.close();
+        long otroCurso = curso.getId();
+
+        // Una consulta para los estudiantes, un lote de INSERT y otro de UPDATE de versiones
+        assertEquals(3, sentencias(s -> Matriculas.matricularEnCurso(s, otroCurso, estudianteIds)));
+        try (Session s = HibernateUtil.getSessionFactory().openSession()) {
+            assertEquals(MATRICULADOS, s.find(Curso.class, otroCurso).getEstudiantes().size());
+            assertEquals(2, s.find(Estudiante.class, estudianteIds.get(0)).getCursos().size());
+        }
+    }
+
+    // Una transacción que leyó al estudiante antes de una Matricula y cambia sus cursos falla, y al revés
+    @Test
+    public void conflictoConLaColeccion() {
+        Session coleccion = HibernateUtil.getSessionFactory().openSession();
+        coleccion.beginTransaction();
+        coleccion.find(Estudiante.class, nuevoId).getCursos().add(coleccion.getReference(Curso.class, cursoId));
+
+        sentencias(session -> Matriculas.matricular(session, nuevoId, cursoId));
+
+        RuntimeException error = assertThrows(RuntimeException.class, () -> coleccion.getTransaction().commit());
+        assertTrue(EjecutorTransaccional.esConflicto(error));
+        coleccion.close();
+
+        Session matricula = HibernateUtil.getSessionFactory().openSession();
+        matricula.beginTransaction();
+        assertTrue(Matriculas.desmatricular(matricula, nuevoId, cursoId));
+
+        sentencias(session -> session.find(Estudiante.class, nuevoId).getCursos()
+                .add(session.getReference(Curso.class, otroCurso())));
+
+        error = assertThrows(RuntimeException.class, () -> matricula.getTransaction().commit());
+        assertTrue(EjecutorTransaccional.esConflicto(error));
+        matricula.close();
+        assertEquals(MATRICULADOS + 1, estudiantesDelCurso());
+    }
+
+    private static long otroCurso() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            session.beginTransaction();
+            Curso curso = new Curso("Curso Matriculas Otro", 3.0, null);
+            session.persist(curso);
+            session.getTransaction().commit();
+            return curso.getId();
+        }
+    }
+
+    // Sentencias preparadas por la operación y el commit
+    private long sentencias(Consumer<Session> operacion) {
+        Statistics estadisticas = HibernateUtil.getSessionFactory().getStatistics();
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        long antes = estadisticas.getPrepareStatementCount();
+        operacion.accept(session);
+        session.getTransaction().commit();
+        long sentencias = estadisticas.getPrepareStatementCount() - antes;
+        session.close();
+        return sentencias;
+    }
+
+    // Pasa por la caché de segundo nivel, que debe haberse invalidado
+    private int estudiantesDelCurso() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.find(Curso.class, cursoId).getEstudiantes().size();
+        }
+    }
+
+    @BeforeEach
+    public void seed() {
+        String marca = "." + System.nanoTime();
+        StatelessSession insercion = HibernateUtil.getSessionFactory().openStatelessSession();
+        insercion.beginTransaction();
+        Curso curso = new Curso("Curso Matriculas", 6.0, null);
+        insercion.insert(curso);
+        cursoId = curso.getId();
+        estudianteIds = new ArrayList<>();
+        for (int i = 0; i < MATRICULADOS; i++) {
+            Estudiante estudiante = new Estudiante("Estudiante Matriculas " + i, "mat" + i + marca + "@escuela.com");
+            insercion.insert(estudiante);
+            estudianteIds.add(estudiante.getId());
+        }
+        Estudiante nuevo = new Estudiante("Estudiante Matriculas Nuevo", "matnuevo" + marca + "@escuela.com");
+        insercion.insert(nuevo);
+        nuevoId = nuevo.getId();
+        insercion.getTransaction().commit();
+        insercion.close();
+
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Matriculas.matricularEnCurso(session, cursoId, estudianteIds);
+        session.getTransaction().commit();
+        session.close();
+
+        // Curso y colección en la caché de segundo nivel antes de cada prueba
+        estudiantesDelCurso();
+    }
+}
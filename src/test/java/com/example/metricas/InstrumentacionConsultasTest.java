@@ -0,0 +1,112 @@
+package com.example.metricas;
+
+import com.example.HibernateUtil;
+import com.example.model.Curso;
+import com.example.model.Profesor;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InstrumentacionConsultasTest {
+
+    @Test
+    public void redactarLiterales() {
+        assertEquals("FROM Estudiante e WHERE e.email = ? AND e.id > ? AND e.nombre = :nombre",
+                EstadisticasConsultas.redactar(
+                        "FROM Estudiante e WHERE e.email = 'ana@escuela.com'  AND e.id > 25 AND e.nombre = :nombre"));
+        assertEquals("FROM Curso c1 WHERE c1.creditos = ? AND c1.nombre = ? AND c1.id = ?1",
+                EstadisticasConsultas.redactar("FROM Curso c1 WHERE c1.creditos = 4.5 AND c1.nombre = 'O''Brien' AND c1.id = ?1"));
+    }
+
+    @Test
+    public void histogramaYFilasPorConsulta() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.createQuery("FROM Curso c WHERE c.creditos > 0", Curso.class).getResultList();
+        session.close();
+
+        String texto = HibernateUtil.getMetricas().exportarPrometheus();
+        String etiqueta = "{hql=\"FROM Curso c WHERE c.creditos > ?\"}";
+        assertTrue(texto.contains("consulta_segundos_count" + etiqueta + " "));
+        assertTrue(texto.contains("consulta_filas_total" + etiqueta + " "));
+        // El literal no llega a las métricas
+        assertFalse(texto.contains("c.creditos > 0"));
+    }
+
+    // Una consulta de menos de un milisegundo también suma tiempo; las cargas por id no son HQL
+    @Test
+    public void tiempoEnNanosegundosSoloDeHql() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.createQuery("SELECT c.id FROM Curso c WHERE c.id = -7", Long.class).getResultList();
+        session.find(Curso.class, -7L);
+        session.close();
+
+        Histograma histograma = HibernateUtil.getMetricas().histograma("consulta_segundos",
+                "Duración de cada consulta HQL", "hql", "SELECT c.id FROM Curso c WHERE c.id = ?");
+        assertEquals(1, histograma.getCuenta());
+        assertTrue(histograma.getSumaSegundos() > 0);
+        assertFalse(HibernateUtil.getMetricas().exportarPrometheus().contains("from Curso c1_0"));
+    }
+
+    @Test
+    public void detectarNMasUno() {
+        List<Long> ids = profesoresConCurso();
+        LongAdder avisos = avisosCursosDeProfesor();
+        long antes = avisos.sum();
+
+        // Un find y una colección por profesor: cada colección sale en su propia SELECT
+        Session s2 = HibernateUtil.getSessionFactory().openSession();
+        for (Long id : ids) {
+            s2.find(Profesor.class, id).getCursos().size();
+        }
+        s2.close();
+
+        assertEquals(antes + 1, avisos.sum());
+    }
+
+    // Con los profesores ya cargados @BatchSize trae sus colecciones en una SELECT, y la segunda vez salen
+    // de la caché de segundo nivel: muchas inicializaciones pero ninguna consulta repetida
+    @Test
+    public void noAvisarConLotesNiCache() {
+        List<Long> ids = profesoresConCurso();
+        LongAdder avisos = avisosCursosDeProfesor();
+        long antes = avisos.sum();
+
+        for (int vez = 0; vez < 2; vez++) {
+            Session session = HibernateUtil.getSessionFactory().openSession();
+            session.createQuery("FROM Profesor p WHERE p.id IN (:ids)", Profesor.class)
+                    .setParameter("ids", ids)
+                    .getResultList()
+                    .forEach(profesor -> profesor.getCursos().size());
+            session.close();
+        }
+
+        assertEquals(antes, avisos.sum());
+    }
+
+    private static List<Long> profesoresConCurso() {
+        List<Long> ids = new ArrayList<>();
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        for (int i = 0; i < 12; i++) {
+            Profesor profesor = new Profesor("Profesor N+1 " + i, "pn1" + i + "_" + System.nanoTime() + "@escuela.com");
+            session.persist(profesor);
+            session.persist(new Curso("Curso N+1 " + i, 3.0, profesor));
+            ids.add(profesor.getId());
+        }
+        session.getTransaction().commit();
+        session.close();
+        return ids;
+    }
+
+    private static LongAdder avisosCursosDeProfesor() {
+        return HibernateUtil.getMetricas().contador("consultas_n_mas_1_total",
+                "Sesiones con cargas perezosas repetidas (N+1) por rol", "rol", Profesor.class.getName() + ".cursos");
+    }
+}
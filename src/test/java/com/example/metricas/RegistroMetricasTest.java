@@ -0,0 +1,69 @@
+package com.example.metricas;
+
+import com.example.HibernateUtil;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RegistroMetricasTest {
+
+    @Test
+    public void exportarHistogramaYContador() {
+        RegistroMetricas metricas = new RegistroMetricas();
+        Histograma h = metricas.histograma("latencia_segundos", "Latencia", "op", "find");
+        h.registrarNanos(300_000);      // 0.3 ms
+        h.registrarNanos(2_000_000);    // 2 ms
+        h.registrarNanos(20_000_000_000L); // 20 s -> +Inf
+        metricas.contador("errores_total", "Errores").add(2);
+
+        String texto = metricas.exportarPrometheus();
+        System.out.println(texto);
+
+        assertTrue(texto.contains("latencia_segundos_bucket{op=\"find\",le=\"5.0E-4\"} 1"));
+        assertTrue(texto.contains("latencia_segundos_bucket{op=\"find\",le=\"+Inf\"} 3"));
+        assertTrue(texto.contains("latencia_segundos_count{op=\"find\"} 3"));
+        assertTrue(texto.contains("errores_total 2"));
+        assertEquals(0.0025, h.percentil(50));
+    }
+
+    @Test
+    public void metricasDelPoolPorHttp() throws Exception {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.createQuery("SELECT COUNT(e) FROM Estudiante e", Long.class).getSingleResult();
+        session.close();
+
+        try (ServidorMetricas servidor = ServidorMetricas.iniciar(0, HibernateUtil.getMetricas())) {
+            String texto;
+            try (InputStream in = URI.create("http://localhost:" + servidor.getPuerto() + "/metrics").toURL().openStream()) {
+                texto = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+            System.out.println(texto);
+            assertTrue(texto.contains("pool_conexiones_activas{pool=\"escuela\"}"));
+            assertTrue(texto.contains("pool_conexiones_ociosas{pool=\"escuela\"}"));
+            assertTrue(texto.contains("pool_conexiones_pendientes{pool=\"escuela\"}"));
+            assertTrue(texto.contains("pool_adquisicion_segundos_count{pool=\"escuela\"}"));
+        }
+    }
+
+    // Al cerrar el pool sus indicadores desaparecen; al crear otro vuelven
+    @Test
+    public void indicadoresDelPoolAlCerrar() {
+        HibernateUtil.getSessionFactory();
+        assertTrue(HibernateUtil.getMetricas().exportarPrometheus().contains("pool_conexiones_activas{pool=\"escuela\"}"));
+
+        HibernateUtil.shutdown();
+        String texto = HibernateUtil.getMetricas().exportarPrometheus();
+        assertFalse(texto.contains("pool_conexiones_activas{pool=\"escuela\"}"));
+        assertFalse(texto.contains("pool_conexiones_max{pool=\"escuela\"}"));
+
+        HibernateUtil.getSessionFactory();
+        assertTrue(HibernateUtil.getMetricas().exportarPrometheus().contains("pool_conexiones_activas{pool=\"escuela\"}"));
+    }
+}
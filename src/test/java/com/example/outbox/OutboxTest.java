@@ -0,0 +1,265 @@
+package com.example.outbox;
+
+import com.example.HibernateUtil;
+import com.example.matriculas.Matriculas;
+import com.example.metricas.RegistroMetricas;
+import com.example.model.Curso;
+import com.example.model.Estudiante;
+import com.example.model.Profesor;
+import com.example.transacciones.EjecutorTransaccional;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OutboxTest {
+
+    private Outbox outbox;
+    private RelevoOutbox relevo;
+    private DestinoCola destino;
+    private String marca;
+
+    @Test
+    public void eventosDeUnEstudianteEnOrden() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Profesor profesor = new Profesor("Profesor Outbox", "outbox.p" + marca + "@escuela.com");
+        session.persist(profesor);
+        Curso primero = new Curso("Curso Outbox 1", 6.0, profesor);
+        Curso segundo = new Curso("Curso Outbox 2", 4.5, null);
+        session.persist(primero);
+        session.persist(segundo);
+        Estudiante estudiante = new Estudiante("Estudiante Outbox", "outbox.e" + marca + "@escuela.com");
+        estudiante.getCursos().add(primero);
+        session.persist(estudiante);
+        session.getTransaction().commit();
+        session.close();
+        long id = estudiante.getId();
+
+        session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Estudiante cambiado = session.find(Estudiante.class, id);
+        cambiado.setEmail("outbox.nuevo" + marca + "@escuela.com");
+        cambiado.getCursos().remove(session.getReference(Curso.class, primero.getId()));
+        cambiado.getCursos().add(session.getReference(Curso.class, segundo.getId()));
+        session.getTransaction().commit();
+        session.close();
+
+        session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Matriculas.desmatricular(session, id, segundo.getId());
+        session.getTransaction().commit();
+        session.close();
+
+        relevo.drenar();
+        List<EventoCambio> eventos = new ArrayList<>(destino.cola());
+        List<String> delEstudiante = eventos.stream()
+                .filter(e -> e.agregado().equals("Estudiante") && e.agregadoId() == id)
+                .map(e -> e.tipo() + " " + e.datos())
+                .toList();
+        assertEquals(List.of(
+                "ALTA {\"email\":\"outbox.e" + marca + "@escuela.com\",\"nombre\":\"Estudiante Outbox\"}",
+                "MATRICULA {\"altas\":[" + primero.getId() + "]}",
+                "CAMBIO {\"email\":\"outbox.nuevo" + marca + "@escuela.com\"}",
+                "MATRICULA {\"altas\":[" + segundo.getId() + "],\"bajas\":[" + primero.getId() + "]}",
+                "MATRICULA {\"bajas\":[" + segundo.getId() + "]}"), delEstudiante);
+        assertTrue(eventos.stream().anyMatch(e -> e.agregado().equals("Curso") && e.agregadoId() == primero.getId()
+                && e.datos().equals("{\"creditos\":6.0,\"nombre\":\"Curso Outbox 1\",\"profesor\":" + profesor.getId() + "}")));
+        for (int i = 1; i < eventos.size(); i++) {
+            assertTrue(eventos.get(i - 1).id() < eventos.get(i).id());
+        }
+        assertEquals(0, relevo.pendientes());
+    }
+
+    // Dos transacciones que matriculan a la vez al mismo estudiante: las dos suben su versión, una de
+    // ellas choca y se repite, y los eventos salen en el orden en que se confirman
+    @Test
+    public void matriculasConcurrentesEnOrden() throws Exception {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Curso primero = new Curso("Curso Outbox Concurrente 1", 3.0, null);
+        Curso segundo = new Curso("Curso Outbox Concurrente 2", 3.0, null);
+        Estudiante estudiante = new Estudiante("Estudiante Outbox Concurrente", "outbox.c" + marca + "@escuela.com");
+        session.persist(primero);
+        session.persist(segundo);
+        session.persist(estudiante);
+        session.getTransaction().commit();
+        session.close();
+        long id = estudiante.getId();
+
+        RegistroMetricas metricas = new RegistroMetricas();
+        EjecutorTransaccional ejecutor = new EjecutorTransaccional(HibernateUtil.getSessionFactory(), metricas);
+        List<String> confirmadas = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch escrita = new CountDownLatch(1);
+        ExecutorService hilo = Executors.newSingleThreadExecutor();
+        try {
+            // La primera escribe su fila y espera a que la segunda la alcance antes de confirmar
+            Future<?> primera = hilo.submit(() -> ejecutor.ejecutar(s -> {
+                matricular(s, id, primero.getId(), confirmadas);
+                s.flush();
+                if (escrita.getCount() > 0) {
+                    escrita.countDown();
+                    esperar(500);
+                }
+                return null;
+            }));
+            assertTrue(escrita.await(10, TimeUnit.SECONDS));
+            ejecutor.ejecutar(s -> matricular(s, id, segundo.getId(), confirmadas));
+            primera.get(10, TimeUnit.SECONDS);
+        } finally {
+            hilo.shutdown();
+        }
+
+        assertTrue(metricas.contador("transacciones_conflictos_total", "").sum() > 0);
+        relevo.drenar();
+        List<String> matriculas = destino.cola().stream()
+                .filter(e -> e.agregado().equals("Estudiante") && e.agregadoId() == id && e.tipo().equals("MATRICULA"))
+                .map(EventoCambio::datos)
+                .toList();
+        assertEquals(confirmadas, matriculas);
+        assertEquals(2, matriculas.size());
+        try (Session s = HibernateUtil.getSessionFactory().openSession()) {
+            assertEquals(estudiante.getVersion() + 2, s.find(Estudiante.class, id).getVersion());
+        }
+    }
+
+    private static Object matricular(Session session, long estudianteId, long cursoId, List<String> confirmadas) {
+        Matriculas.matricular(session, estudianteId, cursoId);
+        ((SessionImplementor) session).getActionQueue().registerProcess((exito, s) -> {
+            if (exito) {
+                confirmadas.add("{\"altas\":[" + cursoId + "]}");
+            }
+        });
+        return null;
+    }
+
+    private static void esperar(long milisegundos) {
+        try {
+            Thread.sleep(milisegundos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void sinEventosSiSeDeshace() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        session.persist(new Estudiante("Estudiante Outbox Deshecho", "outbox.d" + marca + "@escuela.com"));
+        session.flush();
+        session.getTransaction().rollback();
+        session.close();
+
+        assertEquals(0, relevo.pendientes());
+    }
+
+    // Un lote rechazado se queda en la tabla y se vuelve a enviar entero, en el mismo orden
+    @Test
+    public void reenvioTrasUnFallo(@TempDir Path carpeta) throws IOException {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        for (int i = 0; i < 5; i++) {
+            session.persist(new Profesor("Profesor Outbox " + i, "outbox.r" + i + marca + "@escuela.com"));
+        }
+        session.getTransaction().commit();
+        session.close();
+
+        Path fichero = carpeta.resolve("eventos.ndjson");
+        List<Long> recibidos = new ArrayList<>();
+        boolean[] fallar = {true};
+        try (DestinoFichero enFichero = new DestinoFichero(fichero);
+             RelevoOutbox conFallos = new RelevoOutbox(HibernateUtil.getSessionFactory(), eventos -> {
+                 eventos.forEach(e -> recibidos.add(e.id()));
+                 if (fallar[0]) {
+                     fallar[0] = false;
+                     throw new IOException("destino caído");
+                 }
+                 enFichero.enviar(eventos);
+             }, 2, new RegistroMetricas())) {
+            assertThrows(UncheckedIOException.class, conFallos::drenar);
+            assertEquals(5, conFallos.pendientes());
+            assertEquals(5, conFallos.drenar());
+            assertEquals(0, conFallos.pendientes());
+        }
+
+        assertEquals(recibidos.subList(0, 2), recibidos.subList(2, 4));
+        List<String> lineas = Files.readAllLines(fichero);
+        assertEquals(5, lineas.size());
+        for (int i = 0; i < 5; i++) {
+            assertTrue(lineas.get(i).startsWith("{\"id\":" + recibidos.get(i + 2) + ",\"agregado\":\"Profesor\""));
+            assertTrue(lineas.get(i).contains("\"tipo\":\"ALTA\""));
+        }
+    }
+
+    // outbox_pendientes es el recuento de la última pasada del relevo: leerlo no consulta la tabla
+    @Test
+    public void indicadorDePendientes() throws Exception {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        for (int i = 0; i < 3; i++) {
+            session.persist(new Profesor("Profesor Outbox " + i, "outbox.i" + i + marca + "@escuela.com"));
+        }
+        session.getTransaction().commit();
+        session.close();
+        long pendientes = relevo.pendientes();
+
+        RegistroMetricas metricas = new RegistroMetricas();
+        try (RelevoOutbox caido = new RelevoOutbox(HibernateUtil.getSessionFactory(), eventos -> {
+            throw new IOException("destino caído");
+        }, 100, metricas)) {
+            assertFalse(metricas.exportarPrometheus().contains("outbox_pendientes"));
+            caido.iniciar(Duration.ofHours(1));
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (!metricas.exportarPrometheus().contains("outbox_pendientes " + pendientes)
+                    && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            assertTrue(metricas.exportarPrometheus().contains("outbox_pendientes " + pendientes));
+
+            session = HibernateUtil.getSessionFactory().openSession();
+            session.beginTransaction();
+            session.persist(new Profesor("Profesor Outbox Nuevo", "outbox.in" + marca + "@escuela.com"));
+            session.getTransaction().commit();
+            session.close();
+            assertTrue(metricas.exportarPrometheus().contains("outbox_pendientes " + pendientes));
+        }
+        assertFalse(metricas.exportarPrometheus().contains("outbox_pendientes"));
+    }
+
+    @BeforeEach
+    public void abrir() {
+        marca = "." + System.nanoTime();
+        outbox = Outbox.abrir(HibernateUtil.getSessionFactory());
+        destino = new DestinoCola(10_000);
+        relevo = new RelevoOutbox(HibernateUtil.getSessionFactory(), destino, 100, new RegistroMetricas());
+        relevo.drenar();
+        destino.cola().clear();
+    }
+
+    @AfterEach
+    public void cerrar() {
+        relevo.close();
+        outbox.close();
+    }
+}
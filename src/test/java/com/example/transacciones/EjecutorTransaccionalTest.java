@@ -0,0 +1,127 @@
+package com.example.transacciones;
+
+import com.example.HibernateUtil;
+import com.example.metricas.RegistroMetricas;
+import com.example.model.Curso;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EjecutorTransaccionalTest {
+
+    private static final int HILOS = 16;
+    private static final int OPERACIONES = 400;
+
+    private long cursoId;
+
+    // Muchos hilos suman 1 a los créditos del mismo curso: con @Version y
+    // reintentos no se pierde ninguna suma aunque haya conflictos
+    @Test
+    public void contencionSinPerderCambios() throws Exception {
+        RegistroMetricas metricas = new RegistroMetricas();
+        EjecutorTransaccional ejecutor = new EjecutorTransaccional(HibernateUtil.getSessionFactory(), metricas,
+                1_000, Duration.ofMillis(1), Duration.ofMillis(50));
+
+        long inicio = System.nanoTime();
+        List<Future<Object>> resultados = concurrente(() -> ejecutor.ejecutar(this::sumarCredito));
+        for (Future<Object> resultado : resultados) {
+            resultado.get();
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        long conflictos = contador(metricas, "transacciones_conflictos_total");
+        System.out.printf("%d operaciones en %.2f s (%.0f op/s), %d conflictos, %d reintentos%n",
+                OPERACIONES, segundos, OPERACIONES / segundos, conflictos,
+                contador(metricas, "transacciones_reintentos_total"));
+        assertEquals(OPERACIONES, creditos(), 0.0);
+        assertTrue(conflictos > 0);
+        assertEquals(conflictos, contador(metricas, "transacciones_reintentos_total"));
+        assertEquals(0, contador(metricas, "transacciones_agotadas_total"));
+    }
+
+    // Sin reintentos los conflictos llegan al llamante y las sumas que fallan no se aplican
+    @Test
+    public void sinReintentosFallaElConflicto() throws Exception {
+        RegistroMetricas metricas = new RegistroMetricas();
+        EjecutorTransaccional ejecutor = new EjecutorTransaccional(HibernateUtil.getSessionFactory(), metricas,
+                1, Duration.ZERO, Duration.ZERO);
+
+        int fallidas = 0;
+        for (Future<Object> resultado : concurrente(() -> ejecutor.ejecutar(this::sumarCredito))) {
+            try {
+                resultado.get();
+            } catch (ExecutionException e) {
+                assertTrue(EjecutorTransaccional.esConflicto(e.getCause()));
+                fallidas++;
+            }
+        }
+
+        assertTrue(fallidas > 0);
+        assertEquals(OPERACIONES - fallidas, creditos(), 0.0);
+        assertEquals(fallidas, contador(metricas, "transacciones_agotadas_total"));
+    }
+
+    @Test
+    public void otrosErroresNoSeReintentan() {
+        RegistroMetricas metricas = new RegistroMetricas();
+        EjecutorTransaccional ejecutor = new EjecutorTransaccional(HibernateUtil.getSessionFactory(), metricas);
+
+        assertThrows(IllegalStateException.class, () -> ejecutor.ejecutar(session -> {
+            throw new IllegalStateException("fallo");
+        }));
+        assertEquals(0, contador(metricas, "transacciones_reintentos_total"));
+    }
+
+    private Object sumarCredito(Session session) {
+        Curso curso = session.find(Curso.class, cursoId);
+        curso.setCreditos(curso.getCreditos() + 1);
+        return null;
+    }
+
+    private List<Future<Object>> concurrente(Callable<Object> tarea) throws InterruptedException {
+        ExecutorService hilos = Executors.newFixedThreadPool(HILOS);
+        List<Callable<Object>> tareas = new ArrayList<>();
+        for (int i = 0; i < OPERACIONES; i++) {
+            tareas.add(tarea);
+        }
+        try {
+            return hilos.invokeAll(tareas);
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    private double creditos() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            return session.find(Curso.class, cursoId).getCreditos();
+        }
+    }
+
+    private static long contador(RegistroMetricas metricas, String nombre) {
+        return metricas.contador(nombre, "").sum();
+    }
+
+    @BeforeEach
+    public void seed() {
+        Session session = HibernateUtil.getSessionFactory().openSession();
+        session.beginTransaction();
+        Curso curso = new Curso("Curso Contencion", 0, null);
+        session.persist(curso);
+        session.getTransaction().commit();
+        session.close();
+        cursoId = curso.getId();
+    }
+}